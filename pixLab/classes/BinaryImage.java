@@ -0,0 +1,375 @@
+import java.util.Arrays;
+
+/**
+ * A class that represents a black and white image with one bit per pixel.
+ *
+ * Each row is stored in its own run of longs (words), so column x of a row is
+ * bit (x % 64) of word (x / 64). A set bit is a Color.WHITE pixel and a clear
+ * bit is a Color.BLACK pixel. Bits past the width of the image are always clear.
+ *
+ * Because 64 pixels are looked at with each word, counting white pixels, or
+ * finding the first or last white pixel of a row, is done with Long.bitCount(..),
+ * Long.numberOfTrailingZeros(..) and Long.numberOfLeadingZeros(..) instead of
+ * looking at each pixel. A BinaryImage also takes 32 times less memory than the
+ * same picture stored as ARGB ints.
+ *
+ * A BinaryImage is made from a Picture using Picture.toBinaryImage(), and can be
+ * painted back onto a Picture using writeTo(..).
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class BinaryImage
+{
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    /**
+     * Creates a BinaryImage where every pixel is black
+     * @param width The width of the image in pixels
+     * @param height The height of the image in pixels
+     */
+    public BinaryImage( int width, int height )
+    {
+        this.width       = width;
+        this.height      = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words       = new long[ wordsPerRow * height ];
+    }
+
+    /**
+     * Creates a copy of another BinaryImage
+     * @param copy The image to copy
+     */
+    public BinaryImage( BinaryImage copy )
+    {
+        this.width       = copy.width;
+        this.height      = copy.height;
+        this.wordsPerRow = copy.wordsPerRow;
+        this.words       = copy.words.clone();
+    }
+
+    /** @return int The width of the image in pixels */
+    public int getWidth()       { return width;       }
+    /** @return int The height of the image in pixels */
+    public int getHeight()      { return height;      }
+    /** @return int The number of longs used for each row */
+    public int getWordsPerRow() { return wordsPerRow; }
+    /** @return long[] The words of the image. Row r starts at index r * getWordsPerRow() */
+    public long[] getWords()    { return words;       }
+
+    /**
+     * Method to get the index of the first word of a row in getWords()
+     * @param row The row
+     * @return int The index of the first word of the row
+     */
+    public int rowStart( int row ) { return row * wordsPerRow; }
+
+    /**
+     * Method to get a mask of the bits of a word that are inside of the image
+     * @param word The index of the word within a row
+     * @return long The mask, which has every bit set except for the last word of a row
+     */
+    public long wordMask( int word )
+    {
+        if( word < wordsPerRow - 1 || (width & 63) == 0 ) return -1L;
+        return (1L << (width & 63)) - 1;
+    }
+
+    /**
+     * Method that determines whether a pixel is white
+     * @param col The column (x) of the pixel
+     * @param row The row (y) of the pixel
+     * @return boolean True if the pixel is white, false if it is black
+     */
+    public boolean isWhite( int col, int row )
+    {
+        return (words[ row * wordsPerRow + (col >>> 6) ] & (1L << col)) != 0;
+    }
+
+    /**
+     * Method that sets a pixel to be white or black
+     * @param col The column (x) of the pixel
+     * @param row The row (y) of the pixel
+     * @param white True to make the pixel white, false to make it black
+     */
+    public void setWhite( int col, int row, boolean white )
+    {
+        int index = row * wordsPerRow + (col >>> 6);
+        if( white ) words[index] |=  (1L << col);
+        else        words[index] &= ~(1L << col);
+    }
+
+    /**
+     * Method that sets every pixel to be white or black
+     * @param white True to make every pixel white, false to make every pixel black
+     */
+    public void fill( boolean white )
+    {
+        if( !white )
+        {
+            Arrays.fill( words, 0L );
+            return;
+        }
+
+        for( int row = 0; row < height; row++ )
+            for( int word = 0, index = row * wordsPerRow; word < wordsPerRow; word++, index++ )
+                words[index] = wordMask( word );
+    }
+
+    /**
+     * Method that changes every white pixel to black and every black pixel to white
+     */
+    public void invert()
+    {
+        for( int row = 0; row < height; row++ )
+            for( int word = 0, index = row * wordsPerRow; word < wordsPerRow; word++, index++ )
+                words[index] = ~words[index] & wordMask( word );
+    }
+
+    /**
+     * Method to count all of the white pixels of the image
+     * @return int The total number of white pixels
+     */
+    public int whiteCount()
+    {
+        int total = 0;
+        for( long word : words )
+            total += Long.bitCount( word );
+
+        return total;
+    }
+
+    /**
+     * Method to count the white pixels in a row
+     * @param row The row
+     * @return int The number of white pixels in the row
+     */
+    public int rowWhiteCount( int row )
+    {
+        int total = 0;
+        for( int index = row * wordsPerRow, end = index + wordsPerRow; index < end; index++ )
+            total += Long.bitCount( words[index] );
+
+        return total;
+    }
+
+    /**
+     * Method to find the column of the first white pixel in a row
+     * @param row The row
+     * @return int The column of the first white pixel, or -1 if the row has no white pixels
+     */
+    public int firstWhiteInRow( int row )
+    {
+        int start = row * wordsPerRow;
+        for( int word = 0; word < wordsPerRow; word++ )
+            if( words[ start + word ] != 0 )
+                return (word << 6) + Long.numberOfTrailingZeros( words[ start + word ] );
+
+        return -1;
+    }
+
+    /**
+     * Method to find the column of the last white pixel in a row
+     * @param row The row
+     * @return int The column of the last white pixel, or -1 if the row has no white pixels
+     */
+    public int lastWhiteInRow( int row )
+    {
+        int start = row * wordsPerRow;
+        for( int word = wordsPerRow - 1; word >= 0; word-- )
+            if( words[ start + word ] != 0 )
+                return (word << 6) + 63 - Long.numberOfLeadingZeros( words[ start + word ] );
+
+        return -1;
+    }
+
+    /**
+     * Method to count the white pixels in every column. Only the white pixels are
+     * visited, so mostly black images are counted quickly
+     * @param counts The array to store the counts in, which must hold getWidth() values
+     */
+    public void columnWhiteCounts( int[] counts )
+    {
+        Arrays.fill( counts, 0, width, 0 );
+        for( int row = 0; row < height; row++ )
+        {
+            int start = row * wordsPerRow;
+            for( int word = 0; word < wordsPerRow; word++ )
+            {
+                long bits = words[ start + word ];
+                while( bits != 0 )
+                {
+                    counts[ (word << 6) + Long.numberOfTrailingZeros( bits ) ]++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to find the row of the first white pixel in every column
+     * @param firsts The array to store the rows in, which must hold getWidth() values.
+     *               Columns with no white pixels are set to -1
+     */
+    public void columnFirstWhite( int[] firsts )
+    {
+        Arrays.fill( firsts, 0, width, -1 );
+        for( int row = height - 1; row >= 0; row-- )
+            markSetBits( row, firsts );
+    }
+
+    /**
+     * Method to find the row of the last white pixel in every column
+     * @param lasts The array to store the rows in, which must hold getWidth() values.
+     *              Columns with no white pixels are set to -1
+     */
+    public void columnLastWhite( int[] lasts )
+    {
+        Arrays.fill( lasts, 0, width, -1 );
+        for( int row = 0; row < height; row++ )
+            markSetBits( row, lasts );
+    }
+
+    /**
+     * Method that stores the row number in the array at each white column of the row
+     * @param row The row
+     * @param rows The array to store the row number in
+     */
+    private void markSetBits( int row, int[] rows )
+    {
+        int start = row * wordsPerRow;
+        for( int word = 0; word < wordsPerRow; word++ )
+        {
+            long bits = words[ start + word ];
+            while( bits != 0 )
+            {
+                rows[ (word << 6) + Long.numberOfTrailingZeros( bits ) ] = row;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Method to find the first column that has a white pixel in any row
+     * @return int The first column with a white pixel, or -1 if there are no white pixels
+     */
+    public int firstWhiteColumn()
+    {
+        for( int word = 0; word < wordsPerRow; word++ )
+        {
+            long bits = columnWord( word );
+            if( bits != 0 )
+                return (word << 6) + Long.numberOfTrailingZeros( bits );
+        }
+
+        return -1;
+    }
+
+    /**
+     * Method to find the last column that has a white pixel in any row
+     * @return int The last column with a white pixel, or -1 if there are no white pixels
+     */
+    public int lastWhiteColumn()
+    {
+        for( int word = wordsPerRow - 1; word >= 0; word-- )
+        {
+            long bits = columnWord( word );
+            if( bits != 0 )
+                return (word << 6) + 63 - Long.numberOfLeadingZeros( bits );
+        }
+
+        return -1;
+    }
+
+    /**
+     * Method to OR together the same word of every row
+     * @param word The index of the word within a row
+     * @return long The bits of the columns that have a white pixel in any row
+     */
+    private long columnWord( int word )
+    {
+        long bits = 0L;
+        for( int index = word; index < words.length; index += wordsPerRow )
+            bits |= words[index];
+
+        return bits;
+    }
+
+    /**
+     * Method to find the first row that has a white pixel
+     * @return int The first row with a white pixel, or -1 if there are no white pixels
+     */
+    public int firstWhiteRow()
+    {
+        for( int row = 0; row < height; row++ )
+            if( !isRowBlack( row ) ) return row;
+
+        return -1;
+    }
+
+    /**
+     * Method to find the last row that has a white pixel
+     * @return int The last row with a white pixel, or -1 if there are no white pixels
+     */
+    public int lastWhiteRow()
+    {
+        for( int row = height - 1; row >= 0; row-- )
+            if( !isRowBlack( row ) ) return row;
+
+        return -1;
+    }
+
+    /**
+     * Method that determines whether a row has no white pixels
+     * @param row The row
+     * @return boolean True if every pixel of the row is black, false otherwise
+     */
+    private boolean isRowBlack( int row )
+    {
+        for( int index = row * wordsPerRow, end = index + wordsPerRow; index < end; index++ )
+            if( words[index] != 0 ) return false;
+
+        return true;
+    }
+
+    /**
+     * Method that paints this image onto a Picture as Color.WHITE and Color.BLACK
+     * pixels. The alpha of each pixel of the Picture is kept
+     * @param pic The Picture to paint onto, which must be at least as big as this image
+     */
+    public void writeTo( Picture pic )
+    {
+        PixelRaster raster = pic.getPixelRaster();
+        for( int row = 0; row < height; row++ )
+        {
+            int index = raster.index( 0, row );
+            for( int col = 0; col < width; col++, index++ )
+            {
+                int alpha = raster.getAt( index ) & 0xFF000000;
+                raster.setAt( index, isWhite( col, row ) ? alpha | 0xFFFFFF : alpha );
+            }
+        }
+    }
+
+    /**
+     * Method to make a new Picture of this image
+     * @return Picture A Picture with Color.WHITE and Color.BLACK pixels
+     */
+    public Picture toPicture()
+    {
+        Picture pic = new Picture( height, width );
+        writeTo( pic );
+        return pic;
+    }
+
+    /**
+     * Method to return a string with information about this image
+     * @return String The width, height, and number of white pixels of the image
+     */
+    public String toString()
+    {
+        return "Binary Image, width " + width + " height " + height + " white " + whiteCount();
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.Arrays;
+
+/**
+ * A class that applies a Gaussian blur to a picture.
+ *
+ * A Gaussian kernel is separable, which means that blurring with a k x k kernel is
+ * the same as blurring each row with a 1-D kernel of k taps, and then each column of
+ * that result with the same 1-D kernel. This takes 2k multiplications per pixel
+ * instead of k * k.
+ *
+ * The picture is split into one int[] plane per color (red, green, and blue). Each
+ * plane is blurred across into a second buffer, and then down back into the plane,
+ * so a pass never reads a pixel that it has already written, and the result does not
+ * depend on the order that pixels are visited in. Bands of rows are split between threads
+ * by TileScheduler. Pixels past the edge of the picture are treated as copies of the edge
+ * pixel. The alpha of each pixel is kept.
+ *
+ * Kernels are ints that add up to 1 << SHIFT, so all of the math is done with ints.
+ * The result of the first pass keeps EXTRA_BITS more bits than a color, so that
+ * rounding only happens once per pass.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class BlurEngine
+{
+    /* The weights of every kernel add up to 1 << SHIFT */
+    public static final int SHIFT = 12;
+
+    /* The bits of precision kept between the two passes, on top of the 8 bits of a color */
+    private static final int EXTRA_BITS = 4;
+
+    private static final int[] MILD   = binomialKernel( 3 ); //1 2 1
+    private static final int[] MEDIUM = binomialKernel( 5 ); //1 4 6 4 1
+    private static final int[] STRONG = binomialKernel( 9 ); //1 8 28 56 70 56 28 8 1
+
+    /**
+     * Method to get the 1-D kernel of a blur strength. These are rows of Pascal's
+     * triangle, which are the closest integer kernels to a Gaussian
+     * @param strength The strength of the blur
+     * @return int[] The kernel, of 3 taps for MILD, 5 for MEDIUM, and 9 for STRONG
+     */
+    public static int[] kernel( Picture.Blur strength )
+    {
+        switch( strength )
+        {
+            case MILD:   return MILD.clone();
+            case MEDIUM: return MEDIUM.clone();
+            default:     return STRONG.clone();
+        }
+    }
+
+    /**
+     * Method to make the 1-D Gaussian kernel of any standard deviation. The kernel reaches
+     * 3 standard deviations out from the center, where the weights are nearly 0
+     * @param sigma The standard deviation of the blur, in pixels, which must be more than 0
+     * @return int[] The kernel, whose weights add up to 1 << SHIFT
+     * @throws IllegalArgumentException if sigma is not more than 0
+     */
+    public static int[] kernel( double sigma )
+    {
+        if( !(sigma > 0.0) ) throw new IllegalArgumentException( "Sigma must be more than 0, not " + sigma );
+
+        int radius = Math.max( 1, (int)Math.ceil( 3.0 * sigma ) );
+        double[] weights = new double[ 2 * radius + 1 ];
+        double total = 0.0;
+        for( int tap = 0; tap < weights.length; tap++ )
+        {
+            double distance = tap - radius;
+            weights[tap] = Math.exp( -(distance * distance) / (2.0 * sigma * sigma) );
+            total += weights[tap];
+        }
+
+        int[] kernel = new int[ weights.length ];
+        int sum = 0;
+        for( int tap = 0; tap < kernel.length; tap++ )
+        {
+            kernel[tap] = (int)Math.round( weights[tap] / total * (1 << SHIFT) );
+            sum += kernel[tap];
+        }
+        kernel[ radius ] += (1 << SHIFT) - sum; //the rounding error goes to the center
+
+        return kernel;
+    }
+
+    /**
+     * Method to make a kernel from a row of Pascal's triangle
+     * @param taps The number of taps, which must be odd and at most SHIFT + 1
+     * @return int[] The kernel, whose weights add up to 1 << SHIFT
+     */
+    private static int[] binomialKernel( int taps )
+    {
+        int[] kernel = new int[ taps ];
+        kernel[0] = 1;
+        for( int row = 1; row < taps; row++ )
+            for( int tap = row; tap > 0; tap-- )
+                kernel[tap] += kernel[ tap - 1 ];
+
+        //The row adds up to 2^(taps - 1)
+        for( int tap = 0; tap < taps; tap++ )
+            kernel[tap] <<= SHIFT - (taps - 1);
+
+        return kernel;
+    }
+
+    /**
+     * Method that blurs the pixels of a picture
+     * @param pixels The pixels of the picture, which are changed
+     * @param kernel The 1-D kernel, which must have an odd number of taps that add up to 1 << SHIFT
+     * @throws IllegalArgumentException if the kernel does not have an odd number of taps
+     */
+    public static void blur( PixelRaster pixels, int[] kernel )
+    {
+        if( kernel.length % 2 == 0 )
+            throw new IllegalArgumentException( "A kernel must have an odd number of taps, not " + kernel.length );
+
+        final int WIDTH  = pixels.getWidth();
+        final int HEIGHT = pixels.getHeight();
+        if( WIDTH == 0 || HEIGHT == 0 ) return;
+
+        int[] red   = new int[ WIDTH * HEIGHT ];
+        int[] green = new int[ WIDTH * HEIGHT ];
+        int[] blue  = new int[ WIDTH * HEIGHT ];
+        int[] temp  = new int[ WIDTH * HEIGHT ];
+
+        TileScheduler.forEachRowBand( WIDTH, HEIGHT, (fromCol, fromRow, toCol, toRow) -> {
+            for( int row = fromRow; row < toRow; row++ )
+            {
+                int index = pixels.index( 0, row );
+                for( int col = 0, plane = row * WIDTH; col < WIDTH; col++, index++, plane++ )
+                {
+                    int argb = pixels.getAt( index );
+                    red[plane]   = (argb >> 16) & 0xFF;
+                    green[plane] = (argb >> 8) & 0xFF;
+                    blue[plane]  = argb & 0xFF;
+                }
+            }
+        } );
+
+        for( int[] plane : new int[][]{ red, green, blue } )
+        {
+            TileScheduler.forEachRowBand( WIDTH, HEIGHT, (fromCol, fromRow, toCol, toRow) ->
+                blurAcross( plane, temp, WIDTH, fromRow, toRow, kernel ) );
+            TileScheduler.forEachRowBand( WIDTH, HEIGHT, (fromCol, fromRow, toCol, toRow) ->
+                blurDown( temp, plane, WIDTH, HEIGHT, fromRow, toRow, kernel ) );
+        }
+
+        TileScheduler.forEachRowBand( WIDTH, HEIGHT, (fromCol, fromRow, toCol, toRow) -> {
+            for( int row = fromRow; row < toRow; row++ )
+            {
+                int index = pixels.index( 0, row );
+                for( int col = 0, plane = row * WIDTH; col < WIDTH; col++, index++, plane++ )
+                    pixels.setAt( index, PixelRaster.pack( pixels.getAt( index ) >>> 24,
+                                                           red[plane], green[plane], blue[plane] ) );
+            }
+        } );
+    }
+
+    /**
+     * Method that blurs rows of a plane across, keeping EXTRA_BITS more bits of precision
+     * @param source The plane to read
+     * @param target The plane to write
+     * @param width The width of the planes
+     * @param fromRow The first row to blur
+     * @param toRow The row after the last row to blur
+     * @param kernel The 1-D kernel
+     */
+    private static void blurAcross( int[] source, int[] target, int width, int fromRow, int toRow, int[] kernel )
+    {
+        final int RADIUS = kernel.length / 2;
+        final int ROUND  = 1 << (SHIFT - EXTRA_BITS - 1);
+
+        //The row with RADIUS copies of the edge pixels on each side, so the taps need no bounds checks
+        int[] line = new int[ width + 2 * RADIUS ];
+        for( int row = fromRow; row < toRow; row++ )
+        {
+            int start = row * width;
+            System.arraycopy( source, start, line, RADIUS, width );
+            for( int pad = 0; pad < RADIUS; pad++ )
+            {
+                line[pad] = source[start];
+                line[ RADIUS + width + pad ] = source[ start + width - 1 ];
+            }
+
+            for( int col = 0; col < width; col++ )
+            {
+                int sum = 0;
+                for( int tap = 0; tap < kernel.length; tap++ )
+                    sum += kernel[tap] * line[ col + tap ];
+                target[ start + col ] = (sum + ROUND) >> (SHIFT - EXTRA_BITS);
+            }
+        }
+    }
+
+    /**
+     * Method that blurs rows of a plane down, going back to 8 bits per color
+     * @param source The plane to read, which was blurred across
+     * @param target The plane to write
+     * @param width The width of the planes
+     * @param height The height of the planes
+     * @param fromRow The first row to blur
+     * @param toRow The row after the last row to blur
+     * @param kernel The 1-D kernel
+     */
+    private static void blurDown( int[] source, int[] target, int width, int height, int fromRow, int toRow,
+                                  int[] kernel )
+    {
+        final int RADIUS = kernel.length / 2;
+        final int ROUND  = 1 << (SHIFT + EXTRA_BITS - 1);
+
+        //Each tap adds a whole row at a time, so the rows are read in order
+        int[] sums = new int[ width ];
+        for( int row = fromRow; row < toRow; row++ )
+        {
+            Arrays.fill( sums, ROUND );
+            for( int tap = 0; tap < kernel.length; tap++ )
+            {
+                int sourceRow = Math.min( height - 1, Math.max( 0, row + tap - RADIUS ) );
+                int start = sourceRow * width;
+                int weight = kernel[tap];
+                for( int col = 0; col < width; col++ )
+                    sums[col] += weight * source[ start + col ];
+            }
+
+            int start = row * width;
+            for( int col = 0; col < width; col++ )
+                target[ start + col ] = sums[col] >> (SHIFT + EXTRA_BITS);
+        }
+    }
+}
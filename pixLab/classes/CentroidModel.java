@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A class that holds the weights of a classifier with any number of classes (K).
+ *
+ * This is the same algorithm as the two class detector in MLDetector, but instead of
+ * one weight for class A and one for class B, each feature has one weight for every
+ * class. The weights of a class are the running average (centroid) of the feature
+ * values of the training images of that class. All of the weights are stored in one
+ * double[] of K * F values, where F is the number of features, so the weights of
+ * class k start at index k * F:
+ *
+ *     class 0: f0 f1 f2 ... | class 1: f0 f1 f2 ... | ... | class K-1: f0 f1 f2 ...
+ *
+ * Each class also keeps its own iteration count, which is the number of images that
+ * its weights have been averaged over (plus one, for the random starting weights).
+ *
+ * The model is saved as text, with one line of labels, one line of counts, and then
+ * one line per feature with the weight of each class:
+ *
+ *     labels 0 1 2 3
+ *     counts 12.0 9.0 11.0 10.0
+ *     featureName weight0 weight1 weight2 weight3
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class CentroidModel
+{
+    private final Path path;
+    private final List<String> labels;
+    private final List<String> names;
+    private final int classes;
+    private final int features;
+    private final double[] centroids;
+    private final double[] counts;
+    private boolean dirty = false;
+
+    /**
+     * Creates a model with random weights between 0 and 1 for each class and feature
+     * @param labels The names of the classes, in order of their class index
+     * @param names The names of the features, in order of their ids
+     * @param path The file that this model is saved to
+     * @param random The random number generator used for the starting weights
+     */
+    public CentroidModel( List<String> labels, List<String> names, Path path, Random random )
+    {
+        this( labels, names, path );
+        for( int index = 0; index < centroids.length; index++ )
+            centroids[index] = random.nextDouble();
+        Arrays.fill( counts, 1.0 );
+        dirty = true;
+    }
+
+    /**
+     * Creates a model where every weight and count is 0
+     * @param labels The names of the classes, in order of their class index
+     * @param names The names of the features, in order of their ids
+     * @param path The file that this model is saved to
+     */
+    private CentroidModel( List<String> labels, List<String> names, Path path )
+    {
+        this.path      = path;
+        this.labels    = Collections.unmodifiableList( new ArrayList<String>( labels ) );
+        this.names     = Collections.unmodifiableList( new ArrayList<String>( names ) );
+        this.classes   = labels.size();
+        this.features  = names.size();
+        this.centroids = new double[ classes * features ];
+        this.counts    = new double[ classes ];
+    }
+
+    /**
+     * Method to read a model from a file
+     * @param path The file
+     * @return CentroidModel The weights in the file
+     * @throws IOException if the file cannot be read or is not in the right format
+     */
+    public static CentroidModel load( Path path ) throws IOException
+    {
+        List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+        if( lines.size() < 2 || !lines.get(0).startsWith( "labels" ) || !lines.get(1).startsWith( "counts" ) )
+            throw new IOException( path + " does not start with a labels line and a counts line" );
+
+        String[] labelParts = lines.get(0).split(" ");
+        List<String> labels = Arrays.asList( labelParts ).subList( 1, labelParts.length );
+        String[] countParts = lines.get(1).split(" ");
+        ArrayList<String> names = new ArrayList<String>();
+        ArrayList<String[]> rows = new ArrayList<String[]>();
+        for( String line : lines.subList( 2, lines.size() ) )
+        {
+            if( line.isEmpty() ) break;
+
+            String[] parts = line.split(" ");
+            if( parts.length != labels.size() + 1 )
+                throw new IOException( "Line \"" + line + "\" of " + path + " should have a weight for each of the " +
+                                       labels.size() + " labels" );
+            names.add( parts[0] );
+            rows.add( parts );
+        }
+        if( countParts.length != labels.size() + 1 )
+            throw new IOException( "The counts line of " + path + " should have a count for each label" );
+
+        CentroidModel model = new CentroidModel( labels, names, path );
+        try
+        {
+            for( int k = 0; k < model.classes; k++ )
+            {
+                model.counts[k] = Double.parseDouble( countParts[ k + 1 ] );
+                for( int f = 0; f < model.features; f++ )
+                    model.centroids[ k * model.features + f ] = Double.parseDouble( rows.get(f)[ k + 1 ] );
+            }
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IOException( path + " has a weight or count that is not a number", e );
+        }
+
+        return model;
+    }
+
+    /** @return Path The file that this model is saved to */
+    public Path getPath()            { return path;      }
+    /** @return List<String> The names of the classes, in order of their class index */
+    public List<String> getLabels()  { return labels;    }
+    /** @return List<String> The names of the features, in order of their ids */
+    public List<String> getNames()   { return names;     }
+    /** @return int The number of classes (K) */
+    public int getClassCount()       { return classes;   }
+    /** @return int The number of features (F) */
+    public int getFeatureCount()     { return features;  }
+    /** @return double[] The K * F weights. The weights of class k start at k * getFeatureCount() */
+    public double[] getCentroids()   { return centroids; }
+
+    /**
+     * Method to get the iteration count of a class
+     * @param classIndex The index of the class
+     * @return double The number of images the weights of the class have been averaged over, plus one
+     */
+    public double getCount( int classIndex ) { return counts[ classIndex ]; }
+
+    /**
+     * Method to get the index of a class
+     * @param label The name of the class
+     * @return int The index of the class, or -1 if there is no class with this name
+     */
+    public int getClassIndex( String label ) { return labels.indexOf( label ); }
+
+    /**
+     * Method that guesses the class of an instance. As in the two class detector, each
+     * class's weights are averaged with the feature values as if the instance were added to
+     * that class, and the class whose average is closest to the average of the feature
+     * values is the guess
+     * @param featureData The feature values of the instance, indexed by feature id
+     * @return int The index of the class guessed
+     */
+    public int classify( double[] featureData )
+    {
+        double featureSum = 0.0;
+        for( int f = 0; f < features; f++ )
+            featureSum += featureData[f];
+        double featureAverageWeight = featureSum / features;
+
+        int guess = 0;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for( int k = 0, base = 0; k < classes; k++, base += features )
+        {
+            double totalIterations = counts[k];
+            double weightSum = 0.0;
+            for( int f = base; f < base + features; f++ )
+                weightSum += centroids[f];
+
+            //Average the weights and the new feature values according to the weighted average across iterations so far
+            double classAverageWeight = ((weightSum * totalIterations) / (totalIterations + 1.0) +
+                                         featureSum / (totalIterations + 1.0)) / features;
+            double score = Math.abs( classAverageWeight - featureAverageWeight );
+            if( score < bestScore )
+            {
+                bestScore = score;
+                guess = k;
+            }
+        }
+
+        return guess;
+    }
+
+    /**
+     * Method that averages the feature values of a training instance into the weights of its class
+     * @param classIndex The index of the class of the instance
+     * @param featureData The feature values of the instance, indexed by feature id
+     */
+    public void update( int classIndex, double[] featureData )
+    {
+        double totalIterations = counts[ classIndex ];
+        double oldShare = totalIterations / (totalIterations + 1.0);
+        double newShare = 1.0 / (totalIterations + 1.0);
+        for( int f = 0, index = classIndex * features; f < features; f++, index++ )
+            centroids[index] = centroids[index] * oldShare + featureData[f] * newShare;
+
+        counts[ classIndex ] = totalIterations + 1.0;
+        dirty = true;
+    }
+
+    /**
+     * Method to write the model to its file, if it has changed since it was last saved
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save() throws IOException
+    {
+        if( !dirty ) return;
+
+        WeightModel.writeAtomically( path, toString() );
+        dirty = false;
+    }
+
+    /**
+     * Method to return the model in the format of its file
+     * @return String The labels line, the counts line, and one line per feature
+     */
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder( "labels" );
+        for( String label : labels )
+            text.append(' ').append( label );
+
+        text.append( "\ncounts" );
+        for( double count : counts )
+            text.append(' ').append( count );
+
+        for( int f = 0; f < features; f++ )
+        {
+            text.append('\n').append( names.get(f) );
+            for( int k = 0; k < classes; k++ )
+                text.append(' ').append( centroids[ k * features + f ] );
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * A class that converts colors between gamma encoded values (the 0 to 255 values that
+ * are stored in a picture) and linear values (0.0 to 1.0, proportional to the amount of
+ * light), without calling Math.pow for every pixel.
+ *
+ * Encoded values are turned into linear values with a table of all 256 answers. Linear
+ * values are turned back with a table of thresholds, where THRESHOLDS[g] is the smallest
+ * linear value that encodes to g. A second, fixed-point table gives the encoded value at
+ * the start of each of INVERSE_STEPS equal steps of the linear range, so only a step or
+ * two has to be checked against the thresholds. The answers are the same as
+ *
+ *     linear  = (float)Math.pow( value / 255.0, GAMMA )
+ *     value   = (int)( 255.0 * Math.pow( linear, 1.0 / GAMMA ) )
+ *
+ * which is what grayscale() used to calculate for every pixel, except that the thresholds
+ * are the float linear values themselves, so toEncoded( toLinear( v ) ) is always v. This
+ * can make a value that is right on a threshold 1 higher than the formula gives.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class ColorConversion
+{
+    /* The gamma that colors are encoded with */
+    public static final double GAMMA = 2.2;
+
+    /* The luminance of each linear color, from the Rec. 709 primaries that sRGB uses */
+    public static final double RED_LUMINANCE   = 0.2126;
+    public static final double GREEN_LUMINANCE = 0.7152;
+    public static final double BLUE_LUMINANCE  = 0.0722;
+
+    /* The number of fixed-point steps the linear range is split into for toEncoded(...) */
+    private static final int INVERSE_BITS  = 12;
+    private static final int INVERSE_STEPS = 1 << INVERSE_BITS;
+
+    /* TO_LINEAR[v] is the linear value of the encoded value v */
+    private static final float[] TO_LINEAR = new float[ 256 ];
+
+    /* THRESHOLDS[g] is the smallest linear value that encodes to g. THRESHOLDS[256] is past the top */
+    private static final double[] THRESHOLDS = new double[ 257 ];
+
+    /* INVERSE[s] is the encoded value of the linear value s / INVERSE_STEPS */
+    private static final byte[] INVERSE = new byte[ INVERSE_STEPS + 1 ];
+
+    static
+    {
+        for( int value = 0; value < 256; value++ )
+        {
+            TO_LINEAR[value]  = (float)Math.pow( value / 255.0, GAMMA );
+            THRESHOLDS[value] = TO_LINEAR[value];
+        }
+        THRESHOLDS[256] = Double.POSITIVE_INFINITY;
+
+        int encoded = 0;
+        for( int step = 0; step <= INVERSE_STEPS; step++ )
+        {
+            double linear = (double)step / INVERSE_STEPS;
+            while( linear >= THRESHOLDS[ encoded + 1 ] )
+                encoded++;
+            INVERSE[step] = (byte)encoded;
+        }
+    }
+
+    /**
+     * Method to convert an encoded color value to a linear value
+     * @param value The encoded value, from 0 to 255
+     * @return float The linear value, from 0.0 to 1.0
+     */
+    public static float toLinear( int value ) { return TO_LINEAR[ value & 0xFF ]; }
+
+    /**
+     * Method to convert a linear color value to an encoded value. The value is rounded down
+     * @param linear The linear value. Values below 0.0 give 0 and values above 1.0 give 255
+     * @return int The encoded value, from 0 to 255
+     */
+    public static int toEncoded( double linear )
+    {
+        if( !(linear > 0.0) ) return 0;
+        if( linear >= 1.0 )   return 255;
+
+        int encoded = INVERSE[ (int)(linear * INVERSE_STEPS) ] & 0xFF;
+        while( linear >= THRESHOLDS[ encoded + 1 ] )
+            encoded++;
+
+        return encoded;
+    }
+
+    /**
+     * Method to find the linear luminance (brightness) of a color
+     * @param rgb The color, as a packed RGB int. The alpha bits are ignored
+     * @return float The luminance, from 0.0 to 1.0
+     */
+    public static float luminance( int rgb )
+    {
+        return (float)( RED_LUMINANCE   * TO_LINEAR[ (rgb >> 16) & 0xFF ] +
+                        GREEN_LUMINANCE * TO_LINEAR[ (rgb >> 8) & 0xFF ] +
+                        BLUE_LUMINANCE  * TO_LINEAR[ rgb & 0xFF ] );
+    }
+
+    /**
+     * Method to find the gray level with the same luminance as a color
+     * @param rgb The color, as a packed RGB int. The alpha bits are ignored
+     * @return int The gray level, from 0 to 255
+     */
+    public static int toGrayLevel( int rgb ) { return toEncoded( luminance( rgb ) ); }
+
+    /**
+     * Method to convert a color to the gray with the same luminance
+     * @param argb The color, as a packed ARGB int
+     * @return int The gray color, as a packed ARGB int with the same alpha
+     */
+    public static int toGray( int argb )
+    {
+        int grayLevel = toGrayLevel( argb );
+        return (argb & 0xFF000000) | (grayLevel << 16) | (grayLevel << 8) | grayLevel;
+    }
+}
@@ -0,0 +1,265 @@
+import java.util.Arrays;
+
+/**
+ * A class that finds the connected components (islands) of a picture: the groups of
+ * pixels of one color that touch each other.
+ *
+ * Labeling takes two passes over the picture, top to bottom:
+ *
+ *     1) Each pixel of the color is given the smallest label of the neighbors that have
+ *        already been visited (left and up, and the two upper diagonals if diagonals
+ *        count), or a new label if it has none. If neighbors have different labels,
+ *        those labels are joined in a union-find forest, because they are the same
+ *        component.
+ *     2) Each label is replaced with the root of its tree, and the roots are numbered
+ *        1, 2, 3, ... in the order their first pixel is found. The area, bounding box,
+ *        and centroid of each component are added up in the same pass.
+ *
+ * Every pixel is visited twice, no matter how big the components or the picture are,
+ * and nothing is recursive, so large components cannot overflow the stack.
+ *
+ *     ComponentLabeler.Components islands = ComponentLabeler.label( bw, false, true );
+ *     for( int label = 1; label <= islands.getCount(); label++ )
+ *         SOPln( label + ": " + islands.getArea( label ) + " pixels" );
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class ComponentLabeler
+{
+    /** Tells whether a pixel is the color being labeled */
+    private interface PixelTest
+    {
+        boolean test( int col, int row );
+    }
+
+    /**
+     * Method to label the components of one color of a BinaryImage
+     * @param bw The image
+     * @param white True to label the white pixels, false to label the black pixels
+     * @param includeDiagonals True if diagonal pixels touch (8-connectivity), false if
+     *                         only pixels above, below, left, and right touch (4-connectivity)
+     * @return Components The label of every pixel, and the size and place of every component
+     */
+    public static Components label( BinaryImage bw, boolean white, boolean includeDiagonals )
+    {
+        return label( bw.getWidth(), bw.getHeight(), (col, row) -> bw.isWhite( col, row ) == white,
+                      includeDiagonals );
+    }
+
+    /**
+     * Method to label the components of one color of a picture. The alpha of the pixels is not compared
+     * @param pixels The pixels of the picture
+     * @param rgb The color of the pixels to label, as a packed RGB int
+     * @param includeDiagonals True if diagonal pixels touch (8-connectivity), false if
+     *                         only pixels above, below, left, and right touch (4-connectivity)
+     * @return Components The label of every pixel, and the size and place of every component
+     */
+    public static Components label( PixelRaster pixels, int rgb, boolean includeDiagonals )
+    {
+        int color = rgb & 0xFFFFFF;
+        return label( pixels.getWidth(), pixels.getHeight(),
+                      (col, row) -> (pixels.get( col, row ) & 0xFFFFFF) == color, includeDiagonals );
+    }
+
+    /**
+     * Method to label the components of the pixels that pass a test
+     * @param width The width of the picture
+     * @param height The height of the picture
+     * @param inComponent The test of whether a pixel is the color being labeled
+     * @param includeDiagonals True for 8-connectivity, false for 4-connectivity
+     * @return Components The label of every pixel, and the size and place of every component
+     */
+    private static Components label( int width, int height, PixelTest inComponent, boolean includeDiagonals )
+    {
+        int[] labels = new int[ width * height ];
+
+        //Pass 1: give each pixel a temporary label, and join the labels of touching pixels
+        int[] parent = new int[ 64 ];
+        int next = 1; //label 0 is the background
+        for( int row = 0, index = 0; row < height; row++ )
+        {
+            for( int col = 0; col < width; col++, index++ )
+            {
+                if( !inComponent.test( col, row ) ) continue;
+
+                int left     = col > 0 ? labels[ index - 1 ] : 0;
+                int up       = row > 0 ? labels[ index - width ] : 0;
+                int upLeft   = includeDiagonals && col > 0 && row > 0 ? labels[ index - width - 1 ] : 0;
+                int upRight  = includeDiagonals && col < width - 1 && row > 0 ? labels[ index - width + 1 ] : 0;
+
+                int label = smallest( smallest( left, up ), smallest( upLeft, upRight ) );
+                if( label == 0 )
+                {
+                    if( next == parent.length )
+                        parent = Arrays.copyOf( parent, parent.length * 2 );
+                    parent[next] = next;
+                    label = next++;
+                }
+                else
+                {
+                    if( left    != 0 ) union( parent, label, left    );
+                    if( up      != 0 ) union( parent, label, up      );
+                    if( upLeft  != 0 ) union( parent, label, upLeft  );
+                    if( upRight != 0 ) union( parent, label, upRight );
+                }
+                labels[index] = label;
+            }
+        }
+
+        //Number the roots in the order they were found. Roots are always the smallest label of their tree
+        int[] finalLabel = new int[ next ];
+        int count = 0;
+        for( int label = 1; label < next; label++ )
+            finalLabel[label] = find( parent, label ) == label ? ++count : finalLabel[ find( parent, label ) ];
+
+        //Pass 2: give each pixel its final label, and add up the area, bounding box, and centroid
+        Components components = new Components( width, height, labels, count );
+        for( int row = 0, index = 0; row < height; row++ )
+        {
+            for( int col = 0; col < width; col++, index++ )
+            {
+                if( labels[index] == 0 ) continue;
+
+                int label = finalLabel[ labels[index] ];
+                labels[index] = label;
+                components.add( label, col, row );
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Method to get the smaller of two labels that are not 0
+     * @param a A label, or 0 for none
+     * @param b A label, or 0 for none
+     * @return int The smaller label, or 0 if both are 0
+     */
+    private static int smallest( int a, int b )
+    {
+        if( a == 0 ) return b;
+        if( b == 0 ) return a;
+        return Math.min( a, b );
+    }
+
+    /**
+     * Method to find the root of a label's tree. Every label passed on the way points to
+     * its grandparent afterwards, so the trees stay flat
+     * @param parent The parent of each label
+     * @param label The label
+     * @return int The root label
+     */
+    private static int find( int[] parent, int label )
+    {
+        while( parent[label] != label )
+        {
+            parent[label] = parent[ parent[label] ];
+            label = parent[label];
+        }
+
+        return label;
+    }
+
+    /**
+     * Method to join the trees of two labels. The smaller root becomes the root of both
+     * @param parent The parent of each label
+     * @param a A label
+     * @param b Another label
+     */
+    private static void union( int[] parent, int a, int b )
+    {
+        int rootA = find( parent, a );
+        int rootB = find( parent, b );
+        if( rootA < rootB )      parent[rootB] = rootA;
+        else if( rootB < rootA ) parent[rootA] = rootB;
+    }
+
+    /**
+     * The result of labeling a picture. Components are numbered 1 to getCount(), in the
+     * order their first pixel is found going across each row, top to bottom. Pixels that are
+     * not in a component have the label 0
+     */
+    public static class Components
+    {
+        private final int width;
+        private final int height;
+        private final int[] labels;
+        private final int count;
+        private final int[] area;
+        private final int[] minCol, minRow, maxCol, maxRow;
+        private final long[] sumCol, sumRow;
+
+        private Components( int width, int height, int[] labels, int count )
+        {
+            this.width  = width;
+            this.height = height;
+            this.labels = labels;
+            this.count  = count;
+            this.area   = new int[ count + 1 ];
+            this.minCol = new int[ count + 1 ];
+            this.minRow = new int[ count + 1 ];
+            this.maxCol = new int[ count + 1 ];
+            this.maxRow = new int[ count + 1 ];
+            this.sumCol = new long[ count + 1 ];
+            this.sumRow = new long[ count + 1 ];
+            Arrays.fill( minCol, Integer.MAX_VALUE );
+            Arrays.fill( minRow, Integer.MAX_VALUE );
+            Arrays.fill( maxCol, -1 );
+            Arrays.fill( maxRow, -1 );
+        }
+
+        /**
+         * Method that adds a pixel to a component
+         * @param label The label of the component
+         * @param col The column (x) of the pixel
+         * @param row The row (y) of the pixel
+         */
+        private void add( int label, int col, int row )
+        {
+            area[label]++;
+            sumCol[label] += col;
+            sumRow[label] += row;
+            if( col < minCol[label] ) minCol[label] = col;
+            if( col > maxCol[label] ) maxCol[label] = col;
+            if( row < minRow[label] ) minRow[label] = row;
+            if( row > maxRow[label] ) maxRow[label] = row;
+        }
+
+        /** @return int The width of the picture */
+        public int getWidth()  { return width;  }
+        /** @return int The height of the picture */
+        public int getHeight() { return height; }
+        /** @return int The number of components */
+        public int getCount()  { return count;  }
+
+        /**
+         * Method to get the labels of every pixel
+         * @return int[] The label of the pixel at (col, row) is at index row * getWidth() + col
+         */
+        public int[] getLabels() { return labels; }
+
+        /**
+         * Method to get the label of a pixel
+         * @param col The column (x) of the pixel
+         * @param row The row (y) of the pixel
+         * @return int The label of the component of the pixel, or 0 if it is not in a component
+         */
+        public int getLabel( int col, int row ) { return labels[ row * width + col ]; }
+
+        /** @param label The label of a component @return int The number of pixels in the component */
+        public int getArea( int label )   { return area[label];   }
+        /** @param label The label of a component @return int The leftmost column of the component */
+        public int getMinCol( int label ) { return minCol[label]; }
+        /** @param label The label of a component @return int The topmost row of the component */
+        public int getMinRow( int label ) { return minRow[label]; }
+        /** @param label The label of a component @return int The rightmost column of the component */
+        public int getMaxCol( int label ) { return maxCol[label]; }
+        /** @param label The label of a component @return int The bottommost row of the component */
+        public int getMaxRow( int label ) { return maxRow[label]; }
+
+        /** @param label The label of a component @return double The average column (x) of the pixels of the component */
+        public double getCentroidCol( int label ) { return (double)sumCol[label] / area[label]; }
+        /** @param label The label of a component @return double The average row (y) of the pixels of the component */
+        public double getCentroidRow( int label ) { return (double)sumRow[label] / area[label]; }
+    }
+}
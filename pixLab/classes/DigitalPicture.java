@@ -26,6 +26,7 @@ public interface DigitalPicture
   public Pixel getPixel(int x, int y); // get the pixel information as an object
   public Pixel[] getPixels(); // get all pixels in row-major order
   public Pixel[][] getPixels2D(); // get 2-D array of pixels in row-major order
+  public PixelRaster getPixelRaster(); // get the packed ARGB ints of the pixels in row-major order
   public void load(Image image); // load the image into the picture
   public boolean load(String fileName); // load the picture from a file
   public void show(); // show the picture 
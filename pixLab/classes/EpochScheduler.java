@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A class that decides the order that training samples are used in.
+ *
+ * Each epoch is one pass over every sample, in a shuffled order. The shuffles come
+ * from a Random made with the given seed, so two schedulers made with the same
+ * number of samples, epochs, and seed give the same orders, and a training run can
+ * be repeated exactly. The samples are only referred to by their index (0 to
+ * getSampleCount() - 1), so nothing has to be moved or renamed to mark a sample as
+ * used.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class EpochScheduler
+{
+    private final int sampleCount;
+    private final int epochs;
+    private final long seed;
+    private final Random random;
+    private final int[] order;
+    private int epoch = 0;
+
+    /**
+     * Creates a scheduler
+     * @param sampleCount The number of samples
+     * @param epochs The number of passes over the samples
+     * @param seed The seed of the shuffles
+     * @throws IllegalArgumentException if sampleCount or epochs is negative
+     */
+    public EpochScheduler( int sampleCount, int epochs, long seed )
+    {
+        if( sampleCount < 0 ) throw new IllegalArgumentException( "Sample count cannot be negative: " + sampleCount );
+        if( epochs < 0 )      throw new IllegalArgumentException( "Epochs cannot be negative: " + epochs );
+
+        this.sampleCount = sampleCount;
+        this.epochs      = epochs;
+        this.seed        = seed;
+        this.random      = new Random( seed );
+        this.order       = new int[ sampleCount ];
+        for( int index = 0; index < sampleCount; index++ )
+            order[index] = index;
+    }
+
+    /** @return int The number of samples */
+    public int getSampleCount() { return sampleCount; }
+    /** @return int The number of passes over the samples */
+    public int getEpochs()      { return epochs;      }
+    /** @return long The seed of the shuffles */
+    public long getSeed()       { return seed;        }
+    /** @return int The number of epochs returned by nextEpoch() so far */
+    public int getEpoch()       { return epoch;       }
+
+    /**
+     * Method that determines whether there are more epochs
+     * @return boolean True if nextEpoch() will return another order, false otherwise
+     */
+    public boolean hasNextEpoch() { return epoch < epochs; }
+
+    /**
+     * Method to get the order of the samples for the next epoch. Each epoch shuffles
+     * the order of the last epoch with a Fisher-Yates shuffle
+     * @return int[] The index of every sample once, in the order to use them. This array
+     *               is reused by the next call to nextEpoch()
+     * @throws NoSuchElementException if every epoch has been returned
+     */
+    public int[] nextEpoch()
+    {
+        if( !hasNextEpoch() ) throw new NoSuchElementException( "All " + epochs + " epochs have been scheduled" );
+
+        for( int index = sampleCount - 1; index > 0; index-- )
+        {
+            int swap = random.nextInt( index + 1 );
+            int temp = order[index];
+            order[index] = order[swap];
+            order[swap]  = temp;
+        }
+
+        epoch++;
+        return order;
+    }
+
+    /**
+     * Method to list the samples of every remaining epoch, one epoch after another
+     * @param samples The samples, which must have getSampleCount() elements
+     * @param perEpoch The most samples to use from each epoch
+     * @return List<T> The samples in the order to use them
+     * @throws IllegalArgumentException if the number of samples is not getSampleCount()
+     */
+    public <T> List<T> schedule( List<T> samples, int perEpoch )
+    {
+        if( samples.size() != sampleCount )
+            throw new IllegalArgumentException( "Expected " + sampleCount + " samples, not " + samples.size() );
+
+        int count = Math.max( 0, Math.min( perEpoch, sampleCount ) );
+        ArrayList<T> scheduled = new ArrayList<T>( count * (epochs - epoch) );
+        while( hasNextEpoch() )
+        {
+            int[] epochOrder = nextEpoch();
+            for( int rep = 0; rep < count; rep++ )
+                scheduled.add( samples.get( epochOrder[rep] ) );
+        }
+
+        return scheduled;
+    }
+}
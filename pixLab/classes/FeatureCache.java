@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A class that saves feature values on disk, so that an image that has already had its
+ * features grabbed does not have to be loaded again.
+ *
+ * Each value is found by three keys:
+ *
+ *     content hash  - a hash of the bytes of the image file (see hashContent(...)), so
+ *                     the same image is found even if it is renamed or moved
+ *     chain hash    - a hash of the name of the preprocessing steps (see hashName(...)),
+ *                     so values made with different preprocessing are kept apart
+ *     feature hash  - a hash of the name and version of the feature (see
+ *                     FeatureRegistry.getCacheKey(..)), so that values stay valid when
+ *                     features are added, removed, or reordered, but not when a feature
+ *                     is changed and its version is raised
+ *
+ * The file is a 16 byte header followed by fixed size records, and is memory-mapped,
+ * so reading and adding values does not go through a stream:
+ *
+ *     header: int magic | int version | long record count
+ *     record: long content hash | long chain hash | long feature hash | double value
+ *
+ * When a cache is opened, the records are read once to build an index in memory. New
+ * records are written to the end of the mapped file, and the record count in the
+ * header is changed after the record, so a record that is only half written is never
+ * used. The mapped file doubles in size when it is full.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class FeatureCache
+{
+    private static final int MAGIC            = 0x46434348; //"FCCH"
+    private static final int VERSION          = 1;
+    private static final int HEADER_BYTES     = 16;
+    private static final int RECORD_BYTES     = 32;
+    private static final int COUNT_OFFSET     = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final HashMap<Key, Integer> index = new HashMap<Key, Integer>();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    /**
+     * Opens a cache file, creating it if it does not exist
+     * @param path The cache file
+     * @throws IOException if the file cannot be opened, or is not a cache file of this version
+     */
+    public FeatureCache( Path path ) throws IOException
+    {
+        this.path    = path;
+        this.channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                         StandardOpenOption.WRITE );
+        try
+        {
+            long size = channel.size();
+            int stored = 0;
+            if( size >= HEADER_BYTES )
+            {
+                ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+                channel.read( header, 0 );
+                header.flip();
+                if( header.getInt() != MAGIC || header.getInt() != VERSION )
+                    throw new IOException( path + " is not a feature cache file of version " + VERSION );
+
+                long records = header.getLong();
+                if( records < 0 || HEADER_BYTES + records * RECORD_BYTES > size )
+                    throw new IOException( path + " says it has " + records + " records, but is too short" );
+                stored = (int)records;
+            }
+
+            map( Math.max( INITIAL_CAPACITY, stored ) );
+            buffer.putInt( 0, MAGIC );
+            buffer.putInt( 4, VERSION );
+            count = stored;
+            buffer.putLong( COUNT_OFFSET, count );
+
+            for( int record = 0; record < count; record++ )
+            {
+                int offset = HEADER_BYTES + record * RECORD_BYTES;
+                index.put( new Key( buffer.getLong( offset ), buffer.getLong( offset + 8 ),
+                                    buffer.getLong( offset + 16 ) ), record );
+            }
+        }
+        catch( IOException e )
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method that maps the file with room for more records. The file grows to fit
+     * @param records The number of records that the mapped file has room for
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map( int records ) throws IOException
+    {
+        buffer   = channel.map( FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long)records * RECORD_BYTES );
+        capacity = records;
+    }
+
+    /** @return Path The cache file */
+    public Path getPath()        { return path;  }
+    /** @return int The number of values in the cache */
+    public synchronized int size() { return count; }
+
+    /**
+     * Method to find cached feature values of an image
+     * @param contentHash The hash of the image file, from hashContent(...)
+     * @param chainHash The hash of the preprocessing steps
+     * @param featureHashes The hash of the name of each feature, indexed by feature id
+     * @param values The feature values, indexed by feature id. Values that are found are put here
+     * @param found Set to true for each feature id whose value is found
+     * @return int The number of values found
+     */
+    public synchronized int lookup( long contentHash, long chainHash, long[] featureHashes,
+                                    double[] values, boolean[] found )
+    {
+        int hits = 0;
+        for( int id = 0; id < featureHashes.length; id++ )
+        {
+            Integer record = index.get( new Key( contentHash, chainHash, featureHashes[id] ) );
+            found[id] = record != null;
+            if( record == null ) continue;
+
+            values[id] = buffer.getDouble( HEADER_BYTES + record * RECORD_BYTES + 24 );
+            hits++;
+        }
+
+        return hits;
+    }
+
+    /**
+     * Method to add a feature value to the cache, or to change it if it is already there
+     * @param contentHash The hash of the image file, from hashContent(...)
+     * @param chainHash The hash of the preprocessing steps
+     * @param featureHash The hash of the name of the feature
+     * @param value The feature value
+     * @throws IOException if the file cannot be made bigger
+     */
+    public synchronized void put( long contentHash, long chainHash, long featureHash, double value ) throws IOException
+    {
+        Key key = new Key( contentHash, chainHash, featureHash );
+        Integer record = index.get( key );
+        if( record != null )
+        {
+            buffer.putDouble( HEADER_BYTES + record * RECORD_BYTES + 24, value );
+            return;
+        }
+
+        if( count == capacity )
+        {
+            buffer.force();
+            map( capacity * 2 );
+        }
+
+        int offset = HEADER_BYTES + count * RECORD_BYTES;
+        buffer.putLong( offset, contentHash );
+        buffer.putLong( offset + 8, chainHash );
+        buffer.putLong( offset + 16, featureHash );
+        buffer.putDouble( offset + 24, value );
+        index.put( key, count );
+
+        count++;
+        buffer.putLong( COUNT_OFFSET, count );
+    }
+
+    /**
+     * Method that writes the mapped file to disk and closes it
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void close() throws IOException
+    {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Method to hash the bytes of a file. This is the first 64 bits of the SHA-256 hash
+     * of the file folded together with the rest, so two different images will almost
+     * never have the same hash
+     * @param file The file
+     * @return long The hash of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static long hashContent( Path file ) throws IOException
+    {
+        MessageDigest digest = sha256();
+        byte[] block = new byte[ 8192 ];
+        try( InputStream in = Files.newInputStream( file ) )
+        {
+            for( int read = in.read( block ); read != -1; read = in.read( block ) )
+                digest.update( block, 0, read );
+        }
+
+        ByteBuffer hash = ByteBuffer.wrap( digest.digest() );
+        return hash.getLong() ^ hash.getLong() ^ hash.getLong() ^ hash.getLong();
+    }
+
+    /** @return MessageDigest A new SHA-256 digest */
+    private static MessageDigest sha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-256" );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "Every Java platform must support SHA-256", e );
+        }
+    }
+
+    /**
+     * Method to hash a name, such as the name of a feature or of the preprocessing steps.
+     * This is the 64 bit FNV-1a hash of the UTF-8 bytes of the name, which does not change
+     * between runs of the program
+     * @param name The name
+     * @return long The hash of the name
+     */
+    public static long hashName( String name )
+    {
+        long hash = 0xcbf29ce484222325L;
+        for( byte b : name.getBytes( StandardCharsets.UTF_8 ) )
+        {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Method to hash a list of names
+     * @param names The names
+     * @return long[] The hash of each name, in the same order
+     */
+    public static long[] hashNames( List<String> names )
+    {
+        long[] hashes = new long[ names.size() ];
+        for( int index = 0; index < hashes.length; index++ )
+            hashes[index] = hashName( names.get( index ) );
+
+        return hashes;
+    }
+
+    /** The three keys of one cached value */
+    private static final class Key
+    {
+        private final long contentHash;
+        private final long chainHash;
+        private final long featureHash;
+
+        public Key( long contentHash, long chainHash, long featureHash )
+        {
+            this.contentHash = contentHash;
+            this.chainHash   = chainHash;
+            this.featureHash = featureHash;
+        }
+
+        public boolean equals( Object other )
+        {
+            if( !(other instanceof Key) ) return false;
+
+            Key key = (Key) other;
+            return contentHash == key.contentHash && chainHash == key.chainHash && featureHash == key.featureHash;
+        }
+
+        public int hashCode()
+        {
+            long mixed = contentHash * 31 * 31 + chainHash * 31 + featureHash;
+            return (int)(mixed ^ (mixed >>> 32));
+        }
+    }
+}
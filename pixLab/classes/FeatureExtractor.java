@@ -0,0 +1,21 @@
+/**
+ * Interface to describe a feature of a black and white picture. A feature
+ * looks at the row and column summaries of a picture and returns one number,
+ * which is usually a ratio between 0 and 1.
+ *
+ * Features are added to a FeatureRegistry with a name, for example
+ *
+ *     registry.register( "whiteWidth", this::whiteWidth );
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+@FunctionalInterface
+public interface FeatureExtractor
+{
+    /**
+     * Method that finds the value of this feature for a picture
+     * @param summary The row and column summaries of the picture
+     * @return double The value of the feature
+     */
+    public double extract( FeatureSummary summary );
+}
@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A class that keeps an ordered list of the features used by the detector.
+ *
+ * Each feature is registered once, with a name and a FeatureExtractor. The
+ * order that features are registered in gives each feature its id (0, 1, 2, ...),
+ * which is also its index in the double[] returned by extractAll(..) and the
+ * line that it is on in the weights file. The names are the first word of each
+ * line of the weights file.
+ *
+ * Each feature also has a version, which is part of the key of its values in the
+ * FeatureCache (see getCacheKey(..)). Saved values are only used while the version
+ * is the same, so the version MUST be raised whenever the method of a feature is
+ * changed. Otherwise the values saved before the change keep being used.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class FeatureRegistry
+{
+    private final ArrayList<String> names = new ArrayList<String>();
+    private final ArrayList<FeatureExtractor> extractors = new ArrayList<FeatureExtractor>();
+    private final ArrayList<Integer> versions = new ArrayList<Integer>();
+    private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+
+    /**
+     * Method to add a feature to the end of the registry, at version 1
+     * @param name The name of the feature. Names cannot have spaces, since they are
+     *             saved as the first word of a line in the weights file
+     * @param extractor The feature
+     * @return int The id of the feature
+     * @throws IllegalArgumentException if the name has a space or is already registered
+     */
+    public int register( String name, FeatureExtractor extractor )
+    {
+        return register( name, 1, extractor );
+    }
+
+    /**
+     * Method to add a feature to the end of the registry
+     * @param name The name of the feature. Names cannot have spaces, since they are
+     *             saved as the first word of a line in the weights file
+     * @param version The version of the feature, which must be raised whenever the
+     *                feature is changed, so that values saved before are not used
+     * @param extractor The feature
+     * @return int The id of the feature
+     * @throws IllegalArgumentException if the name has a space or is already registered,
+     *                                  or the version is less than 1
+     */
+    public int register( String name, int version, FeatureExtractor extractor )
+    {
+        if( name.isEmpty() || name.contains(" ") )
+            throw new IllegalArgumentException( "Feature name \"" + name + "\" cannot be empty or have spaces" );
+        if( ids.containsKey( name ) )
+            throw new IllegalArgumentException( "Feature " + name + " is already registered" );
+        if( version < 1 )
+            throw new IllegalArgumentException( "The version of feature " + name + " must be at least 1, not " + version );
+
+        int id = names.size();
+        names.add( name );
+        extractors.add( extractor );
+        versions.add( version );
+        ids.put( name, id );
+
+        return id;
+    }
+
+    /** @return int The number of features registered */
+    public int size() { return names.size(); }
+
+    /**
+     * Method to get the name of a feature
+     * @param id The id of the feature
+     * @return String The name of the feature
+     */
+    public String getName( int id ) { return names.get( id ); }
+
+    /**
+     * Method to get the id of a feature
+     * @param name The name of the feature
+     * @return int The id of the feature, or -1 if there is no feature with this name
+     */
+    public int getId( String name )
+    {
+        Integer id = ids.get( name );
+        return id == null ? -1 : id;
+    }
+
+    /** @return List<String> The names of the features, in order of their ids */
+    public List<String> getNames() { return Collections.unmodifiableList( names ); }
+
+    /**
+     * Method to get the version of a feature
+     * @param id The id of the feature
+     * @return int The version of the feature
+     */
+    public int getVersion( int id ) { return versions.get( id ); }
+
+    /**
+     * Method to get the key of a feature in the FeatureCache, which is its name, followed
+     * by "#" and its version if the version is not 1 (so values saved before features had
+     * versions are still used)
+     * @param id The id of the feature
+     * @return String The key of the feature
+     */
+    public String getCacheKey( int id )
+    {
+        int version = versions.get( id );
+        return version == 1 ? names.get( id ) : names.get( id ) + "#" + version;
+    }
+
+    /** @return List<String> The FeatureCache keys of the features, in order of their ids */
+    public List<String> getCacheKeys()
+    {
+        ArrayList<String> keys = new ArrayList<String>();
+        for( int id = 0; id < names.size(); id++ )
+            keys.add( getCacheKey( id ) );
+
+        return keys;
+    }
+
+    /**
+     * Method to get one feature
+     * @param id The id of the feature
+     * @return FeatureExtractor The feature
+     */
+    public FeatureExtractor getExtractor( int id ) { return extractors.get( id ); }
+
+    /**
+     * Method to find the value of every feature for a picture
+     * @param summary The row and column summaries of the picture
+     * @return double[] The value of each feature, indexed by id
+     */
+    public double[] extractAll( FeatureSummary summary )
+    {
+        double[] values = new double[ extractors.size() ];
+        for( int id = 0; id < values.length; id++ )
+            values[id] = extractors.get( id ).extract( summary );
+
+        return values;
+    }
+}
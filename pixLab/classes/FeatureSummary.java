@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+/**
+ * A class that holds the row and column projections of a BinaryImage.
+ *
+ * All of the summaries are built in one row-major pass over the words of the
+ * image, so the features in MLDetector can be found from these arrays instead
+ * of each feature scanning every pixel again (and some of them column by column,
+ * which jumps through memory). For each row and each column, this keeps:
+ *
+ *     - the number of white pixels
+ *     - the index of the first white pixel (-1 if there are none)
+ *     - the index of the last white pixel  (-1 if there are none)
+ *
+ * as well as the total number of white pixels and the first and last rows and
+ * columns that have any white pixels.
+ *
+ * The arrays returned by the getters are not copied, so they should not be changed.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class FeatureSummary
+{
+    private final BinaryImage bw;
+    private final int width;
+    private final int height;
+    private final int totalWhite;
+
+    private final int[] rowCounts;
+    private final int[] rowFirst;
+    private final int[] rowLast;
+    private final int[] colCounts;
+    private final int[] colFirst;
+    private final int[] colLast;
+
+    private final int firstRow, lastRow;
+    private final int firstCol, lastCol;
+
+    /* Built the first time a region feature asks for it */
+    private IntegralImage integral;
+
+    /**
+     * Builds the summaries of a black and white image in one pass
+     * @param bw The image to summarize
+     */
+    public FeatureSummary( BinaryImage bw )
+    {
+        this.bw     = bw;
+        this.width  = bw.getWidth();
+        this.height = bw.getHeight();
+
+        rowCounts = new int[ height ];
+        rowFirst  = new int[ height ];
+        rowLast   = new int[ height ];
+        colCounts = new int[ width ];
+        colFirst  = new int[ width ];
+        colLast   = new int[ width ];
+        Arrays.fill( colFirst, -1 );
+        Arrays.fill( colLast,  -1 );
+
+        long[] words = bw.getWords();
+        int wordsPerRow = bw.getWordsPerRow();
+        int total = 0;
+        int first = -1, last = -1;
+        int minCol = width, maxCol = -1;
+        for( int row = 0; row < height; row++ )
+        {
+            int start = row * wordsPerRow;
+            int count = 0;
+            int rowFirstCol = -1;
+            int rowLastCol  = -1;
+            for( int word = 0; word < wordsPerRow; word++ )
+            {
+                long bits = words[ start + word ];
+                if( bits == 0 ) continue;
+
+                count += Long.bitCount( bits );
+                if( rowFirstCol == -1 )
+                    rowFirstCol = (word << 6) + Long.numberOfTrailingZeros( bits );
+                rowLastCol = (word << 6) + 63 - Long.numberOfLeadingZeros( bits );
+
+                //Visit only the white pixels to update the column summaries
+                while( bits != 0 )
+                {
+                    int col = (word << 6) + Long.numberOfTrailingZeros( bits );
+                    if( colFirst[col] == -1 ) colFirst[col] = row;
+                    colLast[col] = row;
+                    colCounts[col]++;
+                    bits &= bits - 1;
+                }
+            }
+
+            rowCounts[row] = count;
+            rowFirst[row]  = rowFirstCol;
+            rowLast[row]   = rowLastCol;
+            if( count > 0 )
+            {
+                if( first == -1 ) first = row;
+                last = row;
+                if( rowFirstCol < minCol ) minCol = rowFirstCol;
+                if( rowLastCol  > maxCol ) maxCol = rowLastCol;
+                total += count;
+            }
+        }
+
+        this.totalWhite = total;
+        this.firstRow   = first;
+        this.lastRow    = last;
+        this.firstCol   = maxCol == -1 ? -1 : minCol;
+        this.lastCol    = maxCol;
+    }
+
+    /** @return BinaryImage The image that was summarized */
+    public BinaryImage getBinaryImage() { return bw;         }
+    /** @return int The width of the image in pixels */
+    public int getWidth()               { return width;      }
+    /** @return int The height of the image in pixels */
+    public int getHeight()              { return height;     }
+    /** @return int The total number of white pixels */
+    public int getTotalWhite()          { return totalWhite; }
+
+    /** @return int[] The number of white pixels in each row */
+    public int[] getRowCounts()    { return rowCounts; }
+    /** @return int[] The column of the first white pixel of each row, or -1 */
+    public int[] getRowFirst()     { return rowFirst;  }
+    /** @return int[] The column of the last white pixel of each row, or -1 */
+    public int[] getRowLast()      { return rowLast;   }
+    /** @return int[] The number of white pixels in each column */
+    public int[] getColCounts()    { return colCounts; }
+    /** @return int[] The row of the first white pixel of each column, or -1 */
+    public int[] getColFirst()     { return colFirst;  }
+    /** @return int[] The row of the last white pixel of each column, or -1 */
+    public int[] getColLast()      { return colLast;   }
+
+    /**
+     * Method to get the integral image of the image, so that region features (see
+     * HaarFeatures) can find the white pixels in any rectangle with a few lookups. It is
+     * built the first time it is asked for, and shared by every feature after that
+     * @return IntegralImage The integral image, where white pixels are 1
+     */
+    public IntegralImage getIntegralImage()
+    {
+        if( integral == null ) integral = new IntegralImage( bw );
+        return integral;
+    }
+
+    /** @return int The first row with a white pixel, or -1 if there are no white pixels */
+    public int getFirstWhiteRow()    { return firstRow; }
+    /** @return int The last row with a white pixel, or -1 if there are no white pixels */
+    public int getLastWhiteRow()     { return lastRow;  }
+    /** @return int The first column with a white pixel, or -1 if there are no white pixels */
+    public int getFirstWhiteColumn() { return firstCol; }
+    /** @return int The last column with a white pixel, or -1 if there are no white pixels */
+    public int getLastWhiteColumn()  { return lastCol;  }
+
+    /**
+     * Method to find the largest value of an array
+     * @param values The array
+     * @return int The largest value, or 0 if the array is empty
+     */
+    public static int max( int[] values )
+    {
+        int max = 0;
+        for( int value : values )
+            if( value > max ) max = value;
+
+        return max;
+    }
+}
@@ -3,6 +3,8 @@ import javax.swing.JFrame;
 import java.util.Properties;
 import java.io.*;
 import java.net.*;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
   
 /**
  * A class to make working with a file chooser easier
@@ -14,10 +16,23 @@ import java.net.*;
 public class FileChooser 
 {
   
+  /////////////////////// fields //////////////////////////////
+  
+  /**
+   * the media directory, which is looked for the first time it is 
+   * asked for and then kept, since it does not move
+   */
+  private static String mediaDirectory;
+  
+  /** true once the media directory has been looked for */
+  private static boolean mediaDirectorySearched = false;
+  
   /////////////////////// methods /////////////////////////////
   
   /**
-   * Method to get the full path for the passed file name
+   * Method to get the full path for the passed file name.  The
+   * file is looked up in the FileIndex of the media directory, so
+   * the directory is not searched again for every file
    * @param fileName the name of a file
    * @return the full path for the file
    */
@@ -25,7 +40,16 @@ public class FileChooser
   {
     String path = null;
     String directory = getMediaDirectory();
-    boolean done = true;
+    
+    // look the file up in the index of the media directory
+    if (directory != null) {
+      try {
+        Path found = FileIndex.of(new File(directory).toPath()).resolve(fileName);
+        if (found != null)
+          return found.toString();
+      } catch (InvalidPathException ex) {
+      }
+    }
     
     // get the full path
     path = directory + fileName;
@@ -97,12 +121,16 @@ public class FileChooser
    * Method to get the directory for the media
    * @return the media directory
    */
-  public static String getMediaDirectory() 
+  public static synchronized String getMediaDirectory() 
   {
     String directory = null;
-    boolean done = false;
     File dirFile = null;
     
+    // use the directory looked for before, even if it was not found
+    if (mediaDirectorySearched)
+      return mediaDirectory;
+    mediaDirectorySearched = true;
+    
     // try to find the images directory
       try {
         // get the URL for where we loaded this class 
@@ -114,11 +142,13 @@ public class FileChooser
         dirFile = new File(directory);
         if (dirFile.exists()) {
           //setMediaPath(directory);
+          mediaDirectory = directory;
           return directory;
         }
       } catch (Exception ex) {
       }
       
+      mediaDirectory = directory;
       return directory;
   }
   
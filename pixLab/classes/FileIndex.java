@@ -0,0 +1,243 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A class that keeps the names of the files in a folder, so that finding a file by its
+ * name (such as "Weights.txt", which is read several times for every training image) does
+ * not list the folder and look through every file each time.
+ *
+ * The folder is listed the first time it is used. After that, a WatchService tells the
+ * index when files are added or removed, so the index stays up to date without listing the
+ * folder again. The watch is told about changes a little after they happen, so a name that
+ * is not in the index is also checked on disk before resolve(...) says it does not exist.
+ * If the folder cannot be watched, it is listed again every time it is used, which is what
+ * finding a file did before there was an index.
+ *
+ * There is one index for each folder, which is shared by the whole program:
+ *
+ *     Path weights = FileIndex.of( Paths.get( "." ) ).resolve( "Weights.txt" );
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class FileIndex
+{
+    /* The index of each folder, by its absolute path */
+    private static final HashMap<Path, FileIndex> indexes = new HashMap<Path, FileIndex>();
+
+    /* The folder watched by each watch key */
+    private static final HashMap<WatchKey, FileIndex> watched = new HashMap<WatchKey, FileIndex>();
+
+    /* The watch service of every folder, made the first time a folder is watched */
+    private static WatchService watcher;
+    private static boolean canWatch = true;
+
+    private final Path directory;
+    private final HashMap<String, Path> files = new HashMap<String, Path>();
+
+    /* True if the folder must be listed again before the index is used */
+    private boolean stale = true;
+
+    /* True if changes to the folder are being watched */
+    private boolean watching;
+
+    /**
+     * Creates the index of a folder. Use of(...) so that each folder has one index
+     * @param directory The folder
+     */
+    private FileIndex( Path directory )
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Method to get the index of a folder
+     * @param directory The folder. The paths of its files start with this path
+     * @return FileIndex The index, which is made the first time the folder is used
+     */
+    public static synchronized FileIndex of( Path directory )
+    {
+        Path key = directory.toAbsolutePath().normalize();
+        FileIndex index = indexes.get( key );
+        if( index == null )
+        {
+            index = new FileIndex( directory );
+            indexes.put( key, index );
+        }
+
+        return index;
+    }
+
+    /** @return Path The folder */
+    public Path getDirectory() { return directory; }
+
+    /**
+     * Method to find a file (or folder) in the folder by its name
+     * @param name The name of the file, without a path
+     * @return Path The path of the file, or null if there is no file with that name
+     */
+    public synchronized Path resolve( String name )
+    {
+        refresh();
+        Path file = files.get( name );
+        if( file != null ) return file;
+
+        //The file may have been added since the last change the watch service told about
+        Path found = directory.resolve( name );
+        if( !name.equals( String.valueOf( found.getFileName() ) ) || !Files.exists( found ) ) return null;
+
+        files.put( name, found );
+        return found;
+    }
+
+    /**
+     * Method to get every file (and folder) in the folder
+     * @return List<Path> The paths of the files, sorted
+     */
+    public synchronized List<Path> getFiles()
+    {
+        refresh();
+        ArrayList<Path> list = new ArrayList<Path>( files.values() );
+        Collections.sort( list );
+        return list;
+    }
+
+    /**
+     * Method that lists the folder if the index is not up to date, and starts watching
+     * the folder if it is not being watched yet
+     */
+    private void refresh()
+    {
+        if( !stale && watching ) return;
+
+        //The folder is watched before it is listed, so no change between the two is missed
+        if( !watching ) watching = watch( this );
+
+        files.clear();
+        File[] filesList = directory.toFile().listFiles();
+        if( filesList != null )
+            for( File file : filesList )
+                files.put( file.getName(), directory.resolve( file.getName() ) );
+
+        stale = false;
+    }
+
+    /**
+     * Method that starts watching a folder for files that are added or removed
+     * @param index The index of the folder
+     * @return boolean True if the folder is being watched, false if it cannot be
+     */
+    private static synchronized boolean watch( FileIndex index )
+    {
+        if( !canWatch ) return false;
+
+        try
+        {
+            if( watcher == null )
+            {
+                watcher = FileSystems.getDefault().newWatchService();
+                Thread thread = new Thread( FileIndex::watchLoop, "FileIndex watcher" );
+                thread.setDaemon( true ); //do not keep the program running
+                thread.start();
+            }
+        }
+        catch( IOException | UnsupportedOperationException e )
+        {
+            e.printStackTrace();
+            canWatch = false;
+            return false;
+        }
+
+        try
+        {
+            WatchKey key = index.directory.register( watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                                     StandardWatchEventKinds.ENTRY_DELETE );
+            watched.put( key, index );
+            return true;
+        }
+        catch( IOException e )
+        {
+            //The folder does not exist (yet), so it is listed again every time it is used
+            return false;
+        }
+    }
+
+    /**
+     * Method that is run by the watcher thread, which updates the index of a folder
+     * whenever files are added to or removed from it
+     */
+    private static void watchLoop()
+    {
+        while( true )
+        {
+            WatchKey key;
+            try
+            {
+                key = watcher.take();
+            }
+            catch( InterruptedException e )
+            {
+                return;
+            }
+
+            FileIndex index;
+            synchronized( FileIndex.class )
+            {
+                index = watched.get( key );
+            }
+            if( index == null ) continue;
+
+            index.update( key.pollEvents() );
+            if( !key.reset() )
+            {
+                //The folder was removed, so it is listed (and watched) again the next time it is used
+                synchronized( FileIndex.class )
+                {
+                    watched.remove( key );
+                }
+                index.unwatch();
+            }
+        }
+    }
+
+    /**
+     * Method that adds and removes the files that the watch service told about
+     * @param events The changes to the folder
+     */
+    private synchronized void update( List<WatchEvent<?>> events )
+    {
+        for( WatchEvent<?> event : events )
+        {
+            if( event.kind() == StandardWatchEventKinds.OVERFLOW )
+            {
+                stale = true; //some changes were lost, so the folder is listed again
+                continue;
+            }
+
+            String name = event.context().toString();
+            if( event.kind() == StandardWatchEventKinds.ENTRY_CREATE )
+                files.put( name, directory.resolve( name ) );
+            else
+                files.remove( name );
+        }
+    }
+
+    /**
+     * Method that marks the folder as no longer watched
+     */
+    private synchronized void unwatch()
+    {
+        watching = false;
+        stale = true;
+    }
+}
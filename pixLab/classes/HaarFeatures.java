@@ -0,0 +1,151 @@
+/**
+ * A class that makes region features for the detector: zoning features, which are the
+ * white density of each cell of an N x N grid, and Haar-like features, which are the
+ * difference between the white densities of neighboring rectangles.
+ *
+ * Every region feature reads the IntegralImage of the FeatureSummary, which is built once
+ * per picture, so each feature takes a few lookups no matter how big its region is, and
+ * hundreds of them cost about as much as one pass over the picture. Regions are given as
+ * fractions of the width and height of the picture, so the same features work for pictures
+ * of any size.
+ *
+ * Features are added to a FeatureRegistry in bulk, for example
+ *
+ *     HaarFeatures.registerZoning( registry, 4 ); //zone4_0_0 ... zone4_3_3
+ *     HaarFeatures.registerHaar( registry, 2 );   //haar2_TWO_ACROSS_0_0 ...
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class HaarFeatures
+{
+    /**
+     * The shapes of Haar-like features. Each one splits its region into equal parts and
+     * returns the white density of the first parts minus the white density of the others,
+     * which is from -1.0 to 1.0
+     */
+    public enum Shape
+    {
+        TWO_ACROSS,   //left half minus right half
+        TWO_DOWN,     //top half minus bottom half
+        THREE_ACROSS, //middle third minus the left and right thirds
+        THREE_DOWN,   //middle third minus the top and bottom thirds
+        FOUR          //top left and bottom right quarters minus top right and bottom left quarters
+    }
+
+    /**
+     * Method to make the feature of the white density of one cell of a grid
+     * @param grid The number of cells across and down
+     * @param cellCol The column of the cell, from 0 to grid - 1
+     * @param cellRow The row of the cell, from 0 to grid - 1
+     * @return FeatureExtractor The feature
+     */
+    public static FeatureExtractor zone( int grid, int cellCol, int cellRow )
+    {
+        return summary -> {
+            IntegralImage integral = summary.getIntegralImage();
+            int width  = summary.getWidth();
+            int height = summary.getHeight();
+            return integral.mean( cellCol * width / grid,        cellRow * height / grid,
+                                  (cellCol + 1) * width / grid,  (cellRow + 1) * height / grid );
+        };
+    }
+
+    /**
+     * Method to make a Haar-like feature
+     * @param shape The shape of the feature
+     * @param left The left side of the region, as a fraction of the width of the picture
+     * @param top The top of the region, as a fraction of the height of the picture
+     * @param right The right side of the region, as a fraction of the width of the picture
+     * @param bottom The bottom of the region, as a fraction of the height of the picture
+     * @return FeatureExtractor The feature
+     */
+    public static FeatureExtractor haar( Shape shape, double left, double top, double right, double bottom )
+    {
+        return summary -> {
+            int width  = summary.getWidth();
+            int height = summary.getHeight();
+            return haar( summary.getIntegralImage(), shape,
+                         (int)(left * width), (int)(top * height), (int)(right * width), (int)(bottom * height) );
+        };
+    }
+
+    /**
+     * Method to find the value of a Haar-like feature over a rectangle of pixels
+     * @param integral The integral image of the picture
+     * @param shape The shape of the feature
+     * @param fromCol The left column of the rectangle
+     * @param fromRow The top row of the rectangle
+     * @param toCol The column after the right column of the rectangle
+     * @param toRow The row after the bottom row of the rectangle
+     * @return double The value of the feature, from -1.0 to 1.0
+     */
+    public static double haar( IntegralImage integral, Shape shape, int fromCol, int fromRow, int toCol, int toRow )
+    {
+        int midCol = (fromCol + toCol) / 2;
+        int midRow = (fromRow + toRow) / 2;
+        int thirdCol1 = fromCol + (toCol - fromCol) / 3, thirdCol2 = toCol - (toCol - fromCol) / 3;
+        int thirdRow1 = fromRow + (toRow - fromRow) / 3, thirdRow2 = toRow - (toRow - fromRow) / 3;
+
+        switch( shape )
+        {
+            case TWO_ACROSS:
+                return integral.mean( fromCol, fromRow, midCol, toRow ) - integral.mean( midCol, fromRow, toCol, toRow );
+            case TWO_DOWN:
+                return integral.mean( fromCol, fromRow, toCol, midRow ) - integral.mean( fromCol, midRow, toCol, toRow );
+            case THREE_ACROSS:
+                return integral.mean( thirdCol1, fromRow, thirdCol2, toRow ) -
+                       (integral.mean( fromCol, fromRow, thirdCol1, toRow ) +
+                        integral.mean( thirdCol2, fromRow, toCol, toRow )) / 2.0;
+            case THREE_DOWN:
+                return integral.mean( fromCol, thirdRow1, toCol, thirdRow2 ) -
+                       (integral.mean( fromCol, fromRow, toCol, thirdRow1 ) +
+                        integral.mean( fromCol, thirdRow2, toCol, toRow )) / 2.0;
+            default:
+                return (integral.mean( fromCol, fromRow, midCol, midRow ) +
+                        integral.mean( midCol, midRow, toCol, toRow ) -
+                        integral.mean( midCol, fromRow, toCol, midRow ) -
+                        integral.mean( fromCol, midRow, midCol, toRow )) / 2.0;
+        }
+    }
+
+    /**
+     * Method that registers a zoning feature for every cell of a grid, named
+     * "zone[grid]_[cellCol]_[cellRow]"
+     * @param registry The registry to add the features to
+     * @param grid The number of cells across and down
+     * @return int The number of features registered
+     * @throws IllegalArgumentException if grid is less than 1
+     */
+    public static int registerZoning( FeatureRegistry registry, int grid )
+    {
+        if( grid < 1 ) throw new IllegalArgumentException( "The grid must have at least 1 cell, not " + grid );
+
+        for( int cellRow = 0; cellRow < grid; cellRow++ )
+            for( int cellCol = 0; cellCol < grid; cellCol++ )
+                registry.register( "zone" + grid + "_" + cellCol + "_" + cellRow, zone( grid, cellCol, cellRow ) );
+
+        return grid * grid;
+    }
+
+    /**
+     * Method that registers a Haar-like feature of every shape for every cell of a grid,
+     * named "haar[grid]_[shape]_[cellCol]_[cellRow]"
+     * @param registry The registry to add the features to
+     * @param grid The number of cells across and down
+     * @return int The number of features registered
+     * @throws IllegalArgumentException if grid is less than 1
+     */
+    public static int registerHaar( FeatureRegistry registry, int grid )
+    {
+        if( grid < 1 ) throw new IllegalArgumentException( "The grid must have at least 1 cell, not " + grid );
+
+        for( Shape shape : Shape.values() )
+            for( int cellRow = 0; cellRow < grid; cellRow++ )
+                for( int cellCol = 0; cellCol < grid; cellCol++ )
+                    registry.register( "haar" + grid + "_" + shape + "_" + cellCol + "_" + cellRow,
+                                       haar( shape, (double)cellCol / grid, (double)cellRow / grid,
+                                             (double)(cellCol + 1) / grid, (double)(cellRow + 1) / grid ) );
+
+        return Shape.values().length * grid * grid;
+    }
+}
@@ -0,0 +1,287 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * A class that writes images to files on background threads, so that code that saves
+ * many pictures (such as findDifferences(...) or subPicture(...) on every image of a
+ * folder) can keep working while the last picture is being encoded.
+ *
+ * At most getCapacity() images can be waiting or being written at once. Once that many are
+ * waiting, submit(...) waits for one to finish, so a fast producer cannot fill up memory
+ * with images. Each thread keeps one ImageWriter for each format and reuses it for every
+ * image, and the compression quality of each format can be set with setQuality(...).
+ *
+ * flush() waits until every image submitted so far has been written, and says whether they
+ * all were. Errors are printed when they happen, the same way SimplePicture.write(...) does.
+ *
+ *     ImageWriteService writes = ImageWriteService.getShared();
+ *     writes.setQuality( "jpg", 0.9f );
+ *     for( String name : names )
+ *         new Picture( name ).subPicture( 0, 0, 100, 100 ); //saved with writeLater(...)
+ *     writes.flush();
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class ImageWriteService
+{
+    /* The service used by SimplePicture.writeLater(...), made the first time it is needed */
+    private static ImageWriteService shared;
+
+    private final ExecutorService workers;
+    private final Semaphore slots;
+    private final int capacity;
+
+    /* The compression quality of each format, by the first name of its writer (see formatKey(...)),
+       from 0.0 (smallest) to 1.0 (best) */
+    private final Map<String, Float> qualities = new ConcurrentHashMap<String, Float>();
+
+    /* The writer of each format and image type, kept by each worker thread */
+    private final ThreadLocal<HashMap<String, ImageWriter>> writers =
+        ThreadLocal.withInitial( HashMap<String, ImageWriter>::new );
+
+    /* The images submitted but not written yet, and the writes that failed since the last flush() */
+    private int pending;
+    private int failures;
+
+    private Thread shutdownHook;
+
+    /**
+     * Method to get the service that SimplePicture.writeLater(...) uses, which has one
+     * worker thread and writes any waiting images before the program exits
+     * @return ImageWriteService The shared service
+     */
+    public static synchronized ImageWriteService getShared()
+    {
+        if( shared == null )
+        {
+            shared = new ImageWriteService( 1, 16 );
+            shared.flushOnShutdown();
+        }
+
+        return shared;
+    }
+
+    /**
+     * Creates a service
+     * @param threads The number of worker threads, which must be at least 1
+     * @param capacity The most images that can be waiting or being written at once, which must be at least 1
+     * @throws IllegalArgumentException if threads or capacity is less than 1
+     */
+    public ImageWriteService( int threads, int capacity )
+    {
+        if( threads  < 1 ) throw new IllegalArgumentException( "Threads must be at least 1, not " + threads );
+        if( capacity < 1 ) throw new IllegalArgumentException( "Capacity must be at least 1, not " + capacity );
+
+        this.capacity = capacity;
+        this.slots    = new Semaphore( capacity );
+        this.workers  = Executors.newFixedThreadPool( threads, runnable -> {
+            Thread thread = new Thread( runnable, "ImageWriteService worker" );
+            thread.setDaemon( true ); //do not keep the program running (see flushOnShutdown())
+            return thread;
+        } );
+    }
+
+    /** @return int The most images that can be waiting or being written at once */
+    public int getCapacity() { return capacity; }
+
+    /**
+     * Method to set the compression quality of a format, for formats that can be compressed
+     * by more or less (such as jpg). Images submitted afterwards use this quality, whichever
+     * name of the format they are written with (so "jpg" and "jpeg" share a quality)
+     * @param format The format, such as "jpg" or "png"
+     * @param quality The quality, from 0.0 (smallest file) to 1.0 (best image)
+     * @throws IllegalArgumentException if the quality is not from 0.0 to 1.0
+     */
+    public void setQuality( String format, float quality )
+    {
+        if( !(quality >= 0.0f && quality <= 1.0f) )
+            throw new IllegalArgumentException( "The quality must be from 0.0 to 1.0, not " + quality );
+
+        qualities.put( formatKey( format ), quality );
+    }
+
+    /**
+     * Method to get the key that a format's quality is kept by, which is the same for every
+     * name of the format: the first name given by the provider of its writer
+     * @param format The format, such as "jpg" or "jpeg"
+     * @return String The key, or the format in lower case if there is no writer for it
+     */
+    private static String formatKey( String format )
+    {
+        Iterator<ImageWriter> found = ImageIO.getImageWritersByFormatName( format );
+        ImageWriterSpi provider = found.hasNext() ? found.next().getOriginatingProvider() : null;
+        if( provider == null ) return format.toLowerCase();
+
+        return provider.getFormatNames()[0].toLowerCase();
+    }
+
+    /**
+     * Method that adds an image to be written. If getCapacity() images are already waiting,
+     * this waits until one has been written
+     * @param image The image, which must not be changed until it has been written
+     * @param file The file to write
+     * @param format The format to write, such as "jpg" or "png"
+     */
+    public void submit( BufferedImage image, File file, String format )
+    {
+        Float quality = qualities.get( formatKey( format ) );
+        slots.acquireUninterruptibly();
+        synchronized( this ) { pending++; }
+
+        workers.execute( () -> {
+            boolean written = false;
+            try
+            {
+                write( image, file, format, quality );
+                written = true;
+            }
+            catch( IOException | RuntimeException e )
+            {
+                System.out.println( "There was an error trying to write " + file );
+                e.printStackTrace();
+            }
+            finally
+            {
+                slots.release();
+                finished( written );
+            }
+        } );
+    }
+
+    /**
+     * Method that counts one image as written, and wakes up flush() if it was the last one
+     * @param written True if the image was written, false if it failed
+     */
+    private synchronized void finished( boolean written )
+    {
+        if( !written ) failures++;
+        if( --pending == 0 ) notifyAll();
+    }
+
+    /**
+     * Method that writes one image with the ImageWriter of its format and type, which this
+     * thread keeps for the next image
+     * @param image The image
+     * @param file The file to write
+     * @param format The format to write
+     * @param quality The compression quality, or null to use the writer's default
+     * @throws IOException if there is no writer for the format, or the file cannot be written
+     */
+    private void write( BufferedImage image, File file, String format, Float quality ) throws IOException
+    {
+        String key = format.toLowerCase() + "/" + image.getType();
+        ImageWriter writer = writers.get().get( key );
+        if( writer == null )
+        {
+            Iterator<ImageWriter> found = ImageIO.getImageWriters( ImageTypeSpecifier.createFromRenderedImage( image ), format );
+            if( !found.hasNext() )
+                throw new IOException( "There is no writer for " + format + " images of type " + image.getType() );
+
+            writer = found.next();
+            writers.get().put( key, writer );
+        }
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if( quality != null && param.canWriteCompressed() )
+        {
+            param.setCompressionMode( ImageWriteParam.MODE_EXPLICIT );
+            if( param.getCompressionType() == null && param.getCompressionTypes() != null )
+                param.setCompressionType( param.getCompressionTypes()[0] );
+            param.setCompressionQuality( quality );
+        }
+
+        //The old file is deleted first, since an ImageOutputStream does not cut off a longer file
+        file.delete();
+        try( ImageOutputStream out = ImageIO.createImageOutputStream( file ) )
+        {
+            if( out == null ) throw new IOException( file + " could not be opened" );
+
+            writer.setOutput( out );
+            writer.write( null, new IIOImage( image, null, null ), param );
+        }
+        finally
+        {
+            writer.setOutput( null );
+        }
+    }
+
+    /**
+     * Method that waits until every image submitted so far has been written
+     * @return boolean True if every image since the last flush() was written, false if any
+     *                 failed (their errors were printed) or the wait was interrupted
+     */
+    public synchronized boolean flush()
+    {
+        while( pending > 0 )
+        {
+            try
+            {
+                wait();
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        boolean allWritten = failures == 0;
+        failures = 0;
+        return allWritten;
+    }
+
+    /**
+     * Method that makes sure that the images waiting to be written are written if the
+     * program exits (for example at the end of main(...)), since the worker threads do
+     * not keep the program running
+     */
+    public synchronized void flushOnShutdown()
+    {
+        if( shutdownHook != null ) return;
+
+        shutdownHook = new Thread( this::flush );
+        Runtime.getRuntime().addShutdownHook( shutdownHook );
+    }
+
+    /**
+     * Method that writes every waiting image and stops the worker threads
+     * @return boolean True if every image since the last flush() was written
+     */
+    public boolean close()
+    {
+        boolean allWritten = flush();
+        synchronized( this )
+        {
+            if( shutdownHook != null )
+            {
+                try
+                {
+                    Runtime.getRuntime().removeShutdownHook( shutdownHook );
+                }
+                catch( IllegalStateException e )
+                {
+                    //The program is already exiting, so the hook will flush the images
+                }
+                shutdownHook = null;
+            }
+        }
+
+        workers.shutdown();
+        return allWritten;
+    }
+}
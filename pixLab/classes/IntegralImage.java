@@ -0,0 +1,125 @@
+/**
+ * A class that holds the integral image (summed-area table) of a picture, so that the
+ * sum of the pixels in any rectangle can be found with 4 lookups, no matter how big the
+ * rectangle is.
+ *
+ * The table has one more row and column than the picture. Entry (col, row) is the sum of
+ * every pixel above and to the left of (col, row), so the sum of the rectangle from
+ * (fromCol, fromRow) up to, but not including, (toCol, toRow) is
+ *
+ *     table(toCol, toRow) - table(fromCol, toRow) - table(toCol, fromRow) + table(fromCol, fromRow)
+ *
+ * The table is built in one pass over the picture. For a BinaryImage, each pixel is 1 if it
+ * is white and 0 if it is black, so sums are white pixel counts. For a PixelRaster, each
+ * pixel is its red + green + blue, from 0 to 765, the same total that toBinaryImage() uses.
+ *
+ *     IntegralImage integral = new IntegralImage( bw );
+ *     double topHalf = integral.mean( 0, 0, bw.getWidth(), bw.getHeight() / 2 );
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class IntegralImage
+{
+    private final int width;
+    private final int height;
+
+    /* The table, with (width + 1) entries per row and (height + 1) rows */
+    private final long[] table;
+
+    /**
+     * Builds the integral image of a black and white image, where white pixels are 1
+     * @param bw The image
+     */
+    public IntegralImage( BinaryImage bw )
+    {
+        this.width  = bw.getWidth();
+        this.height = bw.getHeight();
+        this.table  = new long[ (width + 1) * (height + 1) ];
+
+        long[] words = bw.getWords();
+        for( int row = 0; row < height; row++ )
+        {
+            int start = bw.rowStart( row );
+            int above = row * (width + 1);
+            int index = above + width + 1;
+            long rowSum = 0;
+            for( int col = 0; col < width; col++ )
+            {
+                rowSum += (words[ start + (col >>> 6) ] >>> col) & 1L;
+                table[ index + col + 1 ] = table[ above + col + 1 ] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * Builds the integral image of the brightness of a picture, where each pixel is its
+     * red + green + blue
+     * @param pixels The pixels of the picture
+     */
+    public IntegralImage( PixelRaster pixels )
+    {
+        this.width  = pixels.getWidth();
+        this.height = pixels.getHeight();
+        this.table  = new long[ (width + 1) * (height + 1) ];
+
+        for( int row = 0; row < height; row++ )
+        {
+            int pixel = pixels.index( 0, row );
+            int above = row * (width + 1);
+            int index = above + width + 1;
+            long rowSum = 0;
+            for( int col = 0; col < width; col++, pixel++ )
+            {
+                int argb = pixels.getAt( pixel );
+                rowSum += ((argb >> 16) & 0xFF) + ((argb >> 8) & 0xFF) + (argb & 0xFF);
+                table[ index + col + 1 ] = table[ above + col + 1 ] + rowSum;
+            }
+        }
+    }
+
+    /** @return int The width of the picture in pixels */
+    public int getWidth()  { return width;  }
+    /** @return int The height of the picture in pixels */
+    public int getHeight() { return height; }
+
+    /**
+     * Method to find the sum of the pixels in a rectangle. The rectangle is cut down to
+     * fit inside of the picture
+     * @param fromCol The left column of the rectangle
+     * @param fromRow The top row of the rectangle
+     * @param toCol The column after the right column of the rectangle
+     * @param toRow The row after the bottom row of the rectangle
+     * @return long The sum, or 0 if the rectangle is empty
+     */
+    public long sum( int fromCol, int fromRow, int toCol, int toRow )
+    {
+        fromCol = Math.max( fromCol, 0 );
+        fromRow = Math.max( fromRow, 0 );
+        toCol   = Math.min( toCol, width );
+        toRow   = Math.min( toRow, height );
+        if( fromCol >= toCol || fromRow >= toRow ) return 0;
+
+        int top    = fromRow * (width + 1);
+        int bottom = toRow * (width + 1);
+        return table[ bottom + toCol ] - table[ bottom + fromCol ] - table[ top + toCol ] + table[ top + fromCol ];
+    }
+
+    /**
+     * Method to find the average pixel of a rectangle. For a BinaryImage, this is the
+     * fraction of the rectangle that is white. The rectangle is cut down to fit inside
+     * of the picture
+     * @param fromCol The left column of the rectangle
+     * @param fromRow The top row of the rectangle
+     * @param toCol The column after the right column of the rectangle
+     * @param toRow The row after the bottom row of the rectangle
+     * @return double The average, or 0.0 if the rectangle is empty
+     */
+    public double mean( int fromCol, int fromRow, int toCol, int toRow )
+    {
+        int across = Math.min( toCol, width ) - Math.max( fromCol, 0 );
+        int down   = Math.min( toRow, height ) - Math.max( fromRow, 0 );
+        if( across <= 0 || down <= 0 ) return 0.0;
+
+        return (double)sum( fromCol, fromRow, toCol, toRow ) / ((long)across * down);
+    }
+}
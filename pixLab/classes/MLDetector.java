@@ -36,58 +36,118 @@ import javax.swing.JFrame;
  */
 public class MLDetector
 {
+    /* The features used to classify each image, in the order they are saved in the weights file */
+    private final FeatureRegistry features = registerFeatures();
+    
+    /* The preprocessing steps that turn each image into black and white in loadSample(...) */
+    private final Pipeline preprocessing;
+    
+    /* The keys of the feature values in the feature cache. The chain hash is the hash of the name
+       of the preprocessing, so feature values cached with other steps are not used. The feature
+       hashes are the hashes of the name and version of each feature (see registerFeatures()) */
+    private final long chainHash;
+    private final long[] featureHashes = FeatureCache.hashNames( features.getCacheKeys() );
+    
+    /**
+     * Creates a detector that uses the preprocessing steps of definePreprocessing()
+     */
+    public MLDetector()
+    {
+        this( definePreprocessing() );
+    }
+    
+    /**
+     * Creates a detector that uses other preprocessing steps
+     * @param preprocessing The steps that turn each image into black and white before its
+     *                      features are grabbed
+     */
+    public MLDetector( Pipeline preprocessing )
+    {
+        this.preprocessing = preprocessing;
+        this.chainHash     = FeatureCache.hashName( preprocessing.getName() );
+    }
+    
+    /**
+     * Method that lists the preprocessing steps used by the detector. Each image is turned into
+     * a black and white BinaryImage by these steps before its features are grabbed. To add a
+     * step, uncomment its line or add one (see Pipeline)
+     * @return Pipeline The preprocessing steps
+     */
+    private static Pipeline definePreprocessing()
+    {
+        return new Pipeline()
+            //.gaussianBlur( 1.0 )
+            //.edgeDetection( 20, EdgeDetector.Operator.SOBEL )
+            //.superDefuzz( 20, 1 )
+            //.clearIslands( 10, true )
+            .toBinaryImage();
+    }
+    
     /* @@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@ */
     /* @@@@@@@@@@@@@@@ BEGIN FEATURE METHODS @@@@@@@@@@@@@@@ */
     
+    /**
+     * Method that lists the feature methods used by the detector. To add a feature, write
+     * a method below that takes a FeatureSummary and returns a double, then register it here.
+     * To remove a feature, comment out its line. The weights file is regenerated whenever
+     * this list does not match the features saved in it.
+     * 
+     * @@NOTE: The number after each name is the version of the feature. Feature values are
+     * saved in the feature cache by name and version, so whenever a feature method is changed,
+     * its version MUST be raised by 1. Otherwise the values saved before the change are used
+     * @return FeatureRegistry The features, in order
+     */
+    private FeatureRegistry registerFeatures()
+    {
+        FeatureRegistry registry = new FeatureRegistry();
+        
+        registry.register( "totalWhitePixels", 1, this::totalWhitePixels );
+        registry.register( "whiteWidth",       1, this::whiteWidth       );
+        registry.register( "whiteHeight",      1, this::whiteHeight      );
+        registry.register( "maxObjectWidth",   1, this::maxObjectWidth   );
+        registry.register( "maxObjectHeight",  1, this::maxObjectHeight  );
+        registry.register( "avgObjectWidth",   1, this::avgObjectWidth   );
+        registry.register( "avgObjectHeight",  1, this::avgObjectHeight  );
+        //registry.register( "totalHoles",     1, this::totalHoles       );
+        
+        //Region features, registered in bulk (see HaarFeatures)
+        //HaarFeatures.registerZoning( registry, 4 ); //white density of each cell of a 4 x 4 grid
+        //HaarFeatures.registerHaar( registry, 2 );   //every Haar-like shape in each cell of a 2 x 2 grid
+        
+        return registry;
+    }
+    
     /**
      * @@For B/W only:@@
      * 
      * Feature based on the ratio of the average object width (based on white pixels)
      * against the width of this picture
      * 
-     * @param pic The instance being looked at (the picture)
+     * @param summary The row and column summaries of the instance being looked at (the picture)
      * @return double The ratio of the average object width based on white pixels
      *                divided by the width of the Picture
      */
-    public double avgObjectWidth( Picture pic )
+    public double avgObjectWidth( FeatureSummary summary )
     {
-        Pixel[][] pixels = pic.getPixels2D();
-        
-        ArrayList<Double> widths = new ArrayList<Double>();
-        double totalWidth = pixels[0].length;
+        int[] firstWhitePixelCols = summary.getRowFirst();
+        int[] lastWhitePixelCols  = summary.getRowLast();
+        double totalWidth = summary.getWidth();
+        double sumOfWidths = 0.0;
+        int size = 0;
         
-        for( int row = 0; row < pixels.length; row++ )
+        for( int row = 0; row < summary.getHeight(); row++ )
         {
-            double lineWidth = 0.0;
-            double firstWhitePixelCol = pixels[0].length;
-            double lastWhitePixelCol = 0.0;
-            boolean firstWhitePixelFound = false;
-            for( int col = 0; col < pixels[0].length; col++ )
-            {
-                if( !firstWhitePixelFound && pixels[row][col].getColor().equals( Color.WHITE ) )
-                {
-                    if( col < firstWhitePixelCol )
-                        firstWhitePixelCol = col;
-                    
-                    firstWhitePixelFound = true;
-                }
-                if( pixels[row][col].getColor().equals( Color.WHITE ) )
-                    if( col > lastWhitePixelCol )
-                        lastWhitePixelCol = col;
-            }
+            if( firstWhitePixelCols[row] == -1 ) continue;
             
-            lineWidth = lastWhitePixelCol - firstWhitePixelCol;
+            double lineWidth = lastWhitePixelCols[row] - firstWhitePixelCols[row];
             
             if( lineWidth > 0 )
-                widths.add( lineWidth );
+            {
+                sumOfWidths += lineWidth;
+                size++;
+            }
         }
         
-        int size = widths.size();
-        double sumOfWidths = 0.0;
-        int rep = 0;
-        for( ; rep < size; rep++ )
-            sumOfWidths += widths.get(rep);
-        
         return (sumOfWidths / (double)size) / (double)totalWidth;
     }
     
@@ -97,49 +157,31 @@ public class MLDetector
      * Feature based on the ratio of the average object height (based on white pixels)
      * against the height of this picture
      * 
-     * @param pic The instance being looked at (the picture)
+     * @param summary The row and column summaries of the instance being looked at (the picture)
      * @return double The ratio of the average object height based on white pixels
      *                divided by the height of the Picture
      */
-    public double avgObjectHeight( Picture pic )
+    public double avgObjectHeight( FeatureSummary summary )
     {
-        Pixel[][] pixels = pic.getPixels2D();
-        
-        ArrayList<Double> heights = new ArrayList<Double>();
-        double totalHeight = pixels.length;
+        int[] firstWhitePixelRows = summary.getColFirst();
+        int[] lastWhitePixelRows  = summary.getColLast();
+        double totalHeight = summary.getHeight();
+        double sumOfHeights = 0.0;
+        int size = 0;
 
-        for( int col = 0; col < pixels[0].length; col++ )
+        for( int col = 0; col < summary.getWidth(); col++ )
         {
-            double colHeight = 0.0;
-            double firstWhitePixelRow = pixels.length;
-            double lastWhitePixelRow = 0.0;
-            boolean firstWhitePixelFound = false;
-            for( int row = 0; row < pixels.length; row++ )
-            {
-                if( !firstWhitePixelFound && pixels[row][col].getColor().equals( Color.WHITE ) )
-                {
-                    if( row < firstWhitePixelRow )
-                        firstWhitePixelRow = row;
-                        
-                    firstWhitePixelFound = true;
-                }
-                if( pixels[row][col].getColor().equals( Color.WHITE ) )
-                    if( row > lastWhitePixelRow )
-                        lastWhitePixelRow = row;
-            }
+            if( firstWhitePixelRows[col] == -1 ) continue;
             
-            colHeight = lastWhitePixelRow - firstWhitePixelRow;
+            double colHeight = lastWhitePixelRows[col] - firstWhitePixelRows[col];
             
             if( colHeight > 0 )
-                heights.add( colHeight );
+            {
+                sumOfHeights += colHeight;
+                size++;
+            }
         }
         
-        int size = heights.size();
-        double sumOfHeights = 0.0;
-        int rep = 0;
-        for( ; rep < size; rep++ )
-            sumOfHeights += heights.get(rep);
-        
         return (sumOfHeights / (double)size) / (double)totalHeight;
     }
     
@@ -149,42 +191,17 @@ public class MLDetector
      * Feature based on the ratio of the object width based on white pixels
      * against the width of this picture
      * 
-     * @param pic The instance being looked at (the picture)
+     * @param summary The row and column summaries of the instance being looked at (the picture)
      * @return double The ratio of the object width based on white pixels
      *                divided by the width of the Picture
      */
-    public double maxObjectWidth( Picture pic )
+    public double maxObjectWidth( FeatureSummary summary )
     {
-        Pixel[][] pixels = pic.getPixels2D();
+        double totalWidth = summary.getWidth();
         
-        double maxWidth = 0.0;
-        double firstWhitePixelCol = pixels[0].length;
-        double lastWhitePixelCol = 0.0;
-        double totalWidth = pixels[0].length;
+        if( summary.getTotalWhite() == 0 ) return 0.0;
         
-        for( int row = 0; row < pixels.length; row++ )
-        {
-            double lineWidth = 0.0;
-            boolean firstWhitePixelFound = false;
-            for( int col = 0; col < pixels[0].length; col++ )
-            {
-                if( !firstWhitePixelFound && pixels[row][col].getColor().equals( Color.WHITE ) )
-                {
-                    if( col < firstWhitePixelCol )
-                        firstWhitePixelCol = col;
-                    
-                    firstWhitePixelFound = true;
-                }
-                if( pixels[row][col].getColor().equals( Color.WHITE ) )
-                    if( col > lastWhitePixelCol )
-                        lastWhitePixelCol = col;
-            }
-            
-            lineWidth = lastWhitePixelCol - firstWhitePixelCol;
-            
-            if( lineWidth > maxWidth )
-                maxWidth = lineWidth;
-        }
+        double maxWidth = summary.getLastWhiteColumn() - summary.getFirstWhiteColumn();
         
         return maxWidth / totalWidth;
     }
@@ -195,42 +212,17 @@ public class MLDetector
      * Feature based on the ratio of the object height based on white pixels
      * against the height of this picture
      * 
-     * @param pic The instance being looked at (the picture)
+     * @param summary The row and column summaries of the instance being looked at (the picture)
      * @return double The ratio of the object height based on white pixels
      *                divided by the height of the Picture
      */
-    public double maxObjectHeight( Picture pic )
+    public double maxObjectHeight( FeatureSummary summary )
     {
-        Pixel[][] pixels = pic.getPixels2D();
+        double totalHeight = summary.getHeight();
         
-        double maxHeight = 0.0;
-        double firstWhitePixelRow = pixels.length;
-        double lastWhitePixelRow = 0.0; 
-        double totalHeight = pixels.length;
-
-        for( int col = 0; col < pixels[0].length; col++ )
-        {
-            double colHeight = 0.0;
-            boolean firstWhitePixelFound = false;
-            for( int row = 0; row < pixels.length; row++ )
-            {
-                if( !firstWhitePixelFound && pixels[row][col].getColor().equals( Color.WHITE ) )
-                {
-                    if( row < firstWhitePixelRow )
-                        firstWhitePixelRow = row;
-                        
-                    firstWhitePixelFound = true;
-                }
-                if( pixels[row][col].getColor().equals( Color.WHITE ) )
-                    if( row > lastWhitePixelRow )
-                        lastWhitePixelRow = row;
-            }
-            
-            colHeight = lastWhitePixelRow - firstWhitePixelRow;
-            
-            if( colHeight > maxHeight )
-                maxHeight = colHeight;
-        }
+        if( summary.getTotalWhite() == 0 ) return 0.0;
+        
+        double maxHeight = summary.getLastWhiteRow() - summary.getFirstWhiteRow();
         
         return maxHeight / totalHeight;
     }
@@ -242,7 +234,7 @@ public class MLDetector
      * designated by a group of pixels of one color surrounding a group of pixels
      * of another color
      */
-    public double totalHoles( Picture pic )
+    public double totalHoles( FeatureSummary summary )
     {
         int totalHoles = 0;
         
@@ -254,20 +246,13 @@ public class MLDetector
      * 
      * Feature based on the ratio of black to white pixels
      * 
-     * @param pic The instance being looked at (the picture)
+     * @param summary The row and column summaries of the instance being looked at (the picture)
      * @return double The ratio of white pixels to total pixels
      */
-    public double totalWhitePixels( Picture pic )
+    public double totalWhitePixels( FeatureSummary summary )
     {
-        Pixel[][] pixels = pic.getPixels2D();
-        
-        double totalWhite = 0.0;
-        double totalPixels = pixels.length * pixels[0].length;
-        
-        for( int row = 0; row < pixels.length; row++ )
-            for( int col = 0; col < pixels[0].length; col++ )
-                if( pixels[row][col].getColor().equals( Color.WHITE ) )
-                    totalWhite++;
+        double totalWhite = summary.getTotalWhite();
+        double totalPixels = summary.getHeight() * summary.getWidth();
         
         return totalWhite / totalPixels;
     }
@@ -278,29 +263,14 @@ public class MLDetector
      * Feature based on the ratio of the largest width of continuous
      * white pixels of the object detected against the width of this picture
      * 
-     * @param pic The instance being looked at (the picture)
+     * @param summary The row and column summaries of the instance being looked at (the picture)
      * @return double The ratio of the largest band of white pixels in a row
      *                divided by the width of the Picture
      */
-    public double whiteWidth( Picture pic )
+    public double whiteWidth( FeatureSummary summary )
     {
-        Pixel[][] pixels = pic.getPixels2D();
-        
-        double maxWidth = 0.0;
-        double totalWidth = pixels[0].length;
-        
-        for( int row = 0; row < pixels.length; row++ )
-        {
-            double lineWidth = 0.0;
-            for( int col = 0; col < pixels[0].length; col++ )
-            {
-                if( pixels[row][col].getColor().equals( Color.WHITE ) )
-                    lineWidth += 1.0;
-            }
-            
-            if( lineWidth > maxWidth )
-                maxWidth = lineWidth;
-        }
+        double maxWidth = FeatureSummary.max( summary.getRowCounts() );
+        double totalWidth = summary.getWidth();
         
         return maxWidth / totalWidth;
     }
@@ -311,29 +281,14 @@ public class MLDetector
      * Feature based on the ratio of the largest height of continuous
      * white pixels of the object detected against the height of this picture
      * 
-     * @param pic The instance being looked at (the picture)
+     * @param summary The row and column summaries of the instance being looked at (the picture)
      * @return double The ratio of the largest band of white pixels in a column
      *                divided by the height of the Picture
      */
-    public double whiteHeight( Picture pic )
+    public double whiteHeight( FeatureSummary summary )
     {
-        Pixel[][] pixels = pic.getPixels2D();
-        
-        double maxHeight = 0.0;
-        double totalWidth = pixels[0].length;
-        
-        for( int col = 0; col < pixels[0].length; col++ )
-        {
-            double colWidth = 0.0;
-            for( int row = 0; row < pixels.length; row++ )
-            {
-                if( pixels[row][col].getColor().equals( Color.WHITE ) )
-                    colWidth += 1.0;
-            }
-            
-            if( colWidth > maxHeight )
-                maxHeight = colWidth;
-        }
+        double maxHeight = FeatureSummary.max( summary.getColCounts() );
+        double totalWidth = summary.getWidth();
         
         return maxHeight / totalWidth;
     }
@@ -355,19 +310,18 @@ public class MLDetector
      * (if you are running from scratch and don't want to keep weights and
      * progress):
      * 
-     *   1) Weights.txt  --> Weights are automatically updated after each instance.
+     *   1) Weights.txt  --> Weights are automatically saved every few instances and
+     *                       at the end of the run (see 'checkpointInterval').
      *                       In order to start anew, delete all text in this file
      *                       Note that the initial weights are set randomly when the
      *                       first instance is run
      *   2) Progress.txt --> The success rate of each guess by the program is recorded
      *                       in this file. In order to start anew, delete all text in
      *                       this file.
-     *   3) 'trained' folder --> In the images folder where the training and test images
-     *                           are kept is a folder labeled 'trained'. After an image
-     *                           is used, for training or testing, it is moved to this
-     *                           folder. In order to start from scratch, move all of these
-     *                           images back into the 'images' folder from the 'trained'
-     *                           folder
+     * 
+     * Images are not moved or changed. Each epoch uses the images in a new shuffled order
+     * (see EpochScheduler), and the same seed always gives the same order, so a run can
+     * be repeated or continued for more epochs without resetting the images folder.
      * 
      * This program takes guesses based on a series of feature values on whether an image
      * is of one category or another. It then confirms its guess as correct or incorrect
@@ -404,8 +358,24 @@ public class MLDetector
      *                   was correct or not
      */
     public void runDetector( int iterations, boolean usingTrainingData, boolean promptUser )
+    { runDetector( iterations, 1, new Random().nextLong(), usingTrainingData, promptUser ); }
+    /**
+     * Method that detects whether an image is of one category or another, over
+     * one or more epochs. See runDetector( int, boolean, boolean ) for details
+     * 
+     * @param iterations The most instances (images) to test in each epoch
+     * @param epochs The number of passes over the images
+     * @param seed The seed of the shuffled order of the images. Runs with the same
+     *             seed use the images in the same order
+     * @param usingTrainingData True if the program is currently using training data.
+     *                          False if the program is currently using test data
+     * @param promptUser True if the program should prompt the user for determining the
+     *                   correct classification of the image. False if the program will
+     *                   self-label by looking at the image name to determine whether it
+     *                   was correct or not
+     */
+    public void runDetector( int iterations, int epochs, long seed, boolean usingTrainingData, boolean promptUser )
     {
-        Random random = new Random();
         DecimalFormat df = new DecimalFormat("0.##");
         Scanner scanner = new Scanner(System.in);
         
@@ -421,74 +391,75 @@ public class MLDetector
          /*@@@*/ String imageBaseName = usingTrainingData ? "training_" : "test_";       /*@@@*/
          /*@@@*/ String weightsFileName  = "Weights.txt";                                /*@@@*/
          /*@@@*/ String progressFileName = "Progress.txt";                               /*@@@*/
+         /*@@@*/ int checkpointInterval  = 10; //Save the weights every 10 images        /*@@@*/
+         /*@@@*/ int progressFlushInterval = 10; //Write progress every 10 images        /*@@@*/
+         /*@@@*/ String featureCacheFileName = "Feature Cache.bin";                      /*@@@*/
          /*@@@ - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - @@@*/
          /*@@@@@@                                                                       @@@@@@*/
          /*@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@*/
          
         ArrayList<File> imgFiles = getImageFiles( imageBaseName );
-        int trainingDataImagesSize = imgFiles.size();
+        Collections.sort( imgFiles ); //so that the same seed always gives the same order
         
         /* Weights are only generated if the feature methods being run are different
            than those listed in the Weights.txt file, or if the file is blank */
-        if( usingTrainingData )
-            generateWeights( weightsFileName );
+        WeightModel model = usingTrainingData ? generateWeights( weightsFileName )
+                                              : loadWeights( weightsFileName );
+        if( model == null ) return;
+        
+        /* The weights are kept in memory, and only saved every few images, at the end
+           of this method, or if the program is stopped early */
+        model.setCheckpointInterval( checkpointInterval );
+        model.saveOnShutdown();
         
-        for( int rep = 0; rep < iterations && trainingDataImagesSize > 0; rep++ )
+        /* The progress counts are kept in memory, starting from the last line of Progress.txt */
+        ProgressTracker progress = null;
+        if( usingTrainingData )
         {
-            int fileNumber = random.nextInt( trainingDataImagesSize-- );
-            File file = imgFiles.remove( fileNumber );
-            String fileName = file.getName();
-            
-            Picture pic = new Picture( fileName );
+            progress = openProgress( progressFileName );
+            if( progress == null ) return;
             
-            //Image Preprocessing Methods
-            pic.toBW();
+            progress.setFlushInterval( progressFlushInterval );
+            progress.flushOnShutdown();
+        }
+        
+        /* Feature values are saved by the hash of each image file, so images that were
+           used before do not need to be loaded again. If the cache cannot be opened, every
+           image is loaded */
+        FeatureCache cache = openFeatureCache( featureCacheFileName );
+        
+        //Choose the order of the images first, so that they can be loaded ahead of time
+        EpochScheduler scheduler = new EpochScheduler( imgFiles.size(), epochs, seed );
+        List<File> sampleOrder = scheduler.schedule( imgFiles, iterations );
+        
+        /* The images are loaded, preprocessed, and have their features grabbed on worker
+           threads (see loadSample(...)), while this loop makes the guesses and changes the
+           weights one image at a time, in the order chosen above */
+        SamplePipeline<File, Sample> samples =
+            new SamplePipeline<File, Sample>( sampleOrder, file -> loadSample( file, promptUser, cache ) );
+        while( samples.hasNext() )
+        {
+            Sample sample = samples.next();
+            String fileName = sample.fileName;
+            double[] featureData = sample.featureData;
             
             //Open image viewer
             JFrame frame = null;
             if( promptUser )
-                frame = pic.explore();
-            
-            /* @@@ KEEP THE FOLLOWING COMMENT -- DO NOT CHANGE IT @@@ */
-            //Feature Grabbing Methods
-            double X_totalWhitePixels = totalWhitePixels( pic );
-            double X_whiteWidth       = whiteWidth( pic );
-            double X_whiteHeight      = whiteHeight( pic );
-            double X_maxObjectWidth   = maxObjectWidth( pic );
-            double X_maxObjectHeight  = maxObjectHeight( pic );
-            double X_avgObjectWidth   = avgObjectWidth( pic );
-            double X_avgObjectHeight  = avgObjectHeight( pic );
-            
-            /* @@@ DO NOT ADD NON-FEATURE CODE ABOVE THIS LINE @@@ */
+                frame = sample.pic.explore();
             
             //@@DEBUG -- It is recommended that you test your feature methods before
             //           integrating them into the ML part of the program.
             /*
-            SOPln( "% White pixels: "           + df.format(X_totalWhitePixels) );
-            SOPln( "% Width of white pixels: "  + df.format(X_whiteWidth)       );
-            SOPln( "% Height of white pixels: " + df.format(X_whiteHeight)      );
-            SOPln( "% Object width: "           + df.format(X_maxObjectWidth)   );
-            SOPln( "% Object height: "          + df.format(X_maxObjectHeight)  );
-            SOPln( "% Average object width: "   + df.format(X_avgObjectWidth)   );
-            SOPln( "% Average object height: "  + df.format(X_avgObjectHeight)  );
+            for( int id = 0; id < features.size(); id++ )
+                SOPln( features.getName( id ) + ": " + df.format( featureData[id] ) );
             */
             
             // Comment out the ML CODE section below when testing new feature methods
             /* @@@ BEGIN ML CODE @@@ */
             
-            //Add data feature data to list
-            ArrayList<Double> featureData = new ArrayList<Double>();
-            
-            featureData.add( X_totalWhitePixels );
-            featureData.add( X_whiteWidth       );
-            featureData.add( X_whiteHeight      );
-            featureData.add( X_maxObjectWidth   );
-            featureData.add( X_maxObjectHeight  );
-            featureData.add( X_avgObjectWidth   );
-            featureData.add( X_avgObjectHeight  );
-            
             //Make guess based on feature data
-            boolean guessIsA = makeGuess( weightsFileName, featureData );
+            boolean guessIsA = makeGuess( model, featureData );
             String guess = guessIsA ? CLASS_A_NAME : CLASS_B_NAME;
             if( promptUser )
             SOPln("\nI think this image is a " + guess + "!\n");
@@ -507,22 +478,12 @@ public class MLDetector
                 if( response.contains( CLASS_A_NAME.toLowerCase() ) || response.contains( CLASS_A_NAME_ALT.toLowerCase() ) )
                     isA = true;
                 
-                changeWeights( isA, weightsFileName, featureData );
+                changeWeights( isA, model, featureData );
             
             
                 //Update progress
                 boolean success = (guessIsA && isA) || (!guessIsA && !isA);
-                updateProgress( progressFileName, success );
-            
-            
-                //Move file to the 'trained' folder, so it can't be used again
-                moveFile( fileName, "..\\images\\", "..\\images\\trained\\" );
-                
-                /* delete this if moveFile(..) works
-                try {
-                    Files.move( Paths.get( "..\\images\\" + fileName ), Paths.get( "..\\images\\trained\\" + fileName ) );
-                } catch( IOException e ) { e.printStackTrace(); }
-                */
+                updateProgress( progress, success );
             }
             
             //Close frame viewer
@@ -532,12 +493,367 @@ public class MLDetector
             /* @@@ END ML CODE @@@ */
         }
         
+        samples.close();
+        saveWeights( model );
+        if( progress != null )
+            closeProgress( progress );
+        if( cache != null )
+            closeFeatureCache( cache );
+        
         if( usingTrainingData )
             createWeightAndProgressFiles( CLASS_A_NAME_ALT, CLASS_B_NAME_ALT, weightsFileName, progressFileName );
         
         scanner.close();
     }
     
+    /**
+     * Method that detects which of any number of categories an image is. Each folder in the
+     * Training Sets folder (eg. "Training Sets/training/7") is one category, named by the
+     * folder, and holds the images of that category. All of the categories are trained at
+     * once, so one pass trains the same weights that would otherwise need a binary weights
+     * file for every pair of categories (eg. "Weights 6 8.txt" and "Weights 0 1.txt").
+     * 
+     * The weights of each category are the running average of the features of the images
+     * of that category, just like the two weights of each feature in runDetector(...). An
+     * image is guessed to be the category whose weights, averaged with the image's feature
+     * values, are closest to the average of the feature values. See CentroidModel
+     * 
+     * @param iterations The most instances (images) to test in each epoch
+     * @param epochs The number of passes over the images
+     * @param seed The seed of the shuffled order of the images. Runs with the same
+     *             seed use the images in the same order
+     * @param usingTrainingData True if the program is currently using training data.
+     *                          False if the program is currently using test data
+     */
+    public void runMulticlassDetector( int iterations, int epochs, long seed, boolean usingTrainingData )
+    {
+         /*@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@*/
+         /*@@@@@@ NOTE: These variables may need to be changed if using different types @@@@@@*/
+         /*@@@          of data, or if using testing data instead of training data         @@@*/
+         /*@@@ - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -   @@@*/
+         /*@@@*/ Path setFolder = Paths.get( "..", "images", "Training Sets",           /*@@@*/
+         /*@@@*/                             usingTrainingData ? "training" : "test" );  /*@@@*/
+         /*@@@*/ String weightsFileName  = "Multiclass Weights.txt";                     /*@@@*/
+         /*@@@*/ String progressFileName = usingTrainingData ? "Multiclass Progress.txt" /*@@@*/
+         /*@@@*/                                             : "Multiclass Test Progress.txt"; /*@@@*/
+         /*@@@*/ int checkpointInterval  = 10; //Save the weights every 10 images        /*@@@*/
+         /*@@@*/ int progressFlushInterval = 10; //Write progress every 10 images        /*@@@*/
+         /*@@@*/ String featureCacheFileName = "Feature Cache.bin";                      /*@@@*/
+         /*@@@*/ String packedSetFileName = usingTrainingData ? "Training Set.pack"      /*@@@*/
+         /*@@@*/                                              : "Test Set.pack";         /*@@@*/
+         /*@@@*/ boolean usePackedSet = true; //false to read the image files instead    /*@@@*/
+         /*@@@ - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - @@@*/
+         /*@@@@@@                                                                       @@@@@@*/
+         /*@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@*/
+        
+        ArrayList<String> labels = getLabels( setFolder );
+        ArrayList<File> imgFiles = getLabeledImageFiles( setFolder, labels );
+        if( labels.isEmpty() ) return;
+        
+        /* The images are read from one packed file, which is packed again if any image is
+           newer than it. If it cannot be packed, or the preprocessing needs more than the
+           black and white image, the image files are read instead. Sample number i of the
+           packed file is imgFiles.get( i ) */
+        PackedDataset dataset = usePackedSet ? openPackedDataset( Paths.get( packedSetFileName ), labels, imgFiles )
+                                             : null;
+        
+        /* Weights are only generated if the features or categories are different than
+           those in the weights file, or if the file does not exist */
+        CentroidModel model = usingTrainingData ? generateCentroids( weightsFileName, labels )
+                                                : loadCentroids( weightsFileName );
+        if( model == null ) return;
+        
+        ProgressTracker progress = openProgress( progressFileName );
+        if( progress == null ) return;
+        progress.setFlushInterval( progressFlushInterval );
+        progress.flushOnShutdown();
+        
+        FeatureCache cache = openFeatureCache( featureCacheFileName );
+        
+        //The order is chosen by index, so it is the same whether or not the images are packed
+        ArrayList<Integer> indexes = new ArrayList<Integer>();
+        for( int index = 0; index < imgFiles.size(); index++ )
+            indexes.add( index );
+        EpochScheduler scheduler = new EpochScheduler( imgFiles.size(), epochs, seed );
+        List<Integer> sampleOrder = scheduler.schedule( indexes, iterations );
+        Iterator<Integer> sampleIndexes = sampleOrder.iterator();
+        
+        SamplePipeline<Integer, Sample> samples = new SamplePipeline<Integer, Sample>( sampleOrder, index ->
+            dataset != null && !dataset.isScaled( index ) ? loadPackedSample( dataset, index, cache )
+                                                          : loadSample( imgFiles.get( index ), false, cache ) );
+        int trained = 0;
+        while( samples.hasNext() )
+        {
+            Sample sample = samples.next();
+            String label = imgFiles.get( sampleIndexes.next() ).getParentFile().getName(); //the folder is the category
+            
+            int guess = model.classify( sample.featureData );
+            int actual = model.getClassIndex( label );
+            if( actual == -1 )
+            {
+                SOPln( "Skipping " + sample.fileName + ". The weights have no category named " + label );
+                continue;
+            }
+            
+            if( usingTrainingData )
+            {
+                model.update( actual, sample.featureData );
+                if( ++trained % checkpointInterval == 0 )
+                    saveCentroids( model );
+            }
+            
+            updateProgress( progress, guess == actual );
+        }
+        
+        samples.close();
+        saveCentroids( model );
+        closeProgress( progress );
+        if( cache != null )
+            closeFeatureCache( cache );
+        if( dataset != null )
+            closePackedDataset( dataset );
+        
+        SOPln( "Correct: " + progress );
+    }
+    
+    /**
+     * Method that opens the packed file of a set of labeled images, packing the images again
+     * if the file does not exist, or if it does not have the same images as the set.
+     * 
+     * The images are packed as their Picture.toBinaryImage(), so the packed file can only be
+     * used if the preprocessing starts with exactly that (see Pipeline.startsWithBinarize()).
+     * Otherwise, steps such as gaussianBlur(...) or edgeDetection(...) need the colors of
+     * the image files, so the files are read instead
+     * @param packFile The packed file
+     * @param labels The names of the categories
+     * @param imgFiles The image files of the set, whose parent folders are their categories
+     * @return PackedDataset The packed images, or null if the packed file cannot be used,
+     *                       packed, or opened
+     */
+    private PackedDataset openPackedDataset( Path packFile, List<String> labels, List<File> imgFiles )
+    {
+        if( !preprocessing.startsWithBinarize() )
+        {
+            SOPln( "Reading the image files, since the preprocessing (" + preprocessing.getName() +
+                   ") needs more than the black and white images in " + packFile );
+            return null;
+        }
+        
+        PackedDataset.Format format = PackedDataset.Format.BITS;
+        try
+        {
+            if( !PackedDataset.isUpToDate( packFile, imgFiles, format ) )
+            {
+                ArrayList<Integer> fileLabels = new ArrayList<Integer>();
+                for( File file : imgFiles )
+                    fileLabels.add( labels.indexOf( file.getParentFile().getName() ) );
+                
+                SOPln( "Packing " + PackedDataset.pack( labels, imgFiles, fileLabels, packFile, format ) +
+                       " images into " + packFile );
+            }
+            
+            return new PackedDataset( packFile );
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Method that closes a packed file
+     * @param dataset The packed images
+     */
+    private void closePackedDataset( PackedDataset dataset )
+    {
+        try
+        {
+            dataset.close();
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Method that loads an image and grabs its features. This is run on the worker threads
+     * of a SamplePipeline, so it must not change anything shared between images.
+     * 
+     * Feature values that are already in the cache are not grabbed again. If every value
+     * is in the cache and the Picture does not need to be kept, the image is not loaded
+     * @param file The image file
+     * @param keepPicture True if the black and white Picture should be kept in the Sample
+     *                    (to show to the user), false otherwise
+     * @param cache The saved feature values, or null if no values are saved
+     * @return Sample The file name, feature data, and (if kept) the Picture of the image
+     */
+    private Sample loadSample( File file, boolean keepPicture, FeatureCache cache )
+    {
+        String fileName = file.getName();
+        double[] featureData = new double[ features.size() ];
+        boolean[] cached = new boolean[ features.size() ];
+        
+        long contentHash = 0L;
+        int found = 0;
+        if( cache != null )
+        {
+            try
+            {
+                contentHash = FeatureCache.hashContent( file.toPath() );
+                found = cache.lookup( contentHash, chainHash, featureHashes, featureData, cached );
+            }
+            catch( IOException e )
+            {
+                e.printStackTrace();
+                cache = null;
+            }
+        }
+        
+        if( found == features.size() && !keepPicture )
+            return new Sample( fileName, null, featureData );
+        
+        Picture pic = new Picture( file.getPath() );
+        
+        //Image Preprocessing Methods (see definePreprocessing())
+        BinaryImage bw = preprocessing.run( pic );
+        
+        grabFeatures( bw, cache, contentHash, chainHash, featureData, cached );
+        
+        if( !keepPicture ) return new Sample( fileName, null, featureData );
+        
+        bw.writeTo( pic );
+        return new Sample( fileName, pic, featureData );
+    }
+    
+    /**
+     * Method that grabs the features of one image of a packed file. This is run on the worker
+     * threads of a SamplePipeline, so it must not change anything shared between images.
+     * 
+     * The image is not read from its file. The packed image is the Picture.toBinaryImage() of
+     * the file, so the preprocessing steps start from it (see Pipeline.run( BinaryImage )) and
+     * give the same features as loadSample(...), which are cached the same way
+     * @param dataset The packed images, which must be BITS images that were not scaled
+     * @param index The index of the image in the packed file
+     * @param cache The saved feature values, or null if no values are saved
+     * @return Sample The file name and feature data of the image
+     */
+    private Sample loadPackedSample( PackedDataset dataset, int index, FeatureCache cache )
+    {
+        String fileName = dataset.getName( index );
+        double[] featureData = new double[ features.size() ];
+        boolean[] cached = new boolean[ features.size() ];
+        
+        long contentHash = dataset.getContentHash( index );
+        if( cache != null && cache.lookup( contentHash, chainHash, featureHashes, featureData, cached ) == features.size() )
+            return new Sample( fileName, null, featureData );
+        
+        //Image Preprocessing Methods (see definePreprocessing())
+        BinaryImage bw = preprocessing.run( dataset.toBinaryImage( index ) );
+        
+        grabFeatures( bw, cache, contentHash, chainHash, featureData, cached );
+        return new Sample( fileName, null, featureData );
+    }
+    
+    /**
+     * Method that grabs the feature values of a black and white image that are not in the cache,
+     * and saves them in the cache
+     * @param bw The black and white image
+     * @param cache The saved feature values, or null if no values are saved
+     * @param contentHash The hash of the image file
+     * @param chainHash The hash of the preprocessing steps
+     * @param featureData The feature values, which are filled in
+     * @param cached True for each feature whose value was found in the cache
+     */
+    private void grabFeatures( BinaryImage bw, FeatureCache cache, long contentHash, long chainHash,
+                               double[] featureData, boolean[] cached )
+    {
+        //Summarize the rows and columns once for all of the features
+        FeatureSummary summary = new FeatureSummary( bw );
+        
+        //Feature Grabbing Methods (see registerFeatures()). Only the values not in the cache are grabbed
+        for( int id = 0; id < features.size(); id++ )
+        {
+            if( cached[id] ) continue;
+            
+            featureData[id] = features.getExtractor( id ).extract( summary );
+            if( cache != null )
+                cacheFeature( cache, contentHash, chainHash, id, featureData[id] );
+        }
+    }
+    
+    /**
+     * Method that saves one feature value of an image in the feature cache
+     * @param cache The saved feature values
+     * @param contentHash The hash of the image file
+     * @param chainHash The hash of the preprocessing steps
+     * @param id The id of the feature
+     * @param value The value of the feature
+     */
+    private void cacheFeature( FeatureCache cache, long contentHash, long chainHash, int id, double value )
+    {
+        try
+        {
+            cache.put( contentHash, chainHash, featureHashes[id], value );
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Method that opens the feature cache file, creating it if it does not exist
+     * @param featureCacheFileName The name of the file that holds the saved feature values
+     * @return FeatureCache The cache, or null if the file could not be opened
+     */
+    private FeatureCache openFeatureCache( String featureCacheFileName )
+    {
+        try
+        {
+            return new FeatureCache( Paths.get( featureCacheFileName ) );
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Method that writes the feature cache to disk and closes it
+     * @param cache The saved feature values
+     */
+    private void closeFeatureCache( FeatureCache cache )
+    {
+        try
+        {
+            cache.close();
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /** The data of one image that is needed for training */
+    private static class Sample
+    {
+        public final String fileName;
+        public final Picture pic;
+        public final double[] featureData;
+        
+        public Sample( String fileName, Picture pic, double[] featureData )
+        {
+            this.fileName    = fileName;
+            this.pic         = pic;
+            this.featureData = featureData;
+        }
+    }
+    
     /**
      * Method that creates the individual weights and progress files for this binary category of
      * instances. These files are made in order to be used by the OCR part of the program, or
@@ -607,138 +923,108 @@ public class MLDetector
     /**
      * Method that updates the success rate across multiple instances in the
      * progress file
-     * @param progressFileName The name of the text file that details the success rate
-     *                         across multiple instances evaluated
+     * @param progress The tracker of the success rate across multiple instances evaluated
      * @param success True if the program was successful on this instance, false otherwise
      */
-    private void updateProgress( String progressFileName, boolean success )
+    private void updateProgress( ProgressTracker progress, boolean success )
     {
         //Format of line: 1. Correct! 13/20 65%    ... or ...    2. Incorrect. 17/25 68%
-        
-        Scanner sc = getScanner( progressFileName );
-        
-        int correctSoFar = 0;
-        int totalRuns = 1;
-        
-        while( sc.hasNextLine() )
+        try
         {
-            String line = sc.nextLine();
-            
-            if( line.isEmpty() ) break;
-            
-            if( sc.hasNextLine() ) continue;
-            
-            String[] parts = line.split(" ");
-            String[] ratio = parts[2].split("/");
-            correctSoFar = Integer.parseInt( ratio[0] );
-            totalRuns    = Integer.parseInt( ratio[1] ) + 1;
+            progress.record( success );
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
         }
-        
-        sc.close();
-        
-        String response = success ? "Correct!" : "Incorrect.";
-        if( success ) ++correctSoFar;
-        int percent = (int)((((double)correctSoFar)/((double)totalRuns)) * 100.0);
-        String line = totalRuns + ". " + response + " " + correctSoFar + "/" + totalRuns + " " + percent + "%\n";
-        
-        addToFile( progressFileName, line );
     }
     
     /**
-     * Method that adjusts the weights based on the results of the last training image result.
-     * Note that once the program is done training, this method should no longer be run
-     * @param isA True if the image is a classification A, false if it is classification B
-     * @param weightsFileName The name of the text file containing the weights
-     * @param featureData The list of feature data from this instance
-     * @return double The total number of iterations. This is used to keep track of progress
+     * Method that opens the progress file to add lines to
+     * @param progressFileName The name of the text file that details the success rate
+     *                         across multiple instances evaluated
+     * @return ProgressTracker The tracker, or null if the file could not be opened
      */
-    private double changeWeights( boolean isA, String weightsFileName, ArrayList<Double> featureData )
+    private ProgressTracker openProgress( String progressFileName )
     {
-        ArrayList<Pair> weightList = getWeights( weightsFileName );
-        ArrayList<String> featureWeightData = new ArrayList<String>();
-        
-        DecimalFormat df = new DecimalFormat("0.##");
-
-        int totalFeatures      = weightList.size() - 1; //Last Pair holds the iteration total\
-        double totalIterations = weightList.get( totalFeatures ).a;
-        for( int rep = 0; rep < totalFeatures; rep++ )
+        try
         {
-            double firstWeight  = 0.0;
-            double secondWeight = 0.0;
-            String placeholder  = "";
-            
-            double weightListA  = weightList.get(rep).a;
-            double weightListB  = weightList.get(rep).b;
-            double featureValue = featureData.get(rep);
-            
-            //Average the weight and the new feature value according to the weighted average across iterations so far
-            if( isA ) firstWeight = ((weightListA * totalIterations) / (totalIterations + 1.0)) + (featureValue / (totalIterations + 1.0));
-            else      firstWeight = weightListA;
-                
-            placeholder += df.format(firstWeight) + " ";
-            
-            if( !isA ) secondWeight = ((weightListB * totalIterations) / (totalIterations + 1.0)) + (featureValue / (totalIterations + 1.0));
-            else       secondWeight = weightListB;
-                
-            placeholder += df.format(secondWeight) + " " + (totalIterations + 1.0);
-            
-            featureWeightData.add( placeholder );
+            return new ProgressTracker( Paths.get( progressFileName ) );
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
         }
         
-        updateWeights( weightsFileName, featureWeightData );
-        
-        return totalIterations;
+        return null;
     }
     
     /**
-     * Method that updates the weights text file with the new weight data
-     * @param weightsFileName The name of the weight text file
-     * @param featureWeightData The String data to write to the weights file
+     * Method that writes the rest of the progress lines and closes the progress file
+     * @param progress The tracker of the success rate
      */
-    private void updateWeights( String weightsFileName, ArrayList<String> featureWeightData )
+    private void closeProgress( ProgressTracker progress )
     {
-        Scanner sc = getScanner( weightsFileName );
-        
-        String text = "";
-        
-        int rep = 0;
-        while( sc.hasNextLine() )
+        try
         {
-            String[] line = sc.nextLine().split(" ");
-            text += line[0] + " " + featureWeightData.get(rep++);
-            if( sc.hasNextLine() )
-                text += "\n";
+            progress.close();
         }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Method that adjusts the weights based on the results of the last training image result.
+     * Note that once the program is done training, this method should no longer be run
+     * @param isA True if the image is a classification A, false if it is classification B
+     * @param model The weights of the features
+     * @param featureData The list of feature data from this instance
+     * @return double The total number of iterations. This is used to keep track of progress
+     */
+    private double changeWeights( boolean isA, WeightModel model, double[] featureData )
+    {
+        //Average the weights and the new feature values according to the weighted average across iterations so far
+        double totalIterations = model.update( isA, featureData );
         
-        sc.close();
+        try
+        {
+            model.checkpoint();
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
         
-        writeToFile( weightsFileName, text );
+        return totalIterations;
     }
     
     /**
      * Method that evaluates the feature data of this instance and the weights of previous
      * instances to make a guess on whether this image is of the first classification (true)
      * or the second classification (false)
-     * @param weightsFileName The file name that contains the weights
+     * @param model The weights of the features
      * @param featureDate The list of this instance's feature data
      * @return boolean True is the program believes this image is the first classification,
      *                 false if the program believes this image is the second classification
      */
-    private boolean makeGuess( String weightsFileName, ArrayList<Double> featureData )
+    private boolean makeGuess( WeightModel model, double[] featureData )
     {
-        ArrayList<Pair> weightList = getWeights( weightsFileName );
+        double[] weightsA = model.getWeightsA();
+        double[] weightsB = model.getWeightsB();
         
         double firstAverageWeight   = 0.0;
         double secondAverageWeight  = 0.0;
         double featureAverageWeight = 0.0;
         
-        int totalFeatures = weightList.size() - 1; //Last Pair holds the iteration total
-        double totalIterations = weightList.get( totalFeatures ).a;
+        int totalFeatures = model.size();
+        double totalIterations = model.getIterations();
         for( int rep = 0; rep < totalFeatures; rep++ )
         {
-            double weightListA  = weightList.get(rep).a;
-            double weightListB  = weightList.get(rep).b;
-            double featureValue = featureData.get(rep);
+            double weightListA  = weightsA[rep];
+            double weightListB  = weightsB[rep];
+            double featureValue = featureData[rep];
             
             //Average the weight and the new feature value according to the weighted average across iterations so far
             firstAverageWeight   += ((weightListA * totalIterations ) / (totalIterations + 1.0)) + (featureValue / (totalIterations + 1.0));
@@ -760,100 +1046,127 @@ public class MLDetector
     }
     
     /**
-     * Method that grabs that weight pair values from the weightsFileName text file
+     * Method that reads the weights of the features from the weights text file
      * @param weightsFileName The name of the text file with the weight data
-     * @return The list of Pair of weights for the first and second classification. The very last Pair contains the iteration total (both entries)
+     * @return WeightModel The weights, or null if the file could not be read
      */
-    private ArrayList<Pair> getWeights( String weightsFileName )
+    private WeightModel loadWeights( String weightsFileName )
     {
-        Scanner sc = getScanner( weightsFileName );
-        
-        ArrayList<Pair> weightPairs = new ArrayList<Pair>();
-        while( sc.hasNextLine() )
+        try
         {
-            String[] line = sc.nextLine().split(" ");
-            weightPairs.add( new Pair( Double.parseDouble( line[1] ), Double.parseDouble( line[2] ) ) );
-            if( !sc.hasNextLine() ) //Add iteration count in the last Pair
-                weightPairs.add( new Pair( Double.parseDouble( line[3] ), Double.parseDouble( line[3] ) ) );
+            return WeightModel.load( Paths.get( weightsFileName ) );
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
         }
         
-        sc.close();
-        
-        return weightPairs;
+        return null;
     }
     
-    private class Pair
+    /**
+     * Method that saves the weights to the weights text file if they have changed
+     * since they were last saved
+     * @param model The weights of the features
+     */
+    private void saveWeights( WeightModel model )
     {
-        public double a, b;
-        public Pair( double a, double b ) { this.a = a; this.b = b; }
+        try
+        {
+            model.close();
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
     }
     
     /**
-     * Method that generates the Weights.txt file for the first time. The file generated
-     * will contain randomized weight scores for the feature methods being tested upon
-     * compilation. After these weights are generated by this method, this method should
-     * not be run again, unless the feature methods are changed, or unless the user wants
-     * to scrub the weight adjustments and start anew.
-     * @param weightsFileName The name of the file that holds the weights of the features
+     * Method that reads the weights of the categories from the multiclass weights text file
+     * @param weightsFileName The name of the text file with the weight data
+     * @return CentroidModel The weights, or null if the file could not be read
      */
-    private void generateWeights( String weightsFileName )
+    private CentroidModel loadCentroids( String weightsFileName )
     {
-        Scanner sc     = getScanner( weightsFileName );
-        Scanner thisSc = getScanner( "MLDetector.java" );
-        
-        LinkedHashSet<String> textFileNames          = new LinkedHashSet<String>();
-        LinkedHashSet<String> MLDetectorFeatureNames = new LinkedHashSet<String>();
+        try
+        {
+            return CentroidModel.load( Paths.get( weightsFileName ) );
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
         
-        //Get Weights.txt method names
-        while( sc.hasNextLine() )
+        return null;
+    }
+    
+    /**
+     * Method that saves the weights of the categories to the multiclass weights text file
+     * if they have changed since they were last saved
+     * @param model The weights of the categories
+     */
+    private void saveCentroids( CentroidModel model )
+    {
+        try
         {
-            String line = sc.nextLine();
-            
-            if( line.isEmpty() ) break;
-            
-            String[] parts = line.split(" ");
-            String weightName = parts[0];
-            textFileNames.add( weightName );
+            model.save();
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
         }
+    }
+    
+    /**
+     * Method that generates the multiclass weights file, unless the file already has
+     * weights for the same categories and the features listed in registerFeatures()
+     * @param weightsFileName The name of the file that holds the weights of the categories
+     * @param labels The names of the categories, in order
+     * @return CentroidModel The weights in the file, or the new random weights
+     */
+    private CentroidModel generateCentroids( String weightsFileName, List<String> labels )
+    {
+        Path weightsPath = Paths.get( weightsFileName );
         
-        //Get this file's feature method names
-        while( thisSc.hasNextLine() )
+        if( Files.exists( weightsPath ) )
         {
-            String line = thisSc.nextLine();
-            
-            if( line.trim().equals( "//Feature Grabbing Methods" ) )
-            {
-                String nextLine = thisSc.nextLine();
-                while( nextLine.contains("=") )
-                {
-                    String token = nextLine.split("=")[1].trim();
-                    String methodName = token.substring( 0, token.indexOf("(") ).trim();
-                    MLDetectorFeatureNames.add( methodName );
-                    nextLine = thisSc.nextLine();
-                }
-                break;
-            }
+            CentroidModel model = loadCentroids( weightsFileName );
+            if( model != null && model.getNames().equals( features.getNames() ) && model.getLabels().equals( labels ) )
+                return model;
         }
         
-        //See if sets are equal. If so, do not continue, we do not want to overwrite the Weights.txt file
-        if( textFileNames.equals( MLDetectorFeatureNames ) )
-            return;
-            
-        Random random = new Random();
-        DecimalFormat df = new DecimalFormat("0.##");
-        String text = "";
-        Iterator iterator = MLDetectorFeatureNames.iterator();
-        while( iterator.hasNext() )
-        {                                  // Classification 1                         Classification 2                 Iteration #
-            text += iterator.next() + " " + df.format( random.nextDouble() ) + " " + df.format( random.nextDouble() ) + " 1.0";
-            if( iterator.hasNext() )
-                text += "\n";
+        CentroidModel model = new CentroidModel( labels, features.getNames(), weightsPath, new Random() );
+        saveCentroids( model );
+        
+        return model;
+    }
+    
+    /**
+     * Method that generates the Weights.txt file for the first time. The file generated
+     * will contain randomized weight scores for the features listed in registerFeatures().
+     * After these weights are generated by this method, this method should not be run
+     * again, unless the registered features are changed, or unless the user wants
+     * to scrub the weight adjustments and start anew.
+     * @param weightsFileName The name of the file that holds the weights of the features
+     * @return WeightModel The weights in the file, or the new random weights
+     */
+    private WeightModel generateWeights( String weightsFileName )
+    {
+        Path weightsPath = Paths.get( weightsFileName );
+        
+        //Get Weights.txt method names. See if they are the same features in the same order.
+        //If so, do not continue, we do not want to overwrite the Weights.txt file
+        if( Files.exists( weightsPath ) )
+        {
+            WeightModel model = loadWeights( weightsFileName );
+            if( model != null && model.getNames().equals( features.getNames() ) )
+                return model;
         }
         
-        sc.close();
-        thisSc.close();
+        WeightModel model = new WeightModel( features.getNames(), weightsPath, new Random() );
+        saveWeights( model );
         
-        writeToFile( weightsFileName, text );
+        return model;
     }
     
     /**
@@ -883,17 +1196,16 @@ public class MLDetector
     }
     
     /**
-     * Gets a File based on the file name and the relative path
+     * Gets a File based on the file name and the relative path. The folder is only listed
+     * once, and then kept up to date (see FileIndex)
      * 
      * @param filePath The path of the File to be found
      * @return File The File found from this name. If not found, throws a FileNotFoundException
      */
     public File getFile( String filePath ) throws FileNotFoundException {
-        File dir = new File(".");
-        File[] filesList = dir.listFiles();
-        for( File file: filesList )
-            if( file.getName().equals( filePath ) )
-                return file;
+        Path file = FileIndex.of( Paths.get( "." ) ).resolve( filePath );
+        if( file != null )
+            return file.toFile();
     
         throw new FileNotFoundException("File not found. Path of file not found: " + filePath );
     }
@@ -924,13 +1236,56 @@ public class MLDetector
      * @return ArrayList<File> A list of files with that str in its name
      */
     public ArrayList<File> getImageFiles( String str ) {
-        File dir = new File("..\\images\\");
-        File[] filesList = dir.listFiles();
         ArrayList<File> foundFiles = new ArrayList<File>();
+        for( Path file: FileIndex.of( Paths.get( "..", "images" ) ).getFiles() )
+            if( file.getFileName().toString().contains( str ) )
+                foundFiles.add( file.toFile() );
+        
+        return foundFiles;
+    }
+    
+    /**
+     * Gets the names of the categories in a set of labeled images, which are the names
+     * of the folders in the set
+     * 
+     * @param setFolder The folder with one folder of images for each category
+     * @return ArrayList<String> The names of the categories, sorted
+     */
+    public ArrayList<String> getLabels( Path setFolder ) {
+        ArrayList<String> labels = new ArrayList<String>();
+        File[] filesList = setFolder.toFile().listFiles();
+        if( filesList == null ) {
+            SOPln( "No labeled images found. Path of folder not found: " + setFolder );
+            return labels;
+        }
+        
         for( File file: filesList )
-            if( file.getName().contains( str ) )
-                foundFiles.add( file );
+            if( file.isDirectory() )
+                labels.add( file.getName() );
+        
+        Collections.sort( labels );
+        return labels;
+    }
+    
+    /**
+     * Gets the image files of every category in a set of labeled images
+     * 
+     * @param setFolder The folder with one folder of images for each category
+     * @param labels The names of the categories
+     * @return ArrayList<File> The image files, sorted, so that the same seed always gives the same order
+     */
+    public ArrayList<File> getLabeledImageFiles( Path setFolder, List<String> labels ) {
+        ArrayList<File> foundFiles = new ArrayList<File>();
+        for( String label: labels ) {
+            File[] filesList = setFolder.resolve( label ).toFile().listFiles();
+            if( filesList == null ) continue;
+            
+            for( File file: filesList )
+                if( file.isFile() && !file.isHidden() )
+                    foundFiles.add( file );
+        }
         
+        Collections.sort( foundFiles );
         return foundFiles;
     }
     
@@ -11,9 +11,18 @@ public class MLRunner
         System.out.print('\u000C'); //Clear terminal
         
         MLDetector mld = new MLDetector();
-        mld.runDetector( 80    /*iterations*/,
+        mld.runDetector( 80    /*iterations -- the most images used in each epoch*/,
+                         1     /*epochs -- the number of passes over the images*/,
+                         2022L /*seed -- the same seed uses the images in the same order*/,
                          true  /*usingTrainingData -- change this to false if using test data*/,
                          false /*promptUser -- change this to true to have the user determine the labeling*/
                        );
+        
+        //Trains every category in "Training Sets" at once, instead of two at a time
+        //mld.runMulticlassDetector( 400   /*iterations -- the most images used in each epoch*/,
+        //                           1     /*epochs -- the number of passes over the images*/,
+        //                           2022L /*seed -- the same seed uses the images in the same order*/,
+        //                           true  /*usingTrainingData -- change this to false if using test data*/
+        //                         );
     }
 }
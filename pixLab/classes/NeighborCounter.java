@@ -0,0 +1,120 @@
+/**
+ * A class that counts the white neighbors of the pixels of a BinaryImage, 64 pixels at a time.
+ *
+ * The 8 neighbors of every pixel of a word are found by shifting the words of the row above,
+ * the row itself, and the row below one bit left and right (with the bit that falls off the
+ * end of a word taken from the word next to it). The 8 shifted words are then added together
+ * with bitwise adders, the same way a circuit adds bits: bit k of counts[p] is bit p of the
+ * count of the pixel in column k of the word. Each count is from 0 to 8, so 4 of these bit
+ * planes hold the counts of 64 pixels, and finding every pixel with at most x white neighbors
+ * is a handful of ANDs and ORs per word instead of 8 reads per pixel.
+ *
+ *     long[][] counts = new long[ NeighborCounter.PLANES ][ bw.getWordsPerRow() ];
+ *     long[] lonely = new long[ bw.getWordsPerRow() ];
+ *     NeighborCounter.countRow( bw, row, counts );
+ *     NeighborCounter.atMost( counts, 1, lonely ); //pixels with 0 or 1 white neighbors
+ *
+ * Pixels past the edges of the image count as black.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class NeighborCounter
+{
+    /* The number of bit planes needed to hold a count from 0 to 8 */
+    public static final int PLANES = 4;
+
+    /**
+     * Method that counts the white neighbors of every pixel of a row
+     * @param bw The image
+     * @param row The row
+     * @param counts The counts are put here, as PLANES bit planes of getWordsPerRow() words each.
+     *               Bit k of counts[p][word] is bit p of the count of column word * 64 + k
+     */
+    public static void countRow( BinaryImage bw, int row, long[][] counts )
+    {
+        final int WORDS = bw.getWordsPerRow();
+        long[] words = bw.getWords();
+        int above = row > 0                   ? bw.rowStart( row - 1 ) : -1;
+        int middle = bw.rowStart( row );
+        int below = row < bw.getHeight() - 1 ? bw.rowStart( row + 1 ) : -1;
+
+        for( int word = 0; word < WORDS; word++ )
+        {
+            //Column - 1 is one bit lower, so it is shifted left, and column + 1 is shifted right
+            long up    = wordAt( words, above, word, WORDS );
+            long upL   = (up << 1)  | (wordAt( words, above, word - 1, WORDS ) >>> 63);
+            long upR   = (up >>> 1) | (wordAt( words, above, word + 1, WORDS ) << 63);
+            long left  = (words[ middle + word ] << 1)  | (wordAt( words, middle, word - 1, WORDS ) >>> 63);
+            long right = (words[ middle + word ] >>> 1) | (wordAt( words, middle, word + 1, WORDS ) << 63);
+            long down  = wordAt( words, below, word, WORDS );
+            long downL = (down << 1)  | (wordAt( words, below, word - 1, WORDS ) >>> 63);
+            long downR = (down >>> 1) | (wordAt( words, below, word + 1, WORDS ) << 63);
+
+            //Three full adders and a half adder give the ones bit and four twos
+            long sumA   = upL ^ up ^ upR;
+            long carryA = (upL & up) | (upR & (upL ^ up));
+            long sumB   = left ^ right ^ downL;
+            long carryB = (left & right) | (downL & (left ^ right));
+            long sumC   = down ^ downR;
+            long carryC = down & downR;
+            long ones   = sumA ^ sumB ^ sumC;
+            long carryD = (sumA & sumB) | (sumC & (sumA ^ sumB));
+
+            //The four twos give the twos bit and two fours, which give the fours and eights bits
+            long twosAB  = carryA ^ carryB ^ carryC;
+            long foursAB = (carryA & carryB) | (carryC & (carryA ^ carryB));
+            long twos    = twosAB ^ carryD;
+            long foursD  = twosAB & carryD;
+
+            counts[0][word] = ones;
+            counts[1][word] = twos;
+            counts[2][word] = foursAB ^ foursD;
+            counts[3][word] = foursAB & foursD;
+        }
+    }
+
+    /**
+     * Method to get a word of a row, or 0 if the row or word is past the edge of the image
+     * @param words The words of the image
+     * @param start The index of the first word of the row, or -1 if the row is past the edge
+     * @param word The index of the word within the row
+     * @param wordsPerRow The number of words in a row
+     * @return long The word
+     */
+    private static long wordAt( long[] words, int start, int word, int wordsPerRow )
+    {
+        if( start < 0 || word < 0 || word >= wordsPerRow ) return 0L;
+        return words[ start + word ];
+    }
+
+    /**
+     * Method to find the pixels whose count is at most a limit
+     * @param counts The counts, from countRow(...)
+     * @param limit The largest count allowed
+     * @param mask Bit k of mask[word] is set if the count of that pixel is at most limit
+     */
+    public static void atMost( long[][] counts, int limit, long[] mask )
+    {
+        for( int word = 0; word < mask.length; word++ )
+        {
+            if( limit < 0 )  { mask[word] = 0L;  continue; }
+            if( limit >= 8 ) { mask[word] = -1L; continue; }
+
+            //Compare the counts to the limit from the highest bit down
+            long less  = 0L;
+            long equal = -1L;
+            for( int plane = PLANES - 1; plane >= 0; plane-- )
+            {
+                long bits = counts[plane][word];
+                if( ((limit >> plane) & 1) != 0 )
+                {
+                    less  |= equal & ~bits;
+                    equal &= bits;
+                }
+                else
+                    equal &= ~bits;
+            }
+            mask[word] = less | equal;
+        }
+    }
+}
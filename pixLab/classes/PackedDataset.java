@@ -0,0 +1,505 @@
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class that packs a folder of labeled images (such as "Training Sets/training", which
+ * has one folder of images for each category) into one file, and reads it back.
+ *
+ * Reading hundreds of small image files means opening each file and decoding each image.
+ * A packed file is opened once and memory-mapped, and each image is a slice of the mapped
+ * file, so no image is decoded or copied until it is turned into a Picture or BinaryImage.
+ *
+ * Every image in the file is the same size, which is the size of the first image when the
+ * file is packed. Images of other sizes are scaled to fit. The file is:
+ *
+ *     header:  int magic | int version | int format | int width | int height
+ *              | int label count | int sample count | int 0
+ *     labels:  for each label,  short length | UTF-8 bytes of the category name
+ *     names:   for each sample, short length | UTF-8 bytes of the image file name
+ *     (padding to a multiple of 8 bytes)
+ *     samples: for each sample, int label index | int flags | long content hash | pixels
+ *
+ * The content hash is FeatureCache.hashContent(...) of the image file, so saved feature
+ * values can be looked up without the file. The flags say whether the image was scaled
+ * to fit (see isScaled(...)), since a scaled image is not the same as its file. The pixels are one gray level byte for each
+ * pixel (GRAY), or the words of the image's BinaryImage (BITS), row by row. Each sample is
+ * padded to a multiple of 8 bytes.
+ *
+ *     PackedDataset.pack( setFolder, packFile, PackedDataset.Format.BITS );
+ *     PackedDataset data = new PackedDataset( packFile );
+ *     for( int sample = 0; sample < data.size(); sample++ )
+ *         SOPln( data.getLabelName( sample ) + ": " + data.toBinaryImage( sample ).whiteCount() );
+ *     data.close();
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class PackedDataset
+{
+    /** How the pixels of each image are stored */
+    public enum Format
+    {
+        GRAY, //one byte for each pixel, which is its gray level (see ColorConversion.toGrayLevel(...))
+        BITS  //one bit for each pixel, which is the pixel of Picture.toBinaryImage()
+    }
+
+    private static final int MAGIC        = 0x504B4453; //"PKDS"
+    private static final int VERSION      = 2;
+    private static final int SCALED       = 1; //the flag of a sample that was scaled to fit
+    private static final int HEADER_BYTES = 32;
+    private static final int SAMPLE_HEADER_BYTES = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Format format;
+    private final int width;
+    private final int height;
+    private final List<String> labels;
+    private final String[] names;
+    private final int samplesStart;
+    private final int sampleBytes;
+
+    /**
+     * Opens a packed file and maps it into memory
+     * @param path The packed file
+     * @throws IOException if the file cannot be read, or is not a packed file of this version
+     */
+    public PackedDataset( Path path ) throws IOException
+    {
+        this.path    = path;
+        this.channel = FileChannel.open( path, StandardOpenOption.READ );
+        try
+        {
+            long size = channel.size();
+            if( size < HEADER_BYTES || size > Integer.MAX_VALUE )
+                throw new IOException( path + " is not a packed dataset" );
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+
+            if( buffer.getInt() != MAGIC || buffer.getInt() != VERSION )
+                throw new IOException( path + " is not a packed dataset of version " + VERSION );
+            int formatIndex = buffer.getInt();
+            width  = buffer.getInt();
+            height = buffer.getInt();
+            int labelCount  = buffer.getInt();
+            int sampleCount = buffer.getInt();
+            buffer.getInt();
+            if( formatIndex < 0 || formatIndex >= Format.values().length || width <= 0 || height <= 0 ||
+                labelCount < 0 || sampleCount < 0 )
+                throw new IOException( path + " has a bad header" );
+            format = Format.values()[ formatIndex ];
+
+            ArrayList<String> labelList = new ArrayList<String>();
+            for( int label = 0; label < labelCount; label++ )
+                labelList.add( readString( buffer ) );
+            labels = Collections.unmodifiableList( labelList );
+
+            names = new String[ sampleCount ];
+            for( int sample = 0; sample < sampleCount; sample++ )
+                names[sample] = readString( buffer );
+
+            samplesStart = align( buffer.position() );
+            sampleBytes  = sampleBytes( format, width, height );
+            if( samplesStart + (long)sampleCount * sampleBytes > size )
+                throw new IOException( path + " says it has " + sampleCount + " samples, but is too short" );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException( path + " is not a packed dataset", e );
+        }
+    }
+
+    /**
+     * Method to read a string that was written as a short length and UTF-8 bytes
+     * @param buffer The buffer, whose position is moved past the string
+     * @return String The string
+     */
+    private static String readString( ByteBuffer buffer )
+    {
+        byte[] bytes = new byte[ buffer.getShort() & 0xFFFF ];
+        buffer.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Method to round a number of bytes up to a multiple of 8
+     * @param bytes The number of bytes
+     * @return int The bytes, rounded up
+     */
+    private static int align( int bytes ) { return (bytes + 7) & ~7; }
+
+    /**
+     * Method to find the number of bytes of each sample
+     * @param format How the pixels are stored
+     * @param width The width of the images
+     * @param height The height of the images
+     * @return int The bytes of each sample, including the label and content hash
+     */
+    private static int sampleBytes( Format format, int width, int height )
+    {
+        int pixelBytes = format == Format.GRAY ? width * height : ((width + 63) >>> 6) * 8 * height;
+        return align( SAMPLE_HEADER_BYTES + pixelBytes );
+    }
+
+    /** @return Path The packed file */
+    public Path getPath()             { return path;          }
+    /** @return Format How the pixels of each image are stored */
+    public Format getFormat()         { return format;        }
+    /** @return int The width of every image */
+    public int getWidth()             { return width;         }
+    /** @return int The height of every image */
+    public int getHeight()            { return height;        }
+    /** @return int The number of images */
+    public int size()                 { return names.length;  }
+    /** @return List<String> The names of the categories, sorted */
+    public List<String> getLabels()   { return labels;        }
+
+    /**
+     * @param sample The index of an image
+     * @return String The file name of the image
+     */
+    public String getName( int sample ) { return names[sample]; }
+
+    /**
+     * @param sample The index of an image
+     * @return int The index of the category of the image in getLabels()
+     */
+    public int getLabel( int sample ) { return buffer.getInt( sampleStart( sample ) ); }
+
+    /**
+     * @param sample The index of an image
+     * @return String The name of the category of the image
+     */
+    public String getLabelName( int sample ) { return labels.get( getLabel( sample ) ); }
+
+    /**
+     * @param sample The index of an image
+     * @return boolean True if the image was a different size than the packed images, and
+     *                 was scaled to fit, so its pixels are not the pixels of its file
+     */
+    public boolean isScaled( int sample ) { return (buffer.getInt( sampleStart( sample ) + 4 ) & SCALED) != 0; }
+
+    /**
+     * @param sample The index of an image
+     * @return long The FeatureCache.hashContent(...) of the image file
+     */
+    public long getContentHash( int sample ) { return buffer.getLong( sampleStart( sample ) + 8 ); }
+
+    /**
+     * Method to get the stored pixels of an image, without copying them
+     * @param sample The index of an image
+     * @return ByteBuffer A read-only slice of the mapped file with the pixels of the image,
+     *                    as described by getFormat()
+     */
+    public ByteBuffer getPixels( int sample )
+    {
+        int pixelBytes = format == Format.GRAY ? width * height : ((width + 63) >>> 6) * 8 * height;
+        return buffer.slice( sampleStart( sample ) + SAMPLE_HEADER_BYTES, pixelBytes ).asReadOnlyBuffer();
+    }
+
+    /**
+     * Method to find where an image starts in the file
+     * @param sample The index of the image
+     * @return int The offset of the image
+     * @throws IndexOutOfBoundsException if there is no image with this index
+     */
+    private int sampleStart( int sample )
+    {
+        if( sample < 0 || sample >= names.length )
+            throw new IndexOutOfBoundsException( "Sample " + sample + " is not in " + path );
+
+        return samplesStart + sample * sampleBytes;
+    }
+
+    /**
+     * Method to make a BinaryImage of an image. GRAY images are split into black and white
+     * the same way as Picture.toBinaryImage()
+     * @param sample The index of the image
+     * @return BinaryImage The black and white image
+     */
+    public BinaryImage toBinaryImage( int sample )
+    {
+        if( format == Format.GRAY ) return toPicture( sample ).toBinaryImage();
+
+        BinaryImage bw = new BinaryImage( width, height );
+        getPixels( sample ).asLongBuffer().get( bw.getWords() );
+        return bw;
+    }
+
+    /**
+     * Method to make a Picture of an image
+     * @param sample The index of the image
+     * @return Picture The picture, which is gray, or black and white for BITS images
+     */
+    public Picture toPicture( int sample )
+    {
+        if( format == Format.BITS ) return toBinaryImage( sample ).toPicture();
+
+        Picture pic = new Picture( height, width );
+        PixelRaster raster = pic.getPixelRaster();
+        ByteBuffer pixels = getPixels( sample );
+        for( int row = 0, pixel = 0; row < height; row++ )
+            for( int col = 0, index = raster.index( 0, row ); col < width; col++, index++, pixel++ )
+                raster.setAt( index, 0xFF000000 | ((pixels.get( pixel ) & 0xFF) * 0x010101) );
+
+        return pic;
+    }
+
+    /**
+     * Method that closes the packed file. Slices from getPixels(...) must not be used afterwards
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Method that packs a folder of labeled images into one file. Each folder inside of the
+     * set folder is a category, and holds the images of that category
+     * @param setFolder The folder with one folder of images for each category
+     * @param packFile The packed file to write. It is replaced if it already exists
+     * @param format How the pixels of each image are stored
+     * @return int The number of images packed
+     * @throws IOException if an image cannot be read, or the packed file cannot be written
+     */
+    public static int pack( Path setFolder, Path packFile, Format format ) throws IOException
+    {
+        ArrayList<String> labels = new ArrayList<String>();
+        File[] folders = setFolder.toFile().listFiles( File::isDirectory );
+        if( folders == null ) throw new IOException( "The folder " + setFolder + " was not found" );
+        for( File folder : folders )
+            labels.add( folder.getName() );
+        Collections.sort( labels );
+
+        ArrayList<File> files = new ArrayList<File>();
+        ArrayList<Integer> fileLabels = new ArrayList<Integer>();
+        for( int label = 0; label < labels.size(); label++ )
+        {
+            File[] images = setFolder.resolve( labels.get( label ) ).toFile().listFiles( PackedDataset::isImageFile );
+            if( images == null ) continue;
+
+            Arrays.sort( images );
+            for( File image : images )
+            {
+                files.add( image );
+                fileLabels.add( label );
+            }
+        }
+
+        return pack( labels, files, fileLabels, packFile, format );
+    }
+
+    /**
+     * Method that packs a list of labeled image files into one file
+     * @param labels The names of the categories
+     * @param files The image files
+     * @param fileLabels The index in labels of the category of each file
+     * @param packFile The packed file to write. It is replaced if it already exists
+     * @param format How the pixels of each image are stored
+     * @return int The number of images packed
+     * @throws IOException if an image cannot be read, or the packed file cannot be written
+     */
+    public static int pack( List<String> labels, List<File> files, List<Integer> fileLabels, Path packFile,
+                            Format format ) throws IOException
+    {
+        int width = 1, height = 1;
+        if( !files.isEmpty() )
+        {
+            Dimension first = SimplePicture.getImageSize( files.get( 0 ).getPath() );
+            width  = first.width;
+            height = first.height;
+        }
+
+        Path dir = packFile.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile( dir, packFile.getFileName().toString(), ".tmp" );
+        try
+        {
+            try( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( temp ) ) ) )
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeInt( format.ordinal() );
+                out.writeInt( width );
+                out.writeInt( height );
+                out.writeInt( labels.size() );
+                out.writeInt( files.size() );
+                out.writeInt( 0 );
+
+                for( String label : labels )
+                    writeString( out, label );
+                for( File file : files )
+                    writeString( out, file.getName() );
+                while( out.size() % 8 != 0 )
+                    out.writeByte( 0 );
+
+                int sampleBytes = sampleBytes( format, width, height );
+                for( int sample = 0; sample < files.size(); sample++ )
+                {
+                    File file = files.get( sample );
+                    int start = out.size();
+                    BufferedImage image = read( file, width, height );
+                    boolean scaled = image.getWidth() != width || image.getHeight() != height;
+                    out.writeInt( fileLabels.get( sample ) );
+                    out.writeInt( scaled ? SCALED : 0 );
+                    out.writeLong( FeatureCache.hashContent( file.toPath() ) );
+                    writePixels( out, new Picture( scale( image, width, height ) ), format );
+                    while( out.size() - start < sampleBytes )
+                        out.writeByte( 0 );
+                }
+            }
+
+            try
+            {
+                Files.move( temp, packFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, packFile, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+
+        return files.size();
+    }
+
+    /**
+     * Method to write a string as a short length and UTF-8 bytes
+     * @param out The stream to write to
+     * @param text The string
+     * @throws IOException if the string is too long or cannot be written
+     */
+    private static void writeString( DataOutputStream out, String text ) throws IOException
+    {
+        byte[] bytes = text.getBytes( StandardCharsets.UTF_8 );
+        if( bytes.length > 0xFFFF ) throw new IOException( "The name " + text + " is too long" );
+
+        out.writeShort( bytes.length );
+        out.write( bytes );
+    }
+
+    /**
+     * Method to write the pixels of a picture
+     * @param out The stream to write to
+     * @param pic The picture
+     * @param format How the pixels are stored
+     * @throws IOException if the pixels cannot be written
+     */
+    private static void writePixels( DataOutputStream out, Picture pic, Format format ) throws IOException
+    {
+        if( format == Format.BITS )
+        {
+            for( long word : pic.toBinaryImage().getWords() )
+                out.writeLong( word );
+            return;
+        }
+
+        PixelRaster raster = pic.getPixelRaster();
+        for( int row = 0; row < raster.getHeight(); row++ )
+            for( int col = 0, index = raster.index( 0, row ); col < raster.getWidth(); col++, index++ )
+                out.writeByte( ColorConversion.toGrayLevel( raster.getAt( index ) ) );
+    }
+
+    /**
+     * Method to read an image file. Images that are at least twice as big as the packed size
+     * are subsampled while they are read, so only the pixels that are needed are decoded
+     * @param file The image file
+     * @param width The width of the packed images
+     * @param height The height of the packed images
+     * @return BufferedImage The image, which is at least width x height if the file is
+     * @throws IOException if the file cannot be read as an image
+     */
+    private static BufferedImage read( File file, int width, int height ) throws IOException
+    {
+        Dimension size = SimplePicture.getImageSize( file.getPath() );
+        int subsampling = Math.max( 1, Math.min( size.width / width, size.height / height ) );
+
+        Picture pic = new Picture();
+        pic.loadOrFail( file.getPath(), subsampling, null );
+        return pic.getBufferedImage();
+    }
+
+    /**
+     * Method to scale an image to a size, if it is not that size already
+     * @param image The image
+     * @param width The width to scale to
+     * @param height The height to scale to
+     * @return BufferedImage The image, or a scaled copy of it
+     */
+    private static BufferedImage scale( BufferedImage image, int width, int height )
+    {
+        if( image.getWidth() == width && image.getHeight() == height ) return image;
+
+        BufferedImage scaled = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.drawImage( image, 0, 0, width, height, null );
+        graphics.dispose();
+        return scaled;
+    }
+
+    /**
+     * Method that determines whether a file is an image that can be packed
+     * @param file The file
+     * @return boolean True if the file is a .jpg, .jpeg, .png, .gif, or .bmp file
+     */
+    private static boolean isImageFile( File file )
+    {
+        String name = file.getName().toLowerCase();
+        return file.isFile() && (name.endsWith( ".jpg" ) || name.endsWith( ".jpeg" ) || name.endsWith( ".png" ) ||
+                                 name.endsWith( ".gif" ) || name.endsWith( ".bmp" ));
+    }
+
+    /**
+     * Method that determines whether a packed file has the same images as a list of image
+     * files, stored the same way, and is newer than all of them
+     * @param packFile The packed file
+     * @param files The image files
+     * @param format How the pixels of each image should be stored
+     * @return boolean True if the packed file can be used instead of the image files
+     */
+    public static boolean isUpToDate( Path packFile, List<File> files, Format format )
+    {
+        File pack = packFile.toFile();
+        if( !pack.isFile() ) return false;
+
+        long packed = pack.lastModified();
+        for( File file : files )
+            if( file.lastModified() > packed ) return false;
+
+        try
+        {
+            PackedDataset data = new PackedDataset( packFile );
+            boolean same = data.getFormat() == format && data.size() == files.size();
+            for( int sample = 0; same && sample < files.size(); sample++ )
+                same = data.getName( sample ).equals( files.get( sample ).getName() ) &&
+                       data.getLabelName( sample ).equals( files.get( sample ).getParentFile().getName() );
+            data.close();
+            return same;
+        }
+        catch( IOException e )
+        {
+            return false;
+        }
+    }
+}
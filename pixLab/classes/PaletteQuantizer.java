@@ -0,0 +1,261 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * A class that changes each color of a picture to the closest color in a palette.
+ *
+ * Closest means the smallest Pixel.colorDistanceAdvanced(..), which weighs red, green,
+ * and blue by how well the eye tells them apart. As in minimizeColors(), only distances
+ * less than MAX_DISTANCE count, the first palette color wins a tie, and a color that is
+ * not close enough to any palette color becomes the first palette color.
+ *
+ * Instead of measuring the distance to every palette color for every pixel, the RGB cube
+ * is split into 32 x 32 x 32 cells of 8 x 8 x 8 colors. When the quantizer is made, the
+ * smallest and largest possible distance from each cell to each palette color is found.
+ * If one palette color is always closer than the others everywhere in the cell, the cell
+ * stores that color, and every pixel in it takes one table lookup. Otherwise, the cell
+ * stores the short list of palette colors that could be closest, and pixels in the cell
+ * are measured against just those. The answers are exactly the same as measuring against
+ * the whole palette.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class PaletteQuantizer
+{
+    /* Distances must be less than this to count, the same as in minimizeColors() */
+    public static final double MAX_DISTANCE = 255.0 * 3.0;
+
+    /* MAX_DISTANCE squared, which is compared to weightedDistance(..) */
+    private static final int MAX_WEIGHTED = 765 * 765;
+
+    /* The number of bits of each color used to pick a cell, and the colors across a cell */
+    private static final int CELL_BITS = 5;
+    private static final int CELL_SIZE = 1 << (8 - CELL_BITS);
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+
+    private final int[] palette;
+
+    /* For each cell, the palette index if the cell has one answer, or -1 - the start of its candidates */
+    private final int[] cells;
+
+    /* The candidate lists of the cells without one answer. Each list is its length followed by indices */
+    private final int[] candidates;
+
+    /**
+     * Creates a quantizer for a palette of colors
+     * @param colors The palette
+     */
+    public PaletteQuantizer( Color... colors )
+    {
+        this( toRGB( colors ) );
+    }
+
+    /**
+     * Creates a quantizer for a palette of colors
+     * @param palette The palette, as packed RGB ints. The alpha bits are ignored
+     * @throws IllegalArgumentException if the palette is empty
+     */
+    public PaletteQuantizer( int[] palette )
+    {
+        if( palette.length == 0 ) throw new IllegalArgumentException( "The palette must have at least one color" );
+
+        this.palette = new int[ palette.length ];
+        for( int index = 0; index < palette.length; index++ )
+            this.palette[index] = palette[index] & 0xFFFFFF;
+
+        final int CELLS = 1 << (3 * CELL_BITS);
+        cells = new int[ CELLS ];
+        int[] lists = new int[ 1024 ];
+        int listsLength = 0;
+
+        int[] minDistance = new int[ palette.length ];
+        int[] maxDistance = new int[ palette.length ];
+        for( int cell = 0; cell < CELLS; cell++ )
+        {
+            int redLow   = (cell >> (2 * CELL_BITS)) * CELL_SIZE;
+            int greenLow = ((cell >> CELL_BITS) & CELL_MASK) * CELL_SIZE;
+            int blueLow  = (cell & CELL_MASK) * CELL_SIZE;
+
+            //The closest color is never farther than the nearest largest distance
+            int bound = Integer.MAX_VALUE;
+            for( int index = 0; index < palette.length; index++ )
+            {
+                cellDistances( this.palette[index], redLow, greenLow, blueLow, minDistance, maxDistance, index );
+                bound = Math.min( bound, maxDistance[index] );
+            }
+
+            //Palette colors whose smallest distance is past the bound are never the answer
+            int count = 0;
+            int only = 0;
+            for( int index = 0; index < palette.length; index++ )
+            {
+                if( minDistance[index] > bound ) continue;
+
+                count++;
+                only = index;
+            }
+
+            if( count == 1 && maxDistance[only] < MAX_WEIGHTED )
+            {
+                cells[cell] = only;
+                continue;
+            }
+
+            if( listsLength + count + 1 > lists.length )
+                lists = Arrays.copyOf( lists, Math.max( lists.length * 2, listsLength + count + 1 ) );
+            cells[cell] = -1 - listsLength;
+            lists[ listsLength++ ] = count;
+            for( int index = 0; index < palette.length; index++ )
+                if( minDistance[index] <= bound )
+                    lists[ listsLength++ ] = index;
+        }
+
+        candidates = Arrays.copyOf( lists, listsLength );
+    }
+
+    /**
+     * Method to convert colors to packed RGB ints
+     * @param colors The colors
+     * @return int[] The RGB of each color
+     */
+    private static int[] toRGB( Color[] colors )
+    {
+        int[] rgb = new int[ colors.length ];
+        for( int index = 0; index < colors.length; index++ )
+            rgb[index] = colors[index].getRGB();
+
+        return rgb;
+    }
+
+    /**
+     * Method to find the smallest and largest weighted distance between a palette color and
+     * the colors of a cell. For each red in the cell, the green and blue parts are smallest
+     * (or largest) at the green and blue of the cell closest to (or farthest from) the palette
+     * color, so only the reds need to be checked one by one
+     * @param rgb The palette color
+     * @param redLow The smallest red of the cell
+     * @param greenLow The smallest green of the cell
+     * @param blueLow The smallest blue of the cell
+     * @param minDistance The smallest distance is put here, at index
+     * @param maxDistance The largest distance is put here, at index
+     * @param index The index of the palette color
+     */
+    private static void cellDistances( int rgb, int redLow, int greenLow, int blueLow,
+                                       int[] minDistance, int[] maxDistance, int index )
+    {
+        int red   = (rgb >> 16) & 0xFF;
+        int green = (rgb >> 8) & 0xFF;
+        int blue  = rgb & 0xFF;
+
+        int greenNear = nearest( green, greenLow ), greenFar = farthest( green, greenLow );
+        int blueNear  = nearest( blue, blueLow ),   blueFar  = farthest( blue, blueLow );
+
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for( int cellRed = redLow; cellRed < redLow + CELL_SIZE; cellRed++ )
+        {
+            int rmean = (cellRed + red) >> 1;
+            int r = cellRed - red;
+            int redPart = ((512 + rmean) * r * r) >> 8;
+            min = Math.min( min, redPart + 4 * greenNear * greenNear + (((767 - rmean) * blueNear * blueNear) >> 8) );
+            max = Math.max( max, redPart + 4 * greenFar * greenFar + (((767 - rmean) * blueFar * blueFar) >> 8) );
+        }
+
+        minDistance[index] = min;
+        maxDistance[index] = max;
+    }
+
+    /**
+     * Method to find the smallest difference between a value and the values of a cell
+     * @param value The value
+     * @param low The smallest value of the cell
+     * @return int The smallest difference
+     */
+    private static int nearest( int value, int low )
+    {
+        if( value < low )              return low - value;
+        if( value >= low + CELL_SIZE ) return value - (low + CELL_SIZE - 1);
+        return 0;
+    }
+
+    /**
+     * Method to find the largest difference between a value and the values of a cell
+     * @param value The value
+     * @param low The smallest value of the cell
+     * @return int The largest difference
+     */
+    private static int farthest( int value, int low )
+    {
+        return Math.max( Math.abs( value - low ), Math.abs( value - (low + CELL_SIZE - 1) ) );
+    }
+
+    /**
+     * Method to find the square of Pixel.colorDistanceAdvanced(..) between two colors,
+     * without the square root. The square root keeps the order of distances, so the
+     * closest color is the same
+     * @param rgb1 The first color, as a packed RGB int
+     * @param rgb2 The second color, as a packed RGB int
+     * @return int The squared distance
+     */
+    public static int weightedDistance( int rgb1, int rgb2 )
+    {
+        int red1 = (rgb1 >> 16) & 0xFF;
+        int red2 = (rgb2 >> 16) & 0xFF;
+        int rmean = (red1 + red2) >> 1;
+        int r = red1 - red2;
+        int g = ((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF);
+        int b = (rgb1 & 0xFF) - (rgb2 & 0xFF);
+
+        return (((512 + rmean) * r * r) >> 8) + 4 * g * g + (((767 - rmean) * b * b) >> 8);
+    }
+
+    /** @return int The number of colors in the palette */
+    public int size() { return palette.length; }
+
+    /** @return int[] A copy of the palette, as packed RGB ints */
+    public int[] getPalette() { return palette.clone(); }
+
+    /**
+     * Method to find the closest palette color to a color
+     * @param rgb The color, as a packed RGB int. The alpha bits are ignored
+     * @return int The index of the closest palette color
+     */
+    public int indexOf( int rgb )
+    {
+        int cell = (((rgb >> (24 - CELL_BITS)) & CELL_MASK) << (2 * CELL_BITS)) |
+                   (((rgb >> (16 - CELL_BITS)) & CELL_MASK) << CELL_BITS) |
+                   ((rgb >> (8 - CELL_BITS)) & CELL_MASK);
+        int entry = cells[cell];
+        if( entry >= 0 ) return entry;
+
+        //Measure against the colors that could be closest, in palette order
+        int start = -1 - entry;
+        int closest = 0;
+        int closestDistance = MAX_WEIGHTED;
+        for( int rep = start + 1; rep <= start + candidates[start]; rep++ )
+        {
+            int index = candidates[rep];
+            int distance = weightedDistance( rgb, palette[index] );
+            if( distance < closestDistance )
+            {
+                closestDistance = distance;
+                closest = index;
+            }
+        }
+
+        return closest;
+    }
+
+    /**
+     * Method to change a color to the closest palette color
+     * @param argb The color, as a packed ARGB int
+     * @return int The closest palette color, as a packed ARGB int with the same alpha
+     */
+    public int quantize( int argb ) { return (argb & 0xFF000000) | palette[ indexOf( argb ) ]; }
+
+    /**
+     * Method that changes every pixel of a picture to the closest palette color
+     * @param pixels The pixels of the picture, which are changed
+     */
+    public void apply( PixelRaster pixels ) { TileScheduler.apply( pixels, this::quantize ); }
+}
@@ -15,6 +15,10 @@ import java.util.List; // resolves problem with java.awt.List and java.util.List
  */
 public class Picture extends SimplePicture 
 {
+    /* Pixels whose red + green + blue is less than this become Color.BLACK in toBW() */
+    private static final int COLOR_SPLIT = 110;
+    private static final int BW_LINE     = COLOR_SPLIT*3 - 1;
+    
     ///////////////////// constructors //////////////////////////////////
 
     /**
@@ -38,6 +42,19 @@ public class Picture extends SimplePicture
         super(fileName);
     }
 
+    /**
+     * Constructor that takes a file name and creates the picture from part 
+     * of the file, or a smaller version of it, without reading the rest of
+     * the pixels (see SimplePicture.loadOrFail(String,int,Rectangle))
+     * @param fileName the name of the file to create the picture from
+     * @param subsampling only every subsampling-th pixel across and down is read
+     * @param region the part of the image to read, or null for all of it
+     */
+    public Picture(String fileName, int subsampling, Rectangle region)
+    {
+        super(fileName,subsampling,region);
+    }
+
     /**
      * Constructor that takes the width and height
      * @param height the height of the desired picture
@@ -91,18 +108,31 @@ public class Picture extends SimplePicture
      */
     public void addGrid( int interval, Color color )
     {
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = interval; row < pixels.length; row += interval )
-            for( int col = 0; col < pixels[0].length; col++ )
-                pixels[row][col].setColor( color );
-        
-        for( int col = interval; col < pixels[0].length; col += interval )
-            for( int row = 0; row < pixels.length; row++ )
-                pixels[row][col].setColor( color );
+        PixelRaster raster = this.getPixelRaster();
+        int rgb = color.getRGB() & 0xFFFFFF;
+        for( int row = interval; row < raster.getHeight(); row += interval )
+            for( int col = 0; col < raster.getWidth(); col++ )
+                setRGBKeepAlpha( raster, raster.index( col, row ), rgb );
+        
+        for( int col = interval; col < raster.getWidth(); col += interval )
+            for( int row = 0; row < raster.getHeight(); row++ )
+                setRGBKeepAlpha( raster, raster.index( col, row ), rgb );
+    }
+    
+    /**
+     * Method that sets the red, green, and blue of a pixel in a raster, but
+     * keeps its alpha, the same as Pixel.setColor(..) does
+     * @param raster The raster of the picture
+     * @param index The index of the pixel in the raster
+     * @param rgb The new red, green, and blue of the pixel (the alpha bits are ignored)
+     */
+    private static void setRGBKeepAlpha( PixelRaster raster, int index, int rgb )
+    {
+        raster.setAt( index, (raster.getAt( index ) & 0xFF000000) | (rgb & 0xFFFFFF) );
     }
     
     /**Method that paints this Picture to be all one color*/
-    public void allToColor( Color color ) { allToColor( this.getPixels2D(), color ); }
+    public void allToColor( Color color ) { this.setAllPixelsToAColor( color ); }
     /**
      * Method that paints the pixel section to be all one color
      * @param color The color to paint this Picture
@@ -130,544 +160,46 @@ public class Picture extends SimplePicture
      */
     public void clearIslands( int pixelIslandLimit, boolean includeDiagonals, Color origColor, Color newColor )
     {
-        Pixel[][] pixels = this.getPixels2D();
-        Neighbor[][] imageNeighbors = new Neighbor[ pixels.length ][ pixels[0].length ];
-        for( int row = 0; row < pixels.length; row++ )
+        PixelRaster pixels = this.getPixelRaster();
+        ComponentLabeler.Components islands = ComponentLabeler.label( pixels, origColor.getRGB(), includeDiagonals );
+        int[] labels = islands.getLabels();
+        int newRGB = newColor.getRGB();
+        for( int row = 0, label = 0; row < pixels.getHeight(); row++ )
         {
-            for( int col = 0; col < pixels[0].length; col++ )
-            {
-                Pixel pix = pixels[row][col];
-                if( pix.getColor().equals( origColor ) &&
-                    (imageNeighbors[row][col] == null ||
-                    !imageNeighbors[row][col].isVisited() ) )
-                {
-                    Neighbor thisPixel = new Neighbor( row, col, true );
-                    imageNeighbors[row][col] = thisPixel;
-                    ArrayList<Neighbor> island = new ArrayList<Neighbor>();
-                    island.add( thisPixel );
-                    ArrayList<Neighbor> islandNeighbors =
-                        getIsland( thisPixel, island, pixels, imageNeighbors, includeDiagonals,
-                                   pixelIslandLimit, origColor );
-                    if( islandNeighbors != null && islandNeighbors.size() < pixelIslandLimit )
-                        removeIsland( islandNeighbors, imageNeighbors, pixels, newColor );
-                }
-            }
+            int index = pixels.index( 0, row );
+            for( int col = 0; col < pixels.getWidth(); col++, index++, label++ )
+                if( labels[label] != 0 && islands.getArea( labels[label] ) < pixelIslandLimit )
+                    setRGBKeepAlpha( pixels, index, newRGB );
         }
     }
     
-    public enum Direction
-    {
-        UP, LEFT, DOWN, RIGHT;
-    }
+    /**@@For B/W only:@@*/
+    public static void clearIslands( BinaryImage bw, int pixelIslandLimit, boolean includeDiagonals )
+    { changeIslands( bw, pixelIslandLimit, includeDiagonals, false ); }
     
     /**
-     * Method to find all of the neighbors of a black pixel. The parameter 'includeDiagonals'
-     * controls whether diagonal neighbors should be included or not
+     * @@For B/W only:@@
      * 
-     * This method works by finding a path of Color.WHITE pixels that goes around the island
-     * containing the pixel. Then, every black pixel within the perimeter is added to the list and
-     * then returned
+     * Method that changes islands of one color of a BinaryImage to the other color
+     * when the total pixel count of the island is less than the parameter 'pixelIslandLimit'
      * 
-     * Note: This method returns null if the island is greater than the pixelIslandLimit. If this
-     *       limit + 2 rows are found that have black pixels, null is returned right away, saving
-     *       processing time (and making this method actually usable)
+     * The islands are found with ComponentLabeler, which looks at each pixel twice no matter
+     * how big the islands are, and then each pixel of a small island is changed in one more pass
      * 
-     * @param thisPixel The neighbor being observed
-     * @param island The list of neighbors that make up this island
-     * @param pixels The pixels of the picture
-     * @param imageNeighbors The entire picture of Neighbor objects, which keep track of whether each has been visited or not
-     * @param includeDiagonals True if diagonal black pixels should be included as neighbors, false otherwise
-     * @param pixelIslandLimit The limit to the size of an island. Note that this method returns null if any number of rows
-     *                         are found greater than this limit plus two
-     * @param origColor The original color of the pixel. These pixels make up the island
-     * @return ArrayList<Neighbor> The list of Neighbors that belong to this island, or null if the island size must be greater
-     *                             than the pixelIslandLimit
-     */
-    private ArrayList<Neighbor> getIsland(
-        Neighbor thisPixel, ArrayList<Neighbor> island, Pixel[][] pixels,
-        Neighbor[][] imageNeighbors, boolean includeDiagonals,
-        int pixelIslandLimit, Color origColor )
-    {
-        int x = thisPixel.getX();
-        int y = thisPixel.getY();
-        int iterX = x;
-        int iterY = y;
-        Neighbor lastPix     = new Neighbor(  0,  0, false );
-        Neighbor lastRemoved = new Neighbor( -1, -1, false );
-        
-        HashMap<Integer, Integer> rowList = new HashMap<Integer, Integer>();
-        ArrayList<Integer> rowX  = new ArrayList<Integer>();
-        ArrayList<Integer> colY1 = new ArrayList<Integer>();
-        ArrayList<Integer> colY2 = new ArrayList<Integer>();
-        
-        Direction dir;
-        Direction originalDir = Direction.UP;
-
-        //Island of 1 pixel
-        if( totalNeighbors( x, y, pixels, origColor ) == 0 ) return island;
-        
-        //Determine starting pixel whose color is Color.WHITE, and the direction
-        if(      iterX != 0 ) { iterX--; dir = Direction.LEFT;  } //x is not on top row
-        else if( iterY != 0 ) { iterY--; dir = Direction.DOWN;  } //x is on top row
-        else                  { iterX++; dir = Direction.RIGHT; } //x and y is the (0, 0) pixel
-        
-        int startX = iterX;
-        int startY = iterY;
-        
-        //If there is no starting WHITE pixel or if there are 8 surrounding black neighbor pixels
-        if( pixels[startX][startY].getColor().equals( origColor ) )              return null;
-        if( totalNeighbors( startX, startY, pixels, origColor ) == 8 ) return null;
-        
-        //Keep going around island until find original start position
-        do
-        {
-            Pixel pix = pixels[iterX][iterY];
-            int xPix = pix.getY();
-            int yPix = pix.getX();
-            Neighbor thisPix = new Neighbor( xPix, yPix, false );
-            
-            //Add pixel x and y
-            if( !rowList.containsKey( xPix ) )
-            {
-                rowList.put( xPix, yPix );
-                originalDir = dir;
-                lastPix = new Neighbor( xPix, yPix, false );
-                
-                /*@@NOTE: Comment out this if statement to prevent this method from short-circuiting and
-                          returning null instead of the full island size 
-                */
-                if( rowList.size() >= pixelIslandLimit + 2 ) return null;
-            }
-
-            //Traverse one step around island
-            if( dir == Direction.UP )
-            {
-                if( pix.getColor().equals( origColor ) ) //Hit bounds of image
-                {
-                    if( hasDir( dir, pix, pixels ) )
-                        iterX--;
-                    else
-                    {
-                        dir = Direction.LEFT;
-                        if( hasDir( dir, pix, pixels ) )
-                            iterY--;
-                        else
-                        {
-                            dir = Direction.DOWN;
-                            iterX++;
-                        }
-                    }
-                }
-                else 
-                {
-                    if( iterX == 0 ) //Reach top row, go left
-                    {
-                        iterY--;
-                        dir = Direction.LEFT;
-                    }
-                    //On outer edge and black pixel is above
-                    else if( iterY == pixels[0].length - 1 &&
-                             getNeighbor( -1, 0, pix, pixels, origColor ) &&
-                             getNeighbor( 0, -1, pix, pixels, origColor ) )
-                    {
-                        iterX--;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( -1, -1, pix, pixels, origColor ) ) //cut through up-left diagonal
-                    {
-                        iterX--;
-                        iterY--;
-                        dir = Direction.LEFT;
-                    }
-                    else if( !getNeighbor( 0, -1, pix, pixels, origColor ) ) //empty space to left
-                    {
-                        iterY--;
-                        dir = Direction.LEFT;
-                    }
-                    else if( getNeighbor( 0, 1, pix, pixels, origColor ) &&
-                             getNeighbor( -1, 0, pix, pixels, origColor ) ) //neighbor left, up, and right, so turn around
-                    {
-                        dir = Direction.DOWN;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( -1, 1, pix, pixels, origColor ) ) //cut through up-right diagonal
-                    {
-                        iterX--;
-                        iterY++;
-                        dir = Direction.RIGHT;
-                    }
-                    else if( getNeighbor( -1, 0, pix, pixels, origColor ) ) //neighbor left and above, so go right
-                    {
-                        iterY++;
-                        dir = Direction.RIGHT;
-                    }
-                    else if( !getNeighbor( -1, -1, pix, pixels, origColor ) ) //cut to left diagonal
-                    {
-                        iterX--;
-                        iterY--;
-                        dir = Direction.LEFT;
-                    }
-                    else //neighbor to left and diag left, go up
-                    {
-                        iterX--;
-                    }
-                }
-            }
-            else if( dir == Direction.LEFT )
-            {
-                if( pix.getColor().equals( origColor ) ) //Hit bounds of image
-                {
-                    if( hasDir( dir, pix, pixels ) )
-                        iterY--;
-                    else
-                    {
-                        dir = Direction.DOWN;
-                        if( hasDir( dir, pix, pixels ) )
-                            iterX++;
-                        else
-                        {
-                            dir = Direction.RIGHT;
-                            iterY++;
-                        }
-                    }
-                }
-                else 
-                {
-                    if( iterY == 0 ) //reached left column, go down
-                    {
-                        iterX++;
-                        dir = Direction.DOWN;
-                    } //on top edge and black pixel is left
-                    else if( iterX == 0 &&
-                             getNeighbor( 0, -1, pix, pixels, origColor ) &&
-                             getNeighbor( 1, 0, pix, pixels, origColor ) )
-                    {
-                        iterY--;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( 1, -1, pix, pixels, origColor ) ) //cut through down-left diagonal
-                    {
-                        iterX++;
-                        iterY--;
-                        dir = Direction.DOWN;
-                    }
-                    else if( !getNeighbor( 1, 0, pix, pixels, origColor ) ) //empty space down
-                    {
-                        iterX++;
-                        dir = Direction.DOWN;
-                    }
-                    else if( getNeighbor( -1, 0, pix, pixels, origColor ) &&
-                             getNeighbor( 0, -1, pix, pixels, origColor ) ) //neighbor left, up, and down, so turn around
-                    {
-                        dir = Direction.RIGHT;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( -1, -1, pix, pixels, origColor ) ) //cut through up-left diagonal
-                    {
-                        iterX--;
-                        iterY--;
-                        dir = Direction.UP;
-                    }
-                    else if( getNeighbor( 0, -1, pix, pixels, origColor ) ) //neighbor down and left, so go up
-                    {
-                        iterX--;
-                        dir = Direction.UP;
-                    }
-                    else if( !getNeighbor( 1, -1, pix, pixels, origColor ) ) //cut to down diagonal
-                    {
-                        iterX++;
-                        iterY--;
-                        dir = Direction.DOWN;
-                    }
-                    else //neighbor down and diag down, go left
-                    {
-                        iterY--;
-                    }
-                }
-            }
-            else if( dir == Direction.DOWN )
-            {
-                if( pix.getColor().equals( origColor ) ) //Hit bounds of image
-                {
-                    if( hasDir( dir, pix, pixels ) )
-                        iterX++;
-                    else
-                    {
-                        dir = Direction.RIGHT;
-                        if( hasDir( dir, pix, pixels ) )
-                            iterY++;
-                        else
-                        {
-                            dir = Direction.UP;
-                            iterX--;
-                        }
-                    }
-                }
-                else 
-                {
-                    if( iterX == pixels.length - 1 ) //reached bottom row, go right
-                    {
-                        iterY++;
-                        dir = Direction.RIGHT;
-                    } //On outer edge and black pixel is down
-                    else if( iterY == 0 &&
-                             getNeighbor( 1, 0, pix, pixels, origColor ) &&
-                             getNeighbor( 0, 1, pix, pixels, origColor ) )
-                    {
-                        iterX++;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( 1, 1, pix, pixels, origColor ) ) //cut through down-right diagonal
-                    {
-                        iterX++;
-                        iterY++;
-                        dir = Direction.RIGHT;
-                    }
-                    else if( !getNeighbor( 0, 1, pix, pixels, origColor ) ) //empty space right
-                    {
-                        iterY++;
-                        dir = Direction.RIGHT;
-                    }
-                    else if( getNeighbor( 0, -1, pix, pixels, origColor ) &&
-                             getNeighbor( 1, 0, pix, pixels, origColor ) ) //neighbor left, down, and right, so turn around
-                    {
-                        dir = Direction.UP;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( 1, -1, pix, pixels, origColor ) ) //cut through down-left diagonal
-                    {
-                        iterX++;
-                        iterY--;
-                        dir = Direction.LEFT;
-                    }
-                    else if( getNeighbor( 1, 0, pix, pixels, origColor ) ) //neighbor down and right, so go left
-                    {
-                        iterY--;
-                        dir = Direction.LEFT;
-                    }
-                    else if( !getNeighbor( 1, 1, pix, pixels, origColor ) ) //cut to down diagonal
-                    {
-                        iterX++;
-                        iterY++;
-                        dir = Direction.RIGHT;
-                    }
-                    else //neighbor right and diag right, go down
-                    {
-                        iterX++;
-                    }
-                }
-            }
-            else // dir == Direction.RIGHT
-            {
-                if( pix.getColor().equals( origColor ) ) //Hit bounds of image
-                {
-                    if( hasDir( dir, pix, pixels ) )
-                        iterY++;
-                    else
-                    {
-                        dir = Direction.UP;
-                        if( hasDir( dir, pix, pixels ) )
-                            iterX--;
-                        else
-                        {
-                            dir = Direction.LEFT;
-                            iterY--;
-                        }
-                    }
-                }
-                else 
-                {
-                    if( iterY == pixels[0].length - 1 ) //reach rightmost column, go up
-                    {
-                        iterX--;
-                        dir = Direction.UP;
-                    } //on edge and black pixel is right
-                    else if( iterX == pixels.length - 1 &&
-                             getNeighbor( 0, 1, pix, pixels, origColor ) &&
-                             getNeighbor( -1, 0, pix, pixels, origColor ) )
-                    {
-                        iterY++;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( -1, 1, pix, pixels, origColor ) ) //cut through up-right diagonal
-                    {
-                        iterX--;
-                        iterY++;
-                        dir = Direction.UP;
-                    }
-                    else if( !getNeighbor( -1, 0, pix, pixels, origColor ) ) //empty space up
-                    {
-                        iterX--;
-                        dir = Direction.UP;
-                    }
-                    else if( getNeighbor( 1, 0, pix, pixels, origColor ) &&
-                             getNeighbor( 0, 1, pix, pixels, origColor ) ) //neighbor right, up, and down, so turn around
-                    {
-                        dir = Direction.LEFT;
-                    }
-                    else if( !includeDiagonals &&
-                             !getNeighbor( 1, 1, pix, pixels, origColor ) ) //cut through down-right diagonal
-                    {
-                        iterX++;
-                        iterY++;
-                        dir = Direction.DOWN;
-                    }
-                    else if( getNeighbor( 0, 1, pix, pixels, origColor ) ) //neighbor up and right, so go down
-                    {
-                        iterX++;
-                        dir = Direction.DOWN;
-                    }
-                    else if( !getNeighbor( -1, 1, pix, pixels, origColor ) ) //cut to up diagonal
-                    {
-                        iterX--;
-                        iterY++;
-                        dir = Direction.UP;
-                    }
-                    else //neighbor up and diag up, go right
-                    {
-                        iterY++;
-                    }
-                }
-            }
-            
-            //If HashMap has a Pixel of this row and the direction has changed,
-            //pop out and add y values to parallel lists
-            if( rowList.containsKey( iterX ) )
-            {
-                Neighbor oldPix = new Neighbor( iterX, rowList.get(iterX), false );
-                Neighbor newPix = new Neighbor( iterX, iterY, false );
-                
-                if( oldPix.getY() < newPix.getY() &&         //first pixel found in row must be left of second pixel
-                    (dir != originalDir || xPix != iterX) && //must have different directions or different x coords
-                    !oldPix.isEqual( lastPix ) &&            //can't be the same pixel
-                    !isNextTo( oldPix, newPix , includeDiagonals ) )    //pixels can't be next to one another
-                {
-                    rowX.add( newPix.getX() );               //parallel lists for tracking coordinates of rows
-                    colY1.add( oldPix.getY() );
-                    colY2.add( newPix.getY() );
-
-                    rowList.remove( newPix.getX() );         //allow for new rows to be found at this x coord
-                }
-            }
-        } while( iterX != startX || iterY != startY );
-        
-        //Add neighbors to island list and update neighbor list
-        int size = rowX.size();
-        boolean addedPixel = false;
-        for( int row = 0; row < size; row++ )
-        {
-            int totalInRow = colY2.get(row) - colY1.get(row);
-            for( int col = 0; col < totalInRow; col++ )
-            {
-                int rowVal = rowX.get(row);
-                int colVal = colY1.get(row) + col;
-                if( pixels[rowVal][colVal].getColor().equals( origColor ) &&
-                    imageNeighbors[rowVal][colVal] == null )
-                {
-                    Neighbor n = new Neighbor( rowVal, colVal, true );
-                    imageNeighbors[ rowVal ][ colVal ] = n;
-                    island.add(n);
-                    addedPixel = true;
-                }
-            }
-        }
-        
-        //If no pixels need to be removed (turned to Color.WHITE)
-        if( rowX.size() <= 0 || !addedPixel ) return null;
-        
-        return island;
-        /*@@NOTE: This reference shouldn't need to be returned, but it has
-         *        been left as a return type in order to match the recursive
-         *        version of this method, which does need to return the
-         *        reference in order to work correctly
-         */
-    }
-    
-    /**
-     * Method that tests whether the current pixel is on the top row or not
-     * @param dir The current direction of iteration
-     * @param pix The pixel to check
-     * @param pixels The image of pixels
-     * @return boolean True if this direction can be iterated, false otherwise
-     */
-    private boolean hasDir( Direction dir, Pixel pix, Pixel[][] pixels )
-    {
-        if( dir == Direction.UP )
-        {
-            if( pix.getY() != 0 ) return true;
-            else                  return false;
-        }
-        else if( dir == Direction.DOWN )
-        {
-            if( pix.getY() != pixels.length - 1 ) return true;
-            else                                  return false;
-        }
-        else if( dir == Direction.LEFT )
-        {
-            if( pix.getX() != 0 ) return true;
-            else                  return false;
-        }
-        else  // dir == Direction.RIGHT
-        {
-            if( pix.getX() != pixels[0].length - 1 ) return true;
-            else                                     return false;
-        }
-    }
-    
-    /**
-     * Method that gets whether two pixels are neighbors or not.
-     * @param a First pixel
-     * @param b Second pixel
-     * @param includeDiagonals True if diagonals are considered neighbors, false otherwise
-     * @return boolean True if they are neighbors, false otherwise
-     */
-    private boolean isNextTo( Neighbor a, Neighbor b, boolean includeDiagonals )
-    {
-        int aX = a.getX(); int bX = b.getX();
-        int aY = a.getY(); int bY = b.getY();
-        if( aX == bX && aY == bY ) return false;
-        
-        double delta = 0.0;
-        if( aX == bX || aY == bY ) delta += 0.01;
-        
-        if( includeDiagonals )
-        {
-            if( Math.abs(aX - bX) + Math.abs(aY - bY) > 2.0 - delta ) return false;
-            else                                                      return true;
-        }
-        else
-        {
-            if( Math.abs(aX - bX) + Math.abs(aY - bY) > 1.0 ) return false;
-            else                                              return true;
-        }
-    }
-    
-    /**
-     * Method that gets whether this pixel has a black neighbor in their upper-left diagonal
-     * 
-     * @@NOTE: If you use 'thisPixel' and are use subsections, 'thisPixel' will still contain
-     *         the original coordinates from the larger Picture! You should instead use the
-     *         other getNeighbor(...) function that uses fixed row and col coordinates
-     * 
-     * @param xOffset The x offset from this pixel's location
-     * @param yOffset The y offset from this pixel's location
-     * @param pix The pixel to check
-     * @param pixels The image of pixels
-     * @param origColor The color a pixel has that belongs to an island
-     * @return boolean True if this neighbor exists, false otherwise
+     * @param bw The image to change
+     * @param pixelIslandLimit Islands whose total count is less than this limit will be changed
+     * @param includeDiagonals True if diagonals are included in islands, false otherwise
+     * @param white True if the islands are Color.WHITE pixels that should become Color.BLACK,
+     *              false if the islands are Color.BLACK pixels that should become Color.WHITE
      */
-    private boolean getNeighbor( int xOffset, int yOffset, Pixel thisPixel,
-                                 Pixel[][] pixels, Color origColor )
+    private static void changeIslands( BinaryImage bw, int pixelIslandLimit, boolean includeDiagonals, boolean white )
     {
-        int xNewPix = thisPixel.getY() + xOffset;
-        int yNewPix = thisPixel.getX() + yOffset;
-        
-        if( xNewPix < 0 || xNewPix >= pixels.length )    return false;
-        if( yNewPix < 0 || yNewPix >= pixels[0].length ) return false;
-        
-        if( pixels[xNewPix][yNewPix].getColor().equals( origColor ) ) return true;
-        
-        return false;
+        ComponentLabeler.Components islands = ComponentLabeler.label( bw, white, includeDiagonals );
+        int[] labels = islands.getLabels();
+        for( int row = 0, index = 0; row < bw.getHeight(); row++ )
+            for( int col = 0; col < bw.getWidth(); col++, index++ )
+                if( labels[index] != 0 && islands.getArea( labels[index] ) < pixelIslandLimit )
+                    bw.setWhite( col, row, !white );
     }
     
     /**
@@ -682,20 +214,20 @@ public class Picture extends SimplePicture
      * @param yOffset The y offset from this pixel's location
      * @param row The row of the Pixel
      * @param col The col of the Pixel
-     * @param pixels The image of pixels
+     * @param pixels The section of pixels
      * @param origColor The color a pixel has that belongs to an island
      * @return boolean True if this neighbor exists, false otherwise
      */
-    private boolean getNeighbor( int xOffset, int yOffset, int row, int col,
-                                 Pixel[][] pixels, Color origColor )
+    private static boolean getNeighbor( int xOffset, int yOffset, int row, int col,
+                                        Section pixels, Color origColor )
     {
         int xNewPix = row + xOffset;
         int yNewPix = col + yOffset;
         
-        if( xNewPix < 0 || xNewPix >= pixels.length )    return false;
-        if( yNewPix < 0 || yNewPix >= pixels[0].length ) return false;
+        if( xNewPix < 0 || xNewPix >= pixels.rows() ) return false;
+        if( yNewPix < 0 || yNewPix >= pixels.cols() ) return false;
         
-        if( pixels[xNewPix][yNewPix].getColor().equals( origColor ) ) return true;
+        if( pixels.getColor( xNewPix, yNewPix ).equals( origColor ) ) return true;
         
         return false;
     }
@@ -762,26 +294,7 @@ public class Picture extends SimplePicture
         return island;
     }
     
-    /**
-     * Method to remove all of the neighbors in the list by changing their colors to Color.WHITE
-     * @param islandNeighbors The neighbor pixels that compose the island of black pixels
-     * @param imageNeighbors The entire picture of Neighbor objects, which keep track of whether each has been visited or not
-     * @param pixels The pixels of the picture
-     * @param newColor The new color of the island pixel that is removed
-     */
-    private void removeIsland( ArrayList<Neighbor> islandNeighbors, Neighbor[][] imageNeighbors,
-                               Pixel[][] pixels, Color newColor )
-    {
-        for( int rep = 0; rep < islandNeighbors.size(); rep++ )
-        {
-            int x = islandNeighbors.get( rep ).getX();
-            int y = islandNeighbors.get( rep ).getY();
-            pixels[x][y].setColor( newColor );
-            imageNeighbors[x][y].setVisited( true );
-        }
-    }
-    
-    private class Neighbor
+    private static class Neighbor
     {
         private int x, y;
         private boolean visited;
@@ -809,7 +322,7 @@ public class Picture extends SimplePicture
         public void setVisited( boolean visited ) { this.visited = visited; }
     }
     
-    private class ColorNeighbor extends Neighbor
+    private static class ColorNeighbor extends Neighbor
     {
         private Color c;
         
@@ -823,7 +336,7 @@ public class Picture extends SimplePicture
         public void setColor( Color c ) { this.c = c; }
     }
     
-    private class Pair
+    private static class Pair
     {
         public Neighbor a, b;
         
@@ -833,6 +346,125 @@ public class Picture extends SimplePicture
             this.b = b;
         }
     }
+
+    /**
+     * A rectangle of pixels that the path methods (see getPath(...)) can read and write,
+     * whether the pixels come from a Pixel[][] or a BinaryImage. Rows and cols are
+     * relative to the top-left corner of the section
+     */
+    private interface Section
+    {
+        int rows();
+        int cols();
+        Color getColor( int row, int col );
+        void setColor( int row, int col, Color color );
+
+        default void allToColor( Color color )
+        {
+            for( int row = 0; row < rows(); row++ )
+                for( int col = 0; col < cols(); col++ )
+                    setColor( row, col, color );
+        }
+    }
+
+    /** A Section made of a 2D array of Pixels */
+    private static class PixelSection implements Section
+    {
+        private Pixel[][] pixels;
+
+        public PixelSection( Pixel[][] pixels ) { this.pixels = pixels; }
+
+        public int rows() { return pixels.length; }
+        public int cols() { return pixels[0].length; }
+        public Color getColor( int row, int col )               { return pixels[row][col].getColor(); }
+        public void setColor( int row, int col, Color color )   { pixels[row][col].setColor( color ); }
+    }
+
+    /**
+     * A Section that is a window of a BinaryImage. Any color other than
+     * Color.WHITE is stored as Color.BLACK
+     */
+    private static class BinarySection implements Section
+    {
+        private BinaryImage bw;
+        private int startRow, startCol, numRows, numCols;
+
+        public BinarySection( BinaryImage bw, int startRow, int startCol, int numRows, int numCols )
+        {
+            this.bw       = bw;
+            this.startRow = startRow;
+            this.startCol = startCol;
+            this.numRows  = numRows;
+            this.numCols  = numCols;
+        }
+
+        public int rows() { return numRows; }
+        public int cols() { return numCols; }
+
+        public Color getColor( int row, int col )
+        {
+            checkBounds( row, col );
+            return bw.isWhite( startCol + col, startRow + row ) ? Color.WHITE : Color.BLACK;
+        }
+
+        public void setColor( int row, int col, Color color )
+        {
+            checkBounds( row, col );
+            bw.setWhite( startCol + col, startRow + row, color.equals( Color.WHITE ) );
+        }
+
+        /* Same as indexing past the end of a Pixel[][] section */
+        private void checkBounds( int row, int col )
+        {
+            if( row < 0 || row >= numRows || col < 0 || col >= numCols )
+                throw new ArrayIndexOutOfBoundsException( "(" + row + "," + col + ") is outside of the section" );
+        }
+    }
+
+    /**
+     * A Section that is a window of a PixelRaster. The window is only an offset into the
+     * raster, so no pixels are copied, and colors are written straight into the picture.
+     * The alpha of each pixel is kept, the same as Pixel.setColor(..)
+     */
+    private static class RasterSection implements Section
+    {
+        private PixelRaster raster;
+        private int startRow, startCol, numRows, numCols;
+
+        public RasterSection( PixelRaster raster, int startRow, int startCol, int numRows, int numCols )
+        {
+            this.raster   = raster;
+            this.startRow = startRow;
+            this.startCol = startCol;
+            this.numRows  = numRows;
+            this.numCols  = numCols;
+        }
+
+        public int rows() { return numRows; }
+        public int cols() { return numCols; }
+
+        public Color getColor( int row, int col )
+        {
+            checkBounds( row, col );
+            int rgb = raster.get( startCol + col, startRow + row ) & 0xFFFFFF;
+            if( rgb == 0xFFFFFF ) return Color.WHITE;
+            if( rgb == 0x000000 ) return Color.BLACK;
+            return new Color( rgb );
+        }
+
+        public void setColor( int row, int col, Color color )
+        {
+            checkBounds( row, col );
+            setRGBKeepAlpha( raster, raster.index( startCol + col, startRow + row ), color.getRGB() );
+        }
+
+        /* Same as indexing past the end of a Pixel[][] section */
+        private void checkBounds( int row, int col )
+        {
+            if( row < 0 || row >= numRows || col < 0 || col >= numCols )
+                throw new ArrayIndexOutOfBoundsException( "(" + row + "," + col + ") is outside of the section" );
+        }
+    }
     
     /**
      * Method to copy pixels from the given Picture
@@ -842,7 +474,21 @@ public class Picture extends SimplePicture
      * @param startCol the start col to copy to
      */
     public void copy( Picture fromPic, int startRow, int startCol )
-    { copy( fromPic.getPixels2D(), startRow, startCol ); }
+    {
+        PixelRaster from = fromPic.getPixelRaster();
+        PixelRaster to = this.getPixelRaster();
+        for( int fromRow = 0, toRow = startRow;
+             fromRow < from.getHeight() && toRow < to.getHeight();
+             fromRow++, toRow++ )
+        {
+            int fromIndex = from.index( 0, fromRow );
+            int toIndex = to.index( startCol, toRow );
+            for( int fromCol = 0, toCol = startCol;
+                 fromCol < from.getWidth() && toCol < to.getWidth();
+                 fromCol++, toCol++ )
+                setRGBKeepAlpha( to, toIndex++, from.getAt( fromIndex++ ) );
+        }
+    }
     /**
      * Method to copy pixels from a 2D array of Pixels to the current Picture
      * @param pixels The pixels to copy
@@ -926,7 +572,7 @@ public class Picture extends SimplePicture
         this.copy(flower1,400,0);
         this.copy(flower2,500,0);
         this.mirrorVertical();
-        this.write("collage.jpg");
+        this.writeLater("collage.jpg");
     }
 
     /**@@For B/W pictures:@@*/
@@ -937,6 +583,9 @@ public class Picture extends SimplePicture
      * 
      * Method to remove 'fuzz' from pixels. Fuzz is defined as any
      * black squares that have x or less neighbors, where x is the parameter neighbors
+     * 
+     * Any pixel that is not Color.WHITE can be fuzz, but only neighbors that are exactly
+     * Color.BLACK are counted. The neighbors are counted with NeighborCounter, a row at a time
      * @param sectionWidth The width of the section being defuzzed
      * @param offsetX The starting offset in the x direction
      * @param offsetY The starting offset in the y direction
@@ -945,40 +594,37 @@ public class Picture extends SimplePicture
      */
     public void defuzz( int sectionWidth, int offsetX, int offsetY, int neighbors )
     {
-        Pixel[][] pixels = this.getPixels2D();
-        boolean[][] coordsToRemove = new boolean[ pixels.length ][ pixels[0].length ];
-        for( int row = 0 + offsetX; row < pixels.length; row += sectionWidth )
+        PixelRaster pixels = this.getPixelRaster();
+        BinaryImage black    = new BinaryImage( pixels.getWidth(), pixels.getHeight() );
+        BinaryImage notWhite = new BinaryImage( pixels.getWidth(), pixels.getHeight() );
+        long[] blackWords    = black.getWords();
+        long[] notWhiteWords = notWhite.getWords();
+        for( int row = 0; row < pixels.getHeight(); row++ )
         {
-            for( int col = 0 + offsetY; col < pixels[0].length; col += sectionWidth )
+            int index = pixels.index( 0, row );
+            int start = black.rowStart( row );
+            for( int col = 0; col < pixels.getWidth(); col++, index++ )
             {
-                //Last scopes can be smaller that edgeDistance x edgeDistance
-                int rowLimit = row + sectionWidth;
-                int colLimit = col + sectionWidth;
-                if( row + sectionWidth > pixels.length )    rowLimit = pixels.length;
-                if( col + sectionWidth > pixels[0].length ) colLimit = pixels[0].length;
-                
-                for( int rowScope = row; rowScope < rowLimit; rowScope++ )
-                {
-                    for( int colScope = col; colScope < colLimit; colScope++ )
-                    {
-                        Pixel pix = pixels[rowScope][colScope];
-                        if( rowScope > 0 && colScope > 0 &&
-                            rowScope < rowLimit - 1 && colScope < colLimit - 1 &&
-                            !pix.getColor().equals( Color.WHITE ) &&
-                            totalNeighbors( rowScope, colScope, pixels, Color.BLACK ) <= neighbors )
-                        {
-                            coordsToRemove[rowScope][colScope] = true;
-                        }
-                    }
-                }
+                int rgb = pixels.getAt( index ) & 0xFFFFFF;
+                if( rgb == 0x000000 ) blackWords[ start + (col >>> 6) ]    |= 1L << col;
+                if( rgb != 0xFFFFFF ) notWhiteWords[ start + (col >>> 6) ] |= 1L << col;
             }
         }
         
         //Set fuzz pixels to white
-        for( int row = 0; row < pixels.length; row++ )
-            for( int col = 0; col < pixels[0].length; col++ )
-                if( coordsToRemove[row][col] )
-                    pixels[row][col].setColor( Color.WHITE );
+        BinaryImage coordsToRemove = new BinaryImage( pixels.getWidth(), pixels.getHeight() );
+        findFuzz( black, notWhite, sectionWidth, offsetX, offsetY, neighbors, coordsToRemove );
+        long[] remove = coordsToRemove.getWords();
+        for( int row = 0; row < pixels.getHeight(); row++ )
+        {
+            int start = coordsToRemove.rowStart( row );
+            for( int word = 0; word < coordsToRemove.getWordsPerRow(); word++ )
+                for( long bits = remove[ start + word ]; bits != 0; bits &= bits - 1 )
+                {
+                    int col = (word << 6) + Long.numberOfTrailingZeros( bits );
+                    setRGBKeepAlpha( pixels, pixels.index( col, row ), 0xFFFFFF );
+                }
+        }
     }
     
     /** @@For B/W Pictures:@@*/
@@ -999,56 +645,159 @@ public class Picture extends SimplePicture
         defuzz( sectionWidth, offset, offset, neighbors );
     }
     
+    /**@@For B/W only:@@*/
+    public static void defuzz( BinaryImage bw, int sectionWidth )                { defuzz( bw, sectionWidth, 0, 0, 1 ); }
+    public static void defuzz( BinaryImage bw, int sectionWidth, int neighbors ) { defuzz( bw, sectionWidth, 0, 0, neighbors ); }
     /**
-     * @@For B/W Pictures:@@
+     * @@For B/W only:@@
      * 
-     * Method that determines the total neighbors of a pixel
-     * @param x The x coordinate of the pixel
-     * @param y The y coordinate of the pixel
-     * @param pixels The 2D array of pixels of the picture
-     * @param origColor The color of the neighbors
-     * @return int The total neighbors of this pixel
+     * Method to remove 'fuzz' from a BinaryImage. This works the same as defuzz(...) for
+     * Pictures: black pixels inside of a section that have x or less black neighbors are
+     * changed to white, where x is the parameter neighbors
+     * @param bw The image to defuzz
+     * @param sectionWidth The width of the section being defuzzed
+     * @param offsetX The starting offset in the x direction
+     * @param offsetY The starting offset in the y direction
+     * @param neighbors Pixels with this many or less neighbors that are Color.BLACK
+     *                  will be changed to be Color.WHITE
      */
-    private int totalNeighbors( int x, int y, Pixel[][] pixels, Color origColor )
+    public static void defuzz( BinaryImage bw, int sectionWidth, int offsetX, int offsetY, int neighbors )
     {
-        int neighborCount = 0;
-        
-        int marginX = 0;
-        int marginY = 0;
-        int j = 0;
-        int k = 0;
-        if( x == 0 ) { ++x; ++j; }
-        else if( x == pixels.length - 1 )    marginX = 1;
-        
-        if( y == 0 ) { ++y; ++k; }
-        else if( y == pixels[0].length - 1 ) marginY = 1;
-
-        int kReset = k;
+        defuzz( bw, sectionWidth, offsetX, offsetY, neighbors,
+                new BinaryImage( bw.getWidth(), bw.getHeight() ), new BinaryImage( bw.getWidth(), bw.getHeight() ) );
+    }
+    
+    /**
+     * @@For B/W only:@@
+     * 
+     * Method to remove 'fuzz' from a BinaryImage, using two scratch images the same size as
+     * the image instead of making new ones, so that passes that run one after another (see
+     * superDefuzz(...) and Pipeline) can share them
+     * @param bw The image to defuzz
+     * @param sectionWidth The width of the section being defuzzed
+     * @param offsetX The starting offset in the x direction
+     * @param offsetY The starting offset in the y direction
+     * @param neighbors Pixels with this many or less neighbors that are Color.BLACK
+     *                  will be changed to be Color.WHITE
+     * @param black A scratch image, which is changed
+     * @param coordsToRemove A scratch image, which is changed
+     */
+    static void defuzz( BinaryImage bw, int sectionWidth, int offsetX, int offsetY, int neighbors,
+                        BinaryImage black, BinaryImage coordsToRemove )
+    {
+        System.arraycopy( bw.getWords(), 0, black.getWords(), 0, bw.getWords().length );
+        black.invert();
+        findFuzz( black, black, sectionWidth, offsetX, offsetY, neighbors, coordsToRemove );
         
-        for( int startX = x - 1; startX < x - 1 + 3 - marginX && j < 3; startX++ )
+        //Set fuzz pixels to white
+        long[] words  = bw.getWords();
+        long[] remove = coordsToRemove.getWords();
+        for( int rep = 0; rep < words.length; rep++ )
+            words[rep] |= remove[rep];
+    }
+    
+    /** @@For B/W only:@@*/
+    public static void superDefuzz( BinaryImage bw, int sectionWidth ) { superDefuzz( bw, sectionWidth, 1 ); }
+    /**
+     * @@For B/W only:@@
+     * 
+     * Method that calls defuzz on a BinaryImage three different times,
+     * in order to cover all edges of scope passes
+     * @param bw The image to defuzz
+     * @param sectionWidth The width of the section being defuzzed
+     * @param neighbors Pixels with this many or less neighbors that are Color.BLACK
+     *                  will be changed to be Color.WHITE
+     */
+    public static void superDefuzz( BinaryImage bw, int sectionWidth, int neighbors )
+    {
+        superDefuzz( bw, sectionWidth, neighbors,
+                     new BinaryImage( bw.getWidth(), bw.getHeight() ), new BinaryImage( bw.getWidth(), bw.getHeight() ) );
+    }
+    
+    /**
+     * @@For B/W only:@@
+     * 
+     * Method that calls defuzz on a BinaryImage three different times, with the
+     * same two scratch images for every pass
+     * @param bw The image to defuzz
+     * @param sectionWidth The width of the section being defuzzed
+     * @param neighbors Pixels with this many or less neighbors that are Color.BLACK
+     *                  will be changed to be Color.WHITE
+     * @param black A scratch image the same size as bw, which is changed
+     * @param coordsToRemove A scratch image the same size as bw, which is changed
+     */
+    static void superDefuzz( BinaryImage bw, int sectionWidth, int neighbors,
+                             BinaryImage black, BinaryImage coordsToRemove )
+    {
+        int offset = sectionWidth / 2;
+        defuzz( bw, sectionWidth, offset, 0, neighbors, black, coordsToRemove );
+        defuzz( bw, sectionWidth, 0, offset, neighbors, black, coordsToRemove );
+        defuzz( bw, sectionWidth, offset, offset, neighbors, black, coordsToRemove );
+    }
+    
+    /**
+     * @@For B/W only:@@
+     * 
+     * Method to find the fuzz of an image in one pass, a row at a time. A pixel is fuzz if it is
+     * a candidate, has x or less black neighbors, and is inside of a section: sections start at
+     * offsetX and offsetY and are sectionWidth wide, and the last row and column of each section,
+     * and the edges of the image, are not inside. The black neighbors of a whole row are counted
+     * at once with NeighborCounter
+     * @param black The image whose white pixels are the black pixels being counted
+     * @param candidates The image whose white pixels are the pixels that can be fuzz
+     * @param sectionWidth The width of the section being defuzzed
+     * @param offsetX The starting offset of the sections, in rows
+     * @param offsetY The starting offset of the sections, in columns
+     * @param neighbors Pixels with this many or less black neighbors are fuzz
+     * @param coordsToRemove The fuzz is put here, as white pixels. Everything else is made black
+     * @throws IllegalArgumentException if sectionWidth is less than 1
+     */
+    private static void findFuzz( BinaryImage black, BinaryImage candidates, int sectionWidth,
+                                  int offsetX, int offsetY, int neighbors, BinaryImage coordsToRemove )
+    {
+        if( sectionWidth < 1 ) throw new IllegalArgumentException( "The section width must be at least 1, not " + sectionWidth );
+        
+        int height = black.getHeight();
+        int width  = black.getWidth();
+        final int WORDS = black.getWordsPerRow();
+        coordsToRemove.fill( false );
+        
+        //The columns inside of a section are the same for every row
+        long[] inside = new long[ WORDS ];
+        for( int col = 0; col < width; col++ )
+            if( isInsideSection( col, width, sectionWidth, offsetY ) )
+                inside[ col >>> 6 ] |= 1L << col;
+        
+        long[][] counts = new long[ NeighborCounter.PLANES ][ WORDS ];
+        long[] fewNeighbors = new long[ WORDS ];
+        long[] candidateWords = candidates.getWords();
+        long[] remove = coordsToRemove.getWords();
+        for( int row = 0; row < height; row++ )
         {
-            for( int startY = y - 1; startY < y - 1 + 3 - marginY && k < 3; startY++ )
-            {
-                if( j == 1 && k == 1 ) 
-                {
-                    ++k;
-                    continue;
-                }
-                
-                Pixel pix = pixels[startX][startY];
-                if( pix.getColor().equals( origColor ) )
-                    neighborCount++;
-                
-                if( startY + 1 == y - 1 + 3 - marginY ) k = 0;
-                else                                    ++k;
-            }
+            if( !isInsideSection( row, height, sectionWidth, offsetX ) ) continue;
             
-            k = kReset;
-            if( startX + 1 == x - 1 + 3 - marginX ) j = 0;
-            else                                    ++j;
+            NeighborCounter.countRow( black, row, counts );
+            NeighborCounter.atMost( counts, neighbors, fewNeighbors );
+            int start = black.rowStart( row );
+            for( int word = 0; word < WORDS; word++ )
+                remove[ start + word ] = candidateWords[ start + word ] & fewNeighbors[word] & inside[word];
         }
-        
-        return neighborCount;
+    }
+    
+    /**
+     * Method that determines whether a row (or column) is inside of a section for defuzz(...).
+     * Sections start at offset and are sectionWidth long, and the last row of each section
+     * and the rows on the edges of the image are not inside
+     * @param position The row (or column)
+     * @param length The height (or width) of the image
+     * @param sectionWidth The width of the sections
+     * @param offset The start of the first section
+     * @return boolean True if the row is inside of a section
+     */
+    private static boolean isInsideSection( int position, int length, int sectionWidth, int offset )
+    {
+        return position >= offset && position > 0 && position < length - 1 &&
+               (position - offset) % sectionWidth != sectionWidth - 1;
     }
     
     /** Method to draw a list of pixels on this image */
@@ -1067,6 +816,14 @@ public class Picture extends SimplePicture
      * @param lineThickness The thickness of the line 
      */
     public void drawPixels( Pixel[][] section, ArrayList<ColorNeighbor> pixelList, int lineThickness )
+    { drawPath( new PixelSection( section ), pixelList, lineThickness ); }
+    /**
+     * Method to draw a list of pixels on a section of an image
+     * @param section The section to draw the pixels to
+     * @param pixelList The list of pixels to draw
+     * @param lineThickness The thickness of the line 
+     */
+    private static void drawPath( Section section, ArrayList<ColorNeighbor> pixelList, int lineThickness )
     {
         int size = pixelList.size();
         for( int rep = 0; rep < size; rep++ )
@@ -1079,9 +836,9 @@ public class Picture extends SimplePicture
             while( counter++ < lineThickness )
             {
                 if( isHorizontal )
-                    section[row++][col].setColor( c );
+                    section.setColor( row++, col, c );
                 else
-                    section[row][col++].setColor( c );
+                    section.setColor( row, col++, c );
             }
         }
     }
@@ -1091,7 +848,7 @@ public class Picture extends SimplePicture
      * @param path The path of pixels
      * @return boolean True if the path is horizontal, false otherwise
      */
-    private boolean isHorizontalPath( ArrayList<ColorNeighbor> path )
+    private static boolean isHorizontalPath( ArrayList<ColorNeighbor> path )
     {
         int size = path.size();
         return path.get( size - 1 ).getY() - path.get(0).getY()
@@ -1101,28 +858,23 @@ public class Picture extends SimplePicture
     }
     
     /**
-     * Method to show large changes in color 
+     * Method to show large changes in color. Each pixel is compared to the pixel to its right
      * @param edgeDist the distance for finding edges
      */
     public void edgeDetection(int edgeDist)
     {
-        Pixel leftPixel = null;
-        Pixel rightPixel = null;
-        Pixel[][] pixels = this.getPixels2D();
-        Color rightColor = null;
-        for (int row = 0; row < pixels.length; row++)
-        {
-            for (int col = 0; col < pixels[0].length - 1; col++)
-            {
-                leftPixel = pixels[row][col];
-                rightPixel = pixels[row][col+1];
-                rightColor = rightPixel.getColor();
-                if (leftPixel.colorDistance(rightColor) > edgeDist)
-                    leftPixel.setColor(Color.BLACK);
-                else
-                    leftPixel.setColor(Color.WHITE);
-            }
-        }
+        edgeDetection(edgeDist, EdgeDetector.Operator.DIFFERENCE);
+    }
+    
+    /**
+     * Method to show large changes in color, painting edges black and everything else white
+     * @param edgeDist the distance for finding edges
+     * @param operator How the change in color is found. SOBEL and SCHARR look at all 8 neighbors
+     *                 of a pixel, and find edges in every direction (see EdgeDetector)
+     */
+    public void edgeDetection(int edgeDist, EdgeDetector.Operator operator)
+    {
+        EdgeDetector.detect(this.getPixelRaster(), operator, edgeDist);
     }
 
     /**@@For B/W Pictures only:@@*/
@@ -1145,64 +897,54 @@ public class Picture extends SimplePicture
         clearIslands( pixelIslandLimit, includeDiagonals, origColor, newColor );
     }
     
+    /**
+     * @@For B/W Pictures only:@@
+     * 
+     * Method that fills all gaps of Color.WHITE pixels in a BinaryImage with Color.BLACK
+     * @param bw The image to fill
+     * @param pixelIslandLimit Gaps whose total count is less than this limit are changed to Color.BLACK
+     * @param includeDiagonals If true, counts diagonal pixels as belonging to the given gap
+     */
+    public static void fillIslands( BinaryImage bw, int pixelIslandLimit, boolean includeDiagonals )
+    { changeIslands( bw, pixelIslandLimit, includeDiagonals, true ); }
+    
     /**
      * Method to bring out the red colors and reduce the green and blue colors
      */
     public void filterRed() {
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row++ ) {
-            for( int col = 0; col < pixels[0].length; col++ ) {
-                Pixel pixelObj = pixels[row][col];
+        TileScheduler.apply( this.getPixelRaster(), argb -> {
+            int red = Pixel.getRed( argb );
+            int green = Pixel.getGreen( argb );
+            int blue = Pixel.getBlue( argb );
 
-                int red = pixelObj.getRed();
-                int green = pixelObj.getGreen();
-                int blue = pixelObj.getBlue();
-
-                pixelObj.setRed( green | blue );
-                pixelObj.setGreen( green & red );
-                pixelObj.setBlue( blue & red );
-            }
-        }
+            return PixelRaster.pack( Pixel.getAlpha( argb ), green | blue, green & red, blue & red );
+        } );
     }
 
     /**
      * Method to bring out the green colors and reduce the red and blue colors
      */
     public void filterGreen() {
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row++ ) {
-            for( int col = 0; col < pixels[0].length; col++ ) {
-                Pixel pixelObj = pixels[row][col];
-
-                int red = pixelObj.getRed();
-                int green = pixelObj.getGreen();
-                int blue = pixelObj.getBlue();
+        TileScheduler.apply( this.getPixelRaster(), argb -> {
+            int red = Pixel.getRed( argb );
+            int green = Pixel.getGreen( argb );
+            int blue = Pixel.getBlue( argb );
 
-                pixelObj.setRed( red & green );
-                pixelObj.setGreen( red | blue );
-                pixelObj.setBlue( blue & green );
-            }
-        }
+            return PixelRaster.pack( Pixel.getAlpha( argb ), red & green, red | blue, blue & green );
+        } );
     }
 
     /**
      * Method to bring out the blue colors and reduce the red and green colors
      */
     public void filterBlue() {
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row++ ) {
-            for( int col = 0; col < pixels[0].length; col++ ) {
-                Pixel pixelObj = pixels[row][col];
-
-                int red = pixelObj.getRed();
-                int green = pixelObj.getGreen();
-                int blue = pixelObj.getBlue();
+        TileScheduler.apply( this.getPixelRaster(), argb -> {
+            int red = Pixel.getRed( argb );
+            int green = Pixel.getGreen( argb );
+            int blue = Pixel.getBlue( argb );
 
-                pixelObj.setRed( red & blue );
-                pixelObj.setGreen( green & blue );
-                pixelObj.setBlue( red | green );
-            }
-        }
+            return PixelRaster.pack( Pixel.getAlpha( argb ), red & blue, green & blue, red | green );
+        } );
     }
 
     /**
@@ -1215,122 +957,55 @@ public class Picture extends SimplePicture
     {
         Picture finalPic = new Picture( this.getHeight(), this.getWidth() );
         
-        Pixel[][] firstPixels = this.getPixels2D();
-        Pixel[][] secondPixels = second.getPixels2D();
-        Pixel[][] finalPixels = finalPic.getPixels2D();
-        for( int row = 0; row < firstPixels.length; row++ )
+        PixelRaster firstPixels = this.getPixelRaster();
+        PixelRaster secondPixels = second.getPixelRaster();
+        PixelRaster finalPixels = finalPic.getPixelRaster();
+        int black = Color.BLACK.getRGB();
+        for( int row = 0; row < firstPixels.getHeight(); row++ )
         {
-            for( int col = 0; col < firstPixels[0].length; col++ )
+            for( int col = 0; col < firstPixels.getWidth(); col++ )
             {
-                Pixel firstPix = firstPixels[row][col];
-                Pixel secondPix = secondPixels[row][col];
-                if( !firstPix.getColor().equals( secondPix.getColor() ) ) {
-                    double firstPixelDifference  = firstPix.colorDistanceAdvanced(  Color.BLACK );
-                    double secondPixelDifference = secondPix.colorDistanceAdvanced( Color.BLACK );
+                int firstPix = firstPixels.get( col, row );
+                int secondPix = secondPixels.get( col, row );
+                if( (firstPix & 0xFFFFFF) != (secondPix & 0xFFFFFF) ) {
+                    double firstPixelDifference  = Pixel.colorDistanceAdvanced( firstPix,  black );
+                    double secondPixelDifference = Pixel.colorDistanceAdvanced( secondPix, black );
+                    int index = finalPixels.index( col, row );
                     if( firstPixelDifference > secondPixelDifference ) //second is darker
-                        finalPixels[row][col].setColor( secondPix.getColor() );
+                        setRGBKeepAlpha( finalPixels, index, secondPix );
                     else
-                        finalPixels[row][col].setColor( firstPix.getColor() );
+                        setRGBKeepAlpha( finalPixels, index, firstPix );
                 }
             }
         }
         
         String name = this.getFileName();
         int extensionIndex = name.indexOf(".");
-        finalPic.write( name.substring( 0, extensionIndex ) + "_difference" + name.substring( extensionIndex ) );
+        finalPic.writeLater( name.substring( 0, extensionIndex ) + "_difference" + name.substring( extensionIndex ) );
     }
     
     public enum Blur { MILD, MEDIUM, STRONG };
     
     /**
      * Method that applies a Gaussian blur effect to the image.
-     * The effect can apply mild, medium, or strong blur effects.
+     * The effect can apply mild, medium, or strong blur effects, which use kernels
+     * of 3, 5, and 9 pixels across. See BlurEngine
      * @param strength The strength of the blur. Either Blur.MILD, Blur.MEDIUM, or
      *                 Blur.STRONG
      */
     public void gaussianBlur( Blur strength )
     {
-        int[][] kernel;
-        int[] kReductionEdgeOffset;
-        int KREDUCTION = 16;
-        if( strength == Blur.MILD )
-        {
-            kernel = new int[][]{{1,2,1},//4
-                                 {2,4,2},//8
-                                 {1,2,1}};//4
-            kReductionEdgeOffset = new int[]{0, 8, (16-1)};
-        }
-        else if( strength == Blur.MEDIUM )
-        {
-            kernel = new int[][]{{1,2,4,2,1},//10
-                                 {2,4,6,4,2},//18
-                                 {4,6,8,6,4},//28
-                                 {2,4,6,4,2},//18
-                                 {1,2,4,2,1}};//10
-            kReductionEdgeOffset = new int[]{10, 20, 41, 62, (84-1)};
-            KREDUCTION = 84;
-        }
-        else
-        {
-            kernel = new int[][]{{1, 2, 4, 6, 8, 6, 4, 2,1},//34
-                                 {2, 4, 6, 8,10, 8, 6, 4,2},//50
-                                 {4, 6, 8,10,12,10, 8, 6,4},//68
-                                 {6, 8,10,12,14,12,10, 8,6},//86
-                                 {8,10,12,14,16,14,12,10,8},//104
-                                 {6, 8,10,12,14,12,10, 8,6},//86
-                                 {4, 6, 8,10,12,10, 8, 6,4},//68
-                                 {2, 4, 6, 8,10, 8, 6, 4,2},//50
-                                 {1, 2, 4, 6, 8, 6, 4, 2,1}};//34
-            kReductionEdgeOffset = new int[]{15, 60, 120, 195, 270, 355, 430, 505, (580-1)};
-            KREDUCTION = 580;
-        }
-        int KSIZE = kernel.length;
-        
-        Pixel[][] pixels = this.getPixels2D();
-        
-        final int WIDTH = pixels.length;
-        final int HEIGHT = pixels[0].length;
-        
-        for ( int row = 0; row < WIDTH; row++ )
-        {
-            for ( int col = 0; col < HEIGHT; col++ )
-            {
-                int totalRed = 0, totalGreen = 0, totalBlue = 0;
-                for( int kRow = 0; kRow < KSIZE; kRow++ )
-                {
-                    for( int kCol = 0; kCol < KSIZE; kCol++ )
-                    {
-                        int rowLimit = row + kRow /*- 1*/;
-                        int colLimit = col + kCol /*- 1*/;
-                        if( rowLimit >= 0 && colLimit >= 0 && rowLimit < WIDTH && colLimit < HEIGHT )
-                        {            
-                            int red   = pixels[ rowLimit ][ colLimit ].getRed();
-                            int green = pixels[ rowLimit ][ colLimit ].getGreen();
-                            int blue  = pixels[ rowLimit ][ colLimit ].getBlue();
-                            totalRed   += kernel[ kRow ][ kCol ] * red;
-                            totalGreen += kernel[ kRow ][ kCol ] * green;
-                            totalBlue  += kernel[ kRow ][ kCol ] * blue;
-                        }
-                    }
-                }
-                
-                int kReductionEdgeOffsetRowValue = 0, kReductionEdgeOffsetColValue = 0, kReductionOffsetValue = 0;
-                if( WIDTH - row < kReductionEdgeOffset.length )
-                    kReductionEdgeOffsetRowValue = kReductionEdgeOffset[ kReductionEdgeOffset.length - (WIDTH - row + 1) ];
-                if( HEIGHT - col < kReductionEdgeOffset.length )
-                    kReductionEdgeOffsetColValue = kReductionEdgeOffset[ kReductionEdgeOffset.length - (HEIGHT - col + 1) ];
-                
-                kReductionOffsetValue = Math.abs(kReductionEdgeOffsetRowValue) > Math.abs(kReductionEdgeOffsetColValue) ?
-                                        kReductionEdgeOffsetRowValue : kReductionEdgeOffsetColValue;
-                
-               
-                totalRed   /= (KREDUCTION - kReductionOffsetValue);
-                totalGreen /= (KREDUCTION - kReductionOffsetValue);
-                totalBlue  /= (KREDUCTION - kReductionOffsetValue);
-                
-                pixels[ row ][ col ].updatePicture( pixels[row][col].getAlpha(), totalRed, totalGreen, totalBlue );
-            }
-        }
+        BlurEngine.blur( this.getPixelRaster(), BlurEngine.kernel( strength ) );
+    }
+    
+    /**
+     * Method that applies a Gaussian blur effect of any strength to the image
+     * @param sigma The standard deviation of the blur, in pixels. The larger the
+     *              sigma, the stronger the blur. Must be more than 0
+     */
+    public void gaussianBlur( double sigma )
+    {
+        BlurEngine.blur( this.getPixelRaster(), BlurEngine.kernel( sigma ) );
     }
     
     /**
@@ -1338,31 +1013,8 @@ public class Picture extends SimplePicture
      */
     public void grayscale()
     {
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row++ )
-        {
-            for( int col = 0; col < pixels[0].length; col++ )
-            {
-                Pixel pix = pixels[row][col];
-                int rgb = pix.getRGBValue();
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = (rgb & 0xFF);
-
-                //Normalize and gamma correct
-                float rr = (float)Math.pow( r / 255.0, 2.2 );
-                float gg = (float)Math.pow( g / 255.0, 2.2 );
-                float bb = (float)Math.pow( b / 255.0, 2.2 );
-
-                //Calculate luminance
-                float lum = (float)( 0.2126 * rr + 0.7152 * gg + 0.0722 * bb );
-
-                //Gamma compand and rescale to byte range
-                int grayLevel = (int)( 255.0 * Math.pow( lum, 1.0 / 2.2 ) );
-                int gray = (grayLevel << 16) + (grayLevel << 8) + grayLevel; 
-                pix.setRGBValue( gray );
-            }
-        }   
+        //The gamma correction and luminance are looked up in tables. See ColorConversion
+        TileScheduler.apply( this.getPixelRaster(), ColorConversion::toGray );
     }
 
     /**
@@ -1372,11 +1024,13 @@ public class Picture extends SimplePicture
      * 
      * It is recommended that you use the following methods on your B/W image
      * before running this function, in the following order:
-     *    1) edgeDetection(...)
+     *    1) edgeDetection(...) (EdgeDetector.Operator.SOBEL or SCHARR find edges in every direction)
      *    2) superDefuzz(...)
      *    3) clearIslands(...)
      *    4) fillIslands(...)
      * 
+     * A Pipeline can run all of these steps, and this one, in as few passes as it can
+     * 
      * After this method, it is recommended that you run the followings method(s):
      *    1) thin(...) (I haven't written this yet. It would remove all black sections
      *                 (if they exist--see setPath method) and then connect existing paths
@@ -1386,25 +1040,68 @@ public class Picture extends SimplePicture
      */
     public void linearize( int lineThickness )
     {
-        final int SECTION_WIDTH = lineThickness * 5;
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row += SECTION_WIDTH )
-        {
-            for( int col = 0; col < pixels[0].length; col += SECTION_WIDTH )
+        final int SECTION_WIDTH = linearizeSectionWidth( lineThickness );
+        PixelRaster raster = this.getPixelRaster();
+        
+        //Sections do not share any pixels, so groups of whole sections are linearized on different threads
+        final int TILE_WIDTH = SECTION_WIDTH * Math.max( 1, TileScheduler.TILE_WIDTH / SECTION_WIDTH );
+        TileScheduler.forEachTile( raster.getWidth(), raster.getHeight(), TILE_WIDTH, TILE_WIDTH,
+                                   (fromCol, fromRow, toCol, toRow) -> {
+            for( int row = fromRow; row < toRow; row += SECTION_WIDTH )
             {
-                //Last scopes can be smaller that SECTION_WIDTH x SECTION_WIDTH
-                int rowLimit = SECTION_WIDTH;
-                int colLimit = SECTION_WIDTH;
-                if( row + SECTION_WIDTH > pixels.length )    rowLimit = pixels.length - row;
-                if( col + SECTION_WIDTH > pixels[0].length ) colLimit = pixels[0].length - col;
-                
-                Pixel[][] section = subarray( pixels, row, col, rowLimit, colLimit );
-                
-                setPath( section, lineThickness );
-                
-                this.copy( section, row, col );
+                for( int col = fromCol; col < toCol; col += SECTION_WIDTH )
+                {
+                    //Last scopes can be smaller that SECTION_WIDTH x SECTION_WIDTH
+                    int rowLimit = Math.min( SECTION_WIDTH, toRow - row );
+                    int colLimit = Math.min( SECTION_WIDTH, toCol - col );
+                    
+                    setPath( new RasterSection( raster, row, col, rowLimit, colLimit ), lineThickness );
+                }
             }
-        }
+        } );
+    }
+    
+    /**
+     * @@For B/W only:@@
+     * 
+     * Method that converts sections of a BinaryImage into their linear direction.
+     * See linearize(int) for details. Each section is a window of the image, so no
+     * pixels are copied
+     * @param bw The image to linearize
+     * @param lineThickness The thickness of the lines, in pixels
+     */
+    public static void linearize( BinaryImage bw, int lineThickness )
+    {
+        final int SECTION_WIDTH = linearizeSectionWidth( lineThickness );
+        
+        //Sections next to each other share words, so each thread gets whole rows of sections
+        final int BAND_HEIGHT = SECTION_WIDTH * Math.max( 1, TileScheduler.TILE_PIXELS / (SECTION_WIDTH * Math.max( 1, bw.getWidth() )) );
+        TileScheduler.forEachTile( bw.getWidth(), bw.getHeight(), bw.getWidth(), BAND_HEIGHT,
+                                   (fromCol, fromRow, toCol, toRow) -> {
+            for( int row = fromRow; row < toRow; row += SECTION_WIDTH )
+            {
+                for( int col = 0; col < bw.getWidth(); col += SECTION_WIDTH )
+                {
+                    //Last scopes can be smaller that SECTION_WIDTH x SECTION_WIDTH
+                    int rowLimit = Math.min( SECTION_WIDTH, toRow - row );
+                    int colLimit = Math.min( SECTION_WIDTH, bw.getWidth() - col );
+                    
+                    setPath( new BinarySection( bw, row, col, rowLimit, colLimit ), lineThickness );
+                }
+            }
+        } );
+    }
+    
+    /**
+     * Method to find the width of the sections of linearize(...)
+     * @param lineThickness The thickness of the lines, in pixels
+     * @return int The width of the sections, which is 5 lines thick
+     * @throws IllegalArgumentException if lineThickness is less than 1
+     */
+    private static int linearizeSectionWidth( int lineThickness )
+    {
+        if( lineThickness < 1 ) throw new IllegalArgumentException( "The line thickness must be at least 1, not " + lineThickness );
+        return lineThickness * 5;
     }
     
     /**
@@ -1415,7 +1112,7 @@ public class Picture extends SimplePicture
      */
     private void testSetPath()
     {
-        Pixel[][] pixels = this.getPixels2D();
+        Section pixels = new PixelSection( this.getPixels2D() );
         ArrayList<ColorNeighbor> path = getPath( pixels );
         printPath( path, pixels );
         //setPath( pixels, 1 );
@@ -1424,9 +1121,9 @@ public class Picture extends SimplePicture
     /**
      * Method used to print a path of Neighbors
      * @param path The path of neighbor objects
-     * @param pixels The pixel array of this picture
+     * @param pixels The section of the picture that the path is in
      */
-    private void printPath( ArrayList<ColorNeighbor> path, Pixel[][] pixels )
+    private static void printPath( ArrayList<ColorNeighbor> path, Section pixels )
     {
         boolean isValidPath      = true;
         boolean isHorizontalPath = false;
@@ -1451,10 +1148,10 @@ public class Picture extends SimplePicture
             if( rep == 0 && size > 1 )
             {
                 if( path.get(0).getY() == 0 &&
-                    path.get( size - 1 ).getY() == pixels[0].length - 1 )
+                    path.get( size - 1 ).getY() == pixels.cols() - 1 )
                     isHorizontalPath = true;
                 else if( path.get(0).getX() == 0 &&
-                         path.get( size - 1 ).getX() == pixels.length - 1 )
+                         path.get( size - 1 ).getX() == pixels.rows() - 1 )
                     isVerticalPath = true;
             }
             
@@ -1496,23 +1193,23 @@ public class Picture extends SimplePicture
      * This method will also expand the width of the path by the value
      * 'lineThickness'. For details on the algorithm, see 'getPath(...)'
      * 
-     * @param section The 2D array of pixels
+     * @param section The section of pixels
      * @param lineThickness The path thickness to be set
      */
-    private void setPath( Pixel[][] section, int lineThickness )
+    private static void setPath( Section section, int lineThickness )
     {
         ArrayList<ColorNeighbor> path = getPath( section );
         
         if( path != null )
-            allToColor( section, Color.WHITE );
+            section.allToColor( Color.WHITE );
         else
         {   //@@CHANGE: Style preference. vv Experiment with changing this to Color.BLACK or Color.WHITE
-            allToColor( section, Color.WHITE );
+            section.allToColor( Color.WHITE );
             return;
         }
         
         if( path.size() != 0 )
-            drawPixels( section, path, lineThickness );
+            drawPath( section, path, lineThickness );
     }
 
     /**
@@ -1581,11 +1278,11 @@ public class Picture extends SimplePicture
      *    ooXoooo                 ooooooo         solution. However, with such large amounts of data to process,
      *                                            a stack overflow error is almost certain
      * 
-     * @param section The 2D array of pixels
+     * @param section The section of pixels
      * @return ArrayList<Neighbor> The path of Neighbors that connect from one edge of the section to
      *                             another. Returns null if there is no path, or there are 
      */
-    private ArrayList<ColorNeighbor> getPath( Pixel[][] section )
+    private static ArrayList<ColorNeighbor> getPath( Section section )
     {
         boolean hasHorizontalPath         = false;
         boolean hasVerticalPath           = false;
@@ -1692,7 +1389,7 @@ public class Picture extends SimplePicture
      * @@For B/W only:@@
      * 
      * Method that gets the horizontal path of a section
-     * @param section The section of the Picture (composed of Pixels in a 2D array)
+     * @param section The section of the Picture
      * @param horizontalPath The list of Neighbors in this horizontal path
      * @param FIRST This determines which direction the path checks for first (either UP-RIGHT neighbor (-1), MIDDLE-RIGHT neighbor (0), or DOWN_RIGHT neighbor (1))
      * @param SECOND Which checks for second
@@ -1701,7 +1398,7 @@ public class Picture extends SimplePicture
      *             1 --> There is a diagonal horizontal path
      *             2 --> There are no horizontal or diagonal paths
      */
-    private int getHorizontalPath( Pixel[][] section, ArrayList<ColorNeighbor> horizontalPath, int FIRST, int SECOND, int THIRD )
+    private static int getHorizontalPath( Section section, ArrayList<ColorNeighbor> horizontalPath, int FIRST, int SECOND, int THIRD )
     {
         int row = 0;
         int col = 0;
@@ -1713,22 +1410,22 @@ public class Picture extends SimplePicture
         final int MIN_PATH_LENGTH = 3;
         
         //Check for horizontal path at each row starting pixel
-        for( ; row < section.length; row++ )
+        for( ; row < section.rows(); row++ )
         {
             int pathRow = row;
             boolean foundPath    = false;
             boolean downPathDead = false;
             
-            for( col = 0; col < section[0].length ; col++ )
+            for( col = 0; col < section.cols() ; col++ )
             {
-                if( !section[pathRow][col].getColor().equals( Color.BLACK ) )
+                if( !section.getColor( pathRow, col ).equals( Color.BLACK ) )
                     break;
                 
                 foundPath = true;
                 
                 horizontalPath.add( new ColorNeighbor( pathRow, col, true, Color.BLACK ) );
                 
-                if( col == section[0].length - 1 ) break;
+                if( col == section.cols() - 1 ) break;
                 
                 //Set the x position of the first available neighbor
                 if(      getNeighbor( FIRST,  1, pathRow, col, section, Color.BLACK ) )
@@ -1762,7 +1459,7 @@ public class Picture extends SimplePicture
                 
                 //See if a diagonal path exists
                 if( !hasDiagonalPathHorizontal &&
-                    (pathRow == sectionStartX || pathRow == sectionStartX + section.length - 1) &&
+                    (pathRow == sectionStartX || pathRow == sectionStartX + section.rows() - 1) &&
                     horizontalPath.size() > MIN_PATH_LENGTH )
                     hasDiagonalPathHorizontal = true;
             }
@@ -1770,7 +1467,7 @@ public class Picture extends SimplePicture
             if( !foundPath ) continue;
             
             //Check if there is a valid horizontal path. If true, stop searching
-            if( col == section[0].length - 1 )
+            if( col == section.cols() - 1 )
             {
                 hasHorizontalPath = true;
                 break;
@@ -1795,7 +1492,7 @@ public class Picture extends SimplePicture
      * @@For B/W only:@@
      * 
      * Method that gets the vertical path of a section
-     * @param section The section of the Picture (composed of Pixels in a 2D array)
+     * @param section The section of the Picture
      * @param verticalPath The list of Neighbors in this vertical path
      * @param FIRST This determines which direction the path checks for first (either DOWN-LEFT neighbor (-1), DOWN-MIDDLE neighbor (0), or DOWN_RIGHT neighbor (1))
      * @param SECOND Which checks for second
@@ -1804,7 +1501,7 @@ public class Picture extends SimplePicture
      *             1 --> There is a diagonal vertical path
      *             2 --> There are no vertical or diagonal paths
      */
-    private int getVerticalPath( Pixel[][] section, ArrayList<ColorNeighbor> verticalPath, int FIRST, int SECOND, int THIRD )
+    private static int getVerticalPath( Section section, ArrayList<ColorNeighbor> verticalPath, int FIRST, int SECOND, int THIRD )
     {
         int row = 0;
         int col = 0;
@@ -1816,22 +1513,22 @@ public class Picture extends SimplePicture
         final int MIN_PATH_LENGTH = 3;
         
         //Check for vertical path at each col starting pixel
-        for( ; col < section[0].length; col++ )
+        for( ; col < section.cols(); col++ )
         {
             int pathCol = col;
             boolean foundPath     = false;
             boolean rightPathDead = false;
             
-            for( row = 0; row < section.length ; row++ )
+            for( row = 0; row < section.rows() ; row++ )
             {
-                if( !section[row][pathCol].getColor().equals( Color.BLACK ) )
+                if( !section.getColor( row, pathCol ).equals( Color.BLACK ) )
                     break;
                 
                 foundPath = true;
                 
                 verticalPath.add( new ColorNeighbor( row, pathCol, true, Color.BLACK ) );
                 
-                if( row == section.length - 1 ) break;
+                if( row == section.rows() - 1 ) break;
                 
                 //Set the x position of the first available neighbor
                 if(      getNeighbor( 1, FIRST,  row, pathCol, section, Color.BLACK ) )
@@ -1865,7 +1562,7 @@ public class Picture extends SimplePicture
                 
                 //See if a diagonal path exists
                 if( !hasDiagonalPathVertical &&
-                    (pathCol == sectionStartY || pathCol == sectionStartY + section[0].length - 1) &&
+                    (pathCol == sectionStartY || pathCol == sectionStartY + section.cols() - 1) &&
                     verticalPath.size() > MIN_PATH_LENGTH )
                     hasDiagonalPathVertical = true;
             }
@@ -1873,7 +1570,7 @@ public class Picture extends SimplePicture
             if( !foundPath ) continue;
             
             //Check if there is a valid vertical path. If true, stop searching
-            if( row == section.length - 1 )
+            if( row == section.rows() - 1 )
             {
                 hasVerticalPath = true;
                 break;
@@ -1899,10 +1596,7 @@ public class Picture extends SimplePicture
      */
     public void makeOpaque()
     {
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row++ )
-            for( int col = 0; col < pixels[0].length; col++ )
-                pixels[row][col].setAlpha(255);
+        TileScheduler.apply( this.getPixelRaster(), argb -> argb | 0xFF000000 );
     }
 
     /**
@@ -1913,36 +1607,32 @@ public class Picture extends SimplePicture
      */
     public void minimizeColors()
     {
-        final Color DARK_BLUE = new Color( 0,   0, 139 );
-        final Color PURPLE    = new Color( 128, 0, 128 );
-        final Color BROWN     = new Color( 102, 51,  0 );
+        MinimizedColors.QUANTIZER.apply( this.getPixelRaster() );
+    }
+    
+    /**
+     * Method that changes each color to the closest color of a palette. Closeness is
+     * measured with Pixel.colorDistanceAdvanced(..)
+     * @param palette The colors to use. If a color is not close to any of these, it becomes
+     *                the first color of the palette
+     */
+    public void minimizeColors( Color... palette )
+    {
+        new PaletteQuantizer( palette ).apply( this.getPixelRaster() );
+    }
+    
+    /** The palette of minimizeColors(). Its lookup table is only built the first time it is used */
+    private static class MinimizedColors
+    {
+        private static final Color DARK_BLUE = new Color( 0,   0, 139 );
+        private static final Color PURPLE    = new Color( 128, 0, 128 );
+        private static final Color BROWN     = new Color( 102, 51,  0 );
         //The color gray tends to win over most blue colors, so I have found it is better to remove these as options
-        Color[] colors = { Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN,
-                           Color.CYAN, DARK_BLUE, Color.MAGENTA, PURPLE,
-                           Color.PINK, BROWN, /*Color.LIGHT_GRAY, Color.GRAY,
-                           Color.DARK_GRAY,*/ Color.BLACK, Color.WHITE };
-        
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row++ )
-        {
-            for( int col = 0; col < pixels[0].length; col++ )
-            {
-                int smallestDistanceIndex = 0;
-                double smallestDistance = 255.0 * 3.0;
-                Pixel pix = pixels[row][col];
-                for( int rep = 0; rep < colors.length; rep++ )
-                {
-                    double distance = pix.colorDistanceAdvanced( colors[rep] );
-                    if( distance < smallestDistance )
-                    {
-                        smallestDistance = distance;
-                        smallestDistanceIndex = rep;
-                    }
-                }
-                
-                pix.setColor( colors[ smallestDistanceIndex ] );
-            }
-        }
+        private static final PaletteQuantizer QUANTIZER =
+            new PaletteQuantizer( Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN,
+                                  Color.CYAN, DARK_BLUE, Color.MAGENTA, PURPLE,
+                                  Color.PINK, BROWN, /*Color.LIGHT_GRAY, Color.GRAY,
+                                  Color.DARK_GRAY,*/ Color.BLACK, Color.WHITE );
     }
     
     /** Method that mirrors the picture around a 
@@ -1950,18 +1640,14 @@ public class Picture extends SimplePicture
      * from left to right */
     public void mirrorHorizontal()
     {
-        Pixel[][] pixels = this.getPixels2D();
-        Pixel topPixel = null;
-        Pixel bottomPixel = null;
-        int height = pixels.length;
-        for (int col = 0; col < pixels[0].length; col++)
+        PixelRaster pixels = this.getPixelRaster();
+        int height = pixels.getHeight();
+        for (int row = 0; row < height / 2; row++)
         {
-            for (int row = 0; row < height / 2; row++)
-            {
-                topPixel = pixels[row][col];
-                bottomPixel = pixels[height - 1 - row][col];
-                bottomPixel.setColor(topPixel.getColor());
-            }
+            int topIndex = pixels.index(0, row);
+            int bottomIndex = pixels.index(0, height - 1 - row);
+            for (int col = 0; col < pixels.getWidth(); col++)
+                setRGBKeepAlpha(pixels, bottomIndex + col, pixels.getAt(topIndex + col));
         } 
     }
 
@@ -1969,10 +1655,7 @@ public class Picture extends SimplePicture
     public void mirrorTemple()
     {
         int mirrorPoint = 276;
-        Pixel leftPixel = null;
-        Pixel rightPixel = null;
-        int count = 0;
-        Pixel[][] pixels = this.getPixels2D();
+        PixelRaster pixels = this.getPixelRaster();
 
         // loop through the rows
         for (int row = 27; row < 97; row++)
@@ -1980,10 +1663,9 @@ public class Picture extends SimplePicture
             // loop from 13 to just before the mirror point
             for (int col = 13; col < mirrorPoint; col++)
             {
-                leftPixel = pixels[row][col];      
-                rightPixel = pixels[row]                       
-                [mirrorPoint - col + mirrorPoint];
-                rightPixel.setColor(leftPixel.getColor());
+                int left = pixels.get(col, row);
+                setRGBKeepAlpha(pixels,
+                    pixels.index(mirrorPoint - col + mirrorPoint, row), left);
             }
         }
     }
@@ -1993,18 +1675,14 @@ public class Picture extends SimplePicture
      * from left to right */
     public void mirrorVertical()
     {
-        Pixel[][] pixels = this.getPixels2D();
-        Pixel leftPixel = null;
-        Pixel rightPixel = null;
-        int width = pixels[0].length;
-        for (int row = 0; row < pixels.length; row++)
+        PixelRaster pixels = this.getPixelRaster();
+        int width = pixels.getWidth();
+        for (int row = 0; row < pixels.getHeight(); row++)
         {
+            int rowIndex = pixels.index(0, row);
             for (int col = 0; col < width / 2; col++)
-            {
-                leftPixel = pixels[row][col];
-                rightPixel = pixels[row][width - 1 - col];
-                rightPixel.setColor(leftPixel.getColor());
-            }
+                setRGBKeepAlpha(pixels, rowIndex + width - 1 - col,
+                    pixels.getAt(rowIndex + col));
         } 
     }
     
@@ -2025,7 +1703,7 @@ public class Picture extends SimplePicture
         
         String name = this.getFileName();
         int extensionIndex = name.indexOf(".");
-        finalPic.write(
+        finalPic.writeLater(
             name.substring( 0, extensionIndex ) + "_" + width + "x" + height + name.substring( extensionIndex ) );
     }
     
@@ -2034,61 +1712,85 @@ public class Picture extends SimplePicture
      */
     public void toBW()
     {
-        final int COLOR_SPLIT = 110;
-        
-        final int BW_LINE = COLOR_SPLIT*3 - 1;
-        
-        Pixel[][] pixels = this.getPixels2D();
-        for( int row = 0; row < pixels.length; row++ )
+        TileScheduler.apply( this.getPixelRaster(), Picture::toBWColor );
+    }
+    
+    /**
+     * Method to find the Color.BLACK or Color.WHITE that toBW() changes a color to
+     * @param argb The color, as a packed ARGB int
+     * @return int Black or white, as a packed ARGB int with the same alpha
+     */
+    static int toBWColor( int argb )
+    {
+        int totalColor = Pixel.getRed( argb ) + Pixel.getGreen( argb ) + Pixel.getBlue( argb );
+        if( totalColor < BW_LINE )
+            return argb & 0xFF000000;
+        else
+            return argb | 0x00FFFFFF;
+    }
+    
+    /**
+     * Method to convert a picture to a BinaryImage, which has one bit per pixel.
+     * Pixels are split into Color.BLACK and Color.WHITE the same way as toBW(), but
+     * this picture is not changed
+     * @return BinaryImage The black and white image of this picture
+     */
+    public BinaryImage toBinaryImage() { return toBinaryImage( null ); }
+    
+    /**
+     * Method to convert a picture to a BinaryImage after a point operation, in one pass.
+     * This is the same as running the point operation and then toBinaryImage(), except
+     * that this picture is not changed
+     * @param kernel The point operation done to each pixel first, or null for none
+     * @return BinaryImage The black and white image of this picture
+     */
+    public BinaryImage toBinaryImage( PixelKernel kernel )
+    {
+        PixelRaster pixels = this.getPixelRaster();
+        BinaryImage bw = new BinaryImage( pixels.getWidth(), pixels.getHeight() );
+        long[] words = bw.getWords();
+        for( int row = 0; row < pixels.getHeight(); row++ )
         {
-            for( int col = 0; col < pixels[0].length; col++ )
+            int index = pixels.index( 0, row );
+            int start = bw.rowStart( row );
+            for( int col = 0; col < pixels.getWidth(); col++, index++ )
             {
-                int totalColor = pixels[row][col].getRed() + pixels[row][col].getGreen() + pixels[row][col].getBlue();
-                if( totalColor < BW_LINE )
-                    pixels[row][col].setColor( Color.BLACK );
-                else
-                    pixels[row][col].setColor( Color.WHITE );
+                int argb = kernel == null ? pixels.getAt( index ) : kernel.apply( pixels.getAt( index ) );
+                int totalColor = Pixel.getRed( argb ) + Pixel.getGreen( argb ) + Pixel.getBlue( argb );
+                if( totalColor >= BW_LINE )
+                    words[ start + (col >>> 6) ] |= 1L << col;
             }
         }
+        
+        return bw;
+    }
+    
+    /**
+     * Method to make the integral image (summed-area table) of this picture, so that
+     * the brightness (red + green + blue) of any rectangle can be found with a few lookups
+     * @return IntegralImage The integral image of this picture
+     */
+    public IntegralImage toIntegralImage()
+    {
+        return new IntegralImage( this.getPixelRaster() );
     }
     
     /** Method to set the red to 0 */
     public void zeroRed()
     {
-        Pixel[][] pixels = this.getPixels2D();
-        for (Pixel[] rowArray : pixels)
-        {
-            for (Pixel pixelObj : rowArray)
-            {
-                pixelObj.setRed(0);
-            }
-        }
+        TileScheduler.apply(this.getPixelRaster(), argb -> argb & 0xFF00FFFF);
     }
 
     /** Method to set the green to 0 */
     public void zeroGreen()
     {
-        Pixel[][] pixels = this.getPixels2D();
-        for (Pixel[] rowArray : pixels)
-        {
-            for (Pixel pixelObj : rowArray)
-            {
-                pixelObj.setGreen(0);
-            }
-        }
+        TileScheduler.apply(this.getPixelRaster(), argb -> argb & 0xFFFF00FF);
     }
 
     /** Method to set the blue to 0 */
     public void zeroBlue()
     {
-        Pixel[][] pixels = this.getPixels2D();
-        for (Pixel[] rowArray : pixels)
-        {
-            for (Pixel pixelObj : rowArray)
-            {
-                pixelObj.setBlue(0);
-            }
-        }
+        TileScheduler.apply(this.getPixelRaster(), argb -> argb & 0xFFFFFF00);
     }
 
     /* Main method for testing - each class in Java can have a main 
@@ -0,0 +1,154 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * A class that keeps the images that were read from files, so that loading the same file
+ * again (such as flower1.jpg in createCollage(), or each training image in every epoch)
+ * costs a copy of its pixels instead of decoding the file.
+ *
+ * Images are kept by the canonical path of their file. If the file has changed since it was
+ * read (its last modified time or length is different), it is read again. The images are
+ * stored as packed ints (see PixelRaster), and the total size of their pixels is kept under
+ * getMaxBytes(). When it would go over, the images used least recently are dropped.
+ *
+ * The images in the cache are shared, so they must never be changed. SimplePicture only
+ * copies a shared image the first time it is changed (or handed out by getBufferedImage(),
+ * getPixelRaster(), or getGraphics()), so a picture that is only looked at or copied is
+ * never copied twice.
+ *
+ *     PictureCache.setMaxBytes( 16L << 20 ); //16 MB of pixels, or 0 to turn the cache off
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class PictureCache
+{
+    /* The bytes of each pixel of a packed int image */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /** One image that was read from a file */
+    private static class Entry
+    {
+        private final BufferedImage image;
+        private final long lastModified;
+        private final long length;
+        private final long bytes;
+
+        public Entry( BufferedImage image, long lastModified, long length )
+        {
+            this.image        = image;
+            this.lastModified = lastModified;
+            this.length       = length;
+            this.bytes        = (long)image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+        }
+    }
+
+    /* The images, by canonical path, in order from least to most recently used */
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true );
+
+    private static long maxBytes = Math.min( 64L << 20, Runtime.getRuntime().maxMemory() / 8 );
+    private static long bytes;
+    private static long hits;
+    private static long misses;
+
+    /**
+     * Method to get the image of a file, reading the file only if it is not in the cache
+     * or has changed since it was read
+     * @param file The image file
+     * @return BufferedImage The image, stored as packed ints, which must not be changed,
+     *                       or null if the file is not an image type that can be read
+     * @throws IOException if the file cannot be read
+     */
+    public static BufferedImage load( File file ) throws IOException
+    {
+        String path = file.getCanonicalPath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        synchronized( PictureCache.class )
+        {
+            Entry entry = entries.get( path );
+            if( entry != null && entry.lastModified == lastModified && entry.length == length )
+            {
+                hits++;
+                return entry.image;
+            }
+            misses++;
+        }
+
+        //The file is read without holding the lock, so other threads can use the cache meanwhile
+        BufferedImage image = ImageIO.read( file );
+        if( image == null ) return null;
+        image = PixelRaster.toIntImage( image );
+
+        put( path, new Entry( image, lastModified, length ) );
+        return image;
+    }
+
+    /**
+     * Method that adds an image to the cache, dropping the images used least recently
+     * until the total size is under getMaxBytes(). Images bigger than that are not kept
+     * @param path The canonical path of the file
+     * @param entry The image
+     */
+    private static synchronized void put( String path, Entry entry )
+    {
+        Entry old = entries.remove( path );
+        if( old != null ) bytes -= old.bytes;
+        if( entry.bytes > maxBytes ) return;
+
+        entries.put( path, entry );
+        bytes += entry.bytes;
+        trim();
+    }
+
+    /**
+     * Method that drops the images used least recently until the total size is under getMaxBytes()
+     */
+    private static void trim()
+    {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while( bytes > maxBytes && eldest.hasNext() )
+        {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Method to set the most bytes of pixels the cache can hold
+     * @param max The most bytes, or 0 to turn the cache off
+     * @throws IllegalArgumentException if max is negative
+     */
+    public static synchronized void setMaxBytes( long max )
+    {
+        if( max < 0 ) throw new IllegalArgumentException( "The cache cannot hold " + max + " bytes" );
+
+        maxBytes = max;
+        trim();
+    }
+
+    /** @return long The most bytes of pixels the cache can hold */
+    public static synchronized long getMaxBytes() { return maxBytes;       }
+    /** @return long The bytes of pixels in the cache */
+    public static synchronized long getBytes()    { return bytes;          }
+    /** @return int The number of images in the cache */
+    public static synchronized int size()         { return entries.size(); }
+    /** @return long The number of loads that used an image in the cache */
+    public static synchronized long getHits()     { return hits;           }
+    /** @return long The number of loads that read the file */
+    public static synchronized long getMisses()   { return misses;         }
+
+    /**
+     * Method that drops every image from the cache
+     */
+    public static synchronized void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+}
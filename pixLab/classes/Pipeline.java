@@ -0,0 +1,480 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A class that describes the steps that prepare a picture (preprocessing), such as
+ *
+ *     Pipeline edges = new Pipeline().edgeDetection( 20, EdgeDetector.Operator.SOBEL )
+ *                                    .superDefuzz( 20, 1 )
+ *                                    .clearIslands( 10, true )
+ *                                    .fillIslands( 10, true )
+ *                                    .linearize( 1 );
+ *     BinaryImage bw = edges.run( pic );
+ *
+ * The steps are only a list of what to do. Before the first run, a planner turns them
+ * into passes over the picture:
+ *
+ *     1) Point operations next to each other (grayscale(), toBW(), point(...)), which
+ *        only look at one pixel at a time, are joined into one pass
+ *     2) Once the picture is black and white, the steps run on a BinaryImage, which
+ *        holds 64 pixels in each long. Steps that can only work on black and white
+ *        (defuzzing, islands, linearizing) turn the picture into a BinaryImage first,
+ *        and the point operations just before that are done in the same pass, without
+ *        writing them into the picture
+ *     3) Steps that do nothing to a black and white image (toBW(), grayscale(), and
+ *        toBinaryImage()) are left out once the image is black and white
+ *     4) Scratch images for the BinaryImage steps are made once per run and shared by
+ *        every step (and kept for the next run on the same thread)
+ *
+ * The result of a run is always a BinaryImage. If the steps do not end with one, the
+ * picture is turned into one at the end, the same way as Picture.toBinaryImage().
+ *
+ * A Pipeline can be run by many threads at once (see SamplePipeline), but steps must
+ * not be added while it is being run. The name of a Pipeline (see getName()) lists
+ * its steps, so that values found with different steps can be told apart.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class Pipeline
+{
+    /** The kinds of steps, which decide how the planner joins them */
+    private enum Kind { POINT, PICTURE, BINARIZE, BINARY }
+
+    /** One step of the pipeline */
+    private static class Step
+    {
+        private final String name;
+        private final Kind kind;
+        private final PixelKernel kernel;          //for POINT steps
+        private final Consumer<Picture> picture;   //for PICTURE steps
+        private final BinaryStep binary;           //for BINARY steps
+        private final boolean makesBinary;         //true if the picture is only black and white afterwards
+        private final boolean keepsBinary;         //true if a black and white picture is not changed
+
+        public Step( String name, Kind kind, PixelKernel kernel, Consumer<Picture> picture, BinaryStep binary,
+                     boolean makesBinary, boolean keepsBinary )
+        {
+            this.name        = name;
+            this.kind        = kind;
+            this.kernel      = kernel;
+            this.picture     = picture;
+            this.binary      = binary;
+            this.makesBinary = makesBinary;
+            this.keepsBinary = keepsBinary;
+        }
+    }
+
+    /** A step that changes a BinaryImage, using the scratch images of the run if it needs any */
+    @FunctionalInterface
+    public interface BinaryStep
+    {
+        public void apply( BinaryImage bw, Scratch scratch );
+    }
+
+    /**
+     * The scratch images of one run. Each slot is an image the same size as the image being
+     * run, which is made the first time it is asked for and then reused by later steps
+     */
+    public static class Scratch
+    {
+        private final ArrayList<BinaryImage> images = new ArrayList<BinaryImage>();
+        private int width, height;
+
+        /**
+         * Method that gets ready for an image of a given size, keeping the scratch images
+         * if they are already that size
+         * @param width The width of the image
+         * @param height The height of the image
+         */
+        private void resize( int width, int height )
+        {
+            if( width == this.width && height == this.height ) return;
+
+            images.clear();
+            this.width  = width;
+            this.height = height;
+        }
+
+        /**
+         * Method to get a scratch image. What is in it is left over from the last step that used it
+         * @param slot The number of the scratch image, starting at 0
+         * @return BinaryImage The scratch image
+         */
+        public BinaryImage image( int slot )
+        {
+            while( images.size() <= slot )
+                images.add( new BinaryImage( width, height ) );
+
+            return images.get( slot );
+        }
+    }
+
+    /* The scratch images of each thread, kept between runs */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial( Scratch::new );
+
+    private final ArrayList<Step> steps = new ArrayList<Step>();
+
+    /* The passes made by the planner, or null if a step was added since */
+    private List<Step> plan;
+
+    /**
+     * Method to add a point operation, which changes each pixel only by its own color
+     * @param name The name of the step, which is part of the name of the pipeline
+     * @param kernel The new color of each pixel, given its old color
+     * @return Pipeline This pipeline, so steps can be chained
+     */
+    public Pipeline point( String name, PixelKernel kernel )
+    {
+        return add( new Step( name, Kind.POINT, kernel, null, null, false, false ) );
+    }
+
+    /**
+     * Method to add a step that changes the whole picture
+     * @param name The name of the step, which is part of the name of the pipeline
+     * @param step The step
+     * @return Pipeline This pipeline, so steps can be chained
+     */
+    public Pipeline picture( String name, Consumer<Picture> step )
+    {
+        return add( new Step( name, Kind.PICTURE, null, step, null, false, false ) );
+    }
+
+    /**
+     * Method to add a step that changes a black and white image
+     * @param name The name of the step, which is part of the name of the pipeline
+     * @param step The step
+     * @return Pipeline This pipeline, so steps can be chained
+     */
+    public Pipeline binary( String name, BinaryStep step )
+    {
+        return add( new Step( name, Kind.BINARY, null, null, step, true, true ) );
+    }
+
+    /** @return Pipeline This pipeline, with a step that converts the picture to gray (see Picture.grayscale()) */
+    public Pipeline grayscale()
+    {
+        return add( new Step( "grayscale", Kind.POINT, ColorConversion::toGray, null, null, false, true ) );
+    }
+
+    /** @return Pipeline This pipeline, with a step that converts the picture to black and white (see Picture.toBW()) */
+    public Pipeline toBW()
+    {
+        return add( new Step( "toBW", Kind.POINT, Picture::toBWColor, null, null, true, true ) );
+    }
+
+    /** @return Pipeline This pipeline, with a step that converts the picture to a BinaryImage */
+    public Pipeline toBinaryImage()
+    {
+        return add( new Step( "toBinaryImage", Kind.BINARIZE, null, null, null, true, true ) );
+    }
+
+    /**
+     * @param sigma The standard deviation of the blur, in pixels
+     * @return Pipeline This pipeline, with a step that blurs the picture (see Picture.gaussianBlur(double))
+     */
+    public Pipeline gaussianBlur( double sigma )
+    {
+        return add( new Step( "gaussianBlur(" + sigma + ")", Kind.PICTURE, null,
+                              pic -> pic.gaussianBlur( sigma ), null, false, false ) );
+    }
+
+    /**
+     * @param edgeDist The distance for finding edges
+     * @param operator How the change in color is found
+     * @return Pipeline This pipeline, with a step that paints the edges of the picture black
+     *                  and everything else white (see Picture.edgeDetection(int, EdgeDetector.Operator)).
+     *                  DIFFERENCE does not change the last column, so only SOBEL and SCHARR leave
+     *                  the picture black and white
+     */
+    public Pipeline edgeDetection( int edgeDist, EdgeDetector.Operator operator )
+    {
+        return add( new Step( "edgeDetection(" + edgeDist + "," + operator + ")", Kind.PICTURE, null,
+                              pic -> pic.edgeDetection( edgeDist, operator ), null,
+                              operator != EdgeDetector.Operator.DIFFERENCE, false ) );
+    }
+
+    /**
+     * @param sectionWidth The width of the section being defuzzed
+     * @param neighbors Black pixels with this many or less black neighbors are changed to white
+     * @return Pipeline This pipeline, with a defuzz step (see Picture.defuzz(BinaryImage, int, int))
+     */
+    public Pipeline defuzz( int sectionWidth, int neighbors )
+    {
+        return binary( "defuzz(" + sectionWidth + "," + neighbors + ")",
+                       (bw, scratch) -> Picture.defuzz( bw, sectionWidth, 0, 0, neighbors,
+                                                        scratch.image( 0 ), scratch.image( 1 ) ) );
+    }
+
+    /**
+     * @param sectionWidth The width of the section being defuzzed
+     * @param neighbors Black pixels with this many or less black neighbors are changed to white
+     * @return Pipeline This pipeline, with a superDefuzz step (see Picture.superDefuzz(BinaryImage, int, int))
+     */
+    public Pipeline superDefuzz( int sectionWidth, int neighbors )
+    {
+        return binary( "superDefuzz(" + sectionWidth + "," + neighbors + ")",
+                       (bw, scratch) -> Picture.superDefuzz( bw, sectionWidth, neighbors,
+                                                             scratch.image( 0 ), scratch.image( 1 ) ) );
+    }
+
+    /**
+     * @param pixelIslandLimit Black islands with fewer pixels than this are changed to white
+     * @param includeDiagonals True if diagonals are included in islands, false otherwise
+     * @return Pipeline This pipeline, with a clearIslands step (see Picture.clearIslands(BinaryImage, int, boolean))
+     */
+    public Pipeline clearIslands( int pixelIslandLimit, boolean includeDiagonals )
+    {
+        return binary( "clearIslands(" + pixelIslandLimit + "," + includeDiagonals + ")",
+                       (bw, scratch) -> Picture.clearIslands( bw, pixelIslandLimit, includeDiagonals ) );
+    }
+
+    /**
+     * @param pixelIslandLimit White islands with fewer pixels than this are changed to black
+     * @param includeDiagonals True if diagonals are included in islands, false otherwise
+     * @return Pipeline This pipeline, with a fillIslands step (see Picture.fillIslands(BinaryImage, int, boolean))
+     */
+    public Pipeline fillIslands( int pixelIslandLimit, boolean includeDiagonals )
+    {
+        return binary( "fillIslands(" + pixelIslandLimit + "," + includeDiagonals + ")",
+                       (bw, scratch) -> Picture.fillIslands( bw, pixelIslandLimit, includeDiagonals ) );
+    }
+
+    /**
+     * @param lineThickness The thickness of the lines, in pixels
+     * @return Pipeline This pipeline, with a linearize step (see Picture.linearize(BinaryImage, int))
+     */
+    public Pipeline linearize( int lineThickness )
+    {
+        return binary( "linearize(" + lineThickness + ")",
+                       (bw, scratch) -> Picture.linearize( bw, lineThickness ) );
+    }
+
+    /**
+     * Method that adds a step to the end of the pipeline
+     * @param step The step
+     * @return Pipeline This pipeline
+     */
+    private synchronized Pipeline add( Step step )
+    {
+        steps.add( step );
+        plan = null;
+        return this;
+    }
+
+    /**
+     * Method to get the name of the pipeline, which is the names of its steps joined by " -> ".
+     * If the steps do not end with a black and white image, "toBinaryImage" is added at the end
+     * @return String The name of the pipeline
+     */
+    public synchronized String getName()
+    {
+        StringBuilder name = new StringBuilder();
+        for( Step step : steps )
+            name.append( name.length() == 0 ? "" : " -> " ).append( step.name );
+
+        Kind last = steps.isEmpty() ? null : steps.get( steps.size() - 1 ).kind;
+        if( last != Kind.BINARIZE && last != Kind.BINARY )
+            name.append( name.length() == 0 ? "" : " -> " ).append( "toBinaryImage" );
+
+        return name.toString();
+    }
+
+    /**
+     * Method to get the passes that a run makes, as names joined by " -> ". Joined point
+     * operations are shown as their names joined by " + "
+     * @return String The passes
+     */
+    public String getPlanName()
+    {
+        StringBuilder name = new StringBuilder();
+        for( Step pass : getPlan() )
+            name.append( name.length() == 0 ? "" : " -> " ).append( pass.name );
+
+        return name.toString();
+    }
+
+    /**
+     * Method that runs the steps on a picture. The picture is changed by the steps that work
+     * on pictures, so pass a copy to keep it
+     * @param pic The picture
+     * @return BinaryImage The black and white image at the end of the steps
+     */
+    public BinaryImage run( Picture pic )
+    {
+        return run( getPlan(), pic, null );
+    }
+
+    /**
+     * Method that determines whether the first pass only turns the picture into a BinaryImage
+     * the same way as Picture.toBinaryImage(), with no point operations joined into it. Only
+     * then can the steps be run from a saved BinaryImage instead of the picture (see run( BinaryImage ))
+     * @return boolean True if the first pass is a plain toBinaryImage()
+     */
+    public boolean startsWithBinarize()
+    {
+        Step first = getPlan().get( 0 );
+        return first.kind == Kind.BINARIZE && first.kernel == null;
+    }
+
+    /**
+     * Method that runs the steps on the Picture.toBinaryImage() of a picture, such as one read
+     * from a PackedDataset, without the picture. The result is the same as run( pic ) would
+     * give. If the steps only turn the picture black and white, no Picture is made at all
+     * @param bw The Picture.toBinaryImage() of the picture, which is changed by the steps,
+     *           so pass a copy to keep it
+     * @return BinaryImage The black and white image at the end of the steps
+     * @throws IllegalStateException if the steps do not start with a plain toBinaryImage()
+     *                               (see startsWithBinarize()), since they need the picture
+     */
+    public BinaryImage run( BinaryImage bw )
+    {
+        if( !startsWithBinarize() )
+            throw new IllegalStateException( "The steps " + getPlanName() + " need the picture, not its BinaryImage" );
+
+        List<Step> passes = getPlan();
+        return run( passes.subList( 1, passes.size() ), null, bw );
+    }
+
+    /**
+     * Method that runs passes on a picture or a black and white image
+     * @param passes The passes made by the planner
+     * @param pic The picture, or null if a Picture should only be made if a pass needs one
+     * @param bw The black and white image to start with, or null to start with the picture
+     * @return BinaryImage The black and white image at the end of the passes
+     */
+    private static BinaryImage run( List<Step> passes, Picture pic, BinaryImage bw )
+    {
+        Scratch scratch = SCRATCH.get();
+        if( bw != null ) scratch.resize( bw.getWidth(), bw.getHeight() );
+        for( Step pass : passes )
+        {
+            if( bw != null && pass.kind != Kind.BINARY )
+            {
+                //The pass works on the picture, so the black and white image is painted onto it first
+                if( pic == null ) pic = bw.toPicture();
+                else              bw.writeTo( pic );
+                bw = null;
+            }
+
+            switch( pass.kind )
+            {
+                case POINT:
+                    TileScheduler.apply( pic.getPixelRaster(), pass.kernel );
+                    break;
+                case PICTURE:
+                    pass.picture.accept( pic );
+                    break;
+                case BINARIZE:
+                    bw = pic.toBinaryImage( pass.kernel );
+                    scratch.resize( bw.getWidth(), bw.getHeight() );
+                    break;
+                default:
+                    pass.binary.apply( bw, scratch );
+            }
+        }
+
+        return bw;
+    }
+
+    /**
+     * Method that runs the steps on a picture, and paints the black and white result back onto it
+     * @param pic The picture, which is changed
+     */
+    public void apply( Picture pic )
+    {
+        run( pic ).writeTo( pic );
+    }
+
+    /** @return List<Step> The passes made by the planner, which are made the first time they are needed */
+    private synchronized List<Step> getPlan()
+    {
+        if( plan == null ) plan = plan( steps );
+        return plan;
+    }
+
+    /**
+     * Method that turns the steps into passes (see the comment at the top of this class)
+     * @param steps The steps
+     * @return List<Step> The passes, which always end with a BinaryImage
+     */
+    private static List<Step> plan( List<Step> steps )
+    {
+        ArrayList<Step> passes = new ArrayList<Step>();
+        boolean isBinaryImage = false; //true if the image is a BinaryImage
+        boolean isBW          = false; //true if the picture is only black and white
+        Step points = null;            //point operations that have not been added yet
+
+        for( Step step : steps )
+        {
+            if( (isBinaryImage || isBW) && step.keepsBinary && step.kind != Kind.BINARY )
+            {
+                //The step does nothing to a black and white image, but a BinaryImage can still be made
+                if( !isBinaryImage && step.kind == Kind.BINARIZE )
+                {
+                    passes.add( binarize( points ) );
+                    points = null;
+                    isBinaryImage = true;
+                }
+                continue;
+            }
+
+            switch( step.kind )
+            {
+                case POINT:
+                    points = points == null ? step : join( points, step );
+                    isBinaryImage = false;
+                    break;
+                case PICTURE:
+                    if( points != null ) passes.add( points );
+                    points = null;
+                    passes.add( step );
+                    isBinaryImage = false;
+                    break;
+                case BINARIZE:
+                    passes.add( binarize( points ) );
+                    points = null;
+                    isBinaryImage = true;
+                    break;
+                default:
+                    if( !isBinaryImage )
+                    {
+                        passes.add( binarize( points ) );
+                        points = null;
+                        isBinaryImage = true;
+                    }
+                    passes.add( step );
+            }
+            isBW = step.makesBinary || (isBW && step.keepsBinary);
+        }
+
+        if( !isBinaryImage )
+            passes.add( binarize( points ) );
+
+        return passes;
+    }
+
+    /**
+     * Method to make a pass that converts the picture to a BinaryImage
+     * @param points The point operations to do in the same pass, or null for none
+     * @return Step The pass
+     */
+    private static Step binarize( Step points )
+    {
+        String name = points == null ? "toBinaryImage" : points.name + " + toBinaryImage";
+        return new Step( name, Kind.BINARIZE, points == null ? null : points.kernel, null, null, true, true );
+    }
+
+    /**
+     * Method to join two point operations into one pass
+     * @param first The point operation done first
+     * @param second The point operation done second
+     * @return Step The joined pass
+     */
+    private static Step join( Step first, Step second )
+    {
+        return new Step( first.name + " + " + second.name, Kind.POINT, first.kernel.andThen( second.kernel ),
+                         null, null, second.makesBinary || (first.makesBinary && second.keepsBinary),
+                         first.keepsBinary && second.keepsBinary );
+    }
+}
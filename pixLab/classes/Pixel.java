@@ -100,6 +100,17 @@ public class Pixel
         return alpha;
     }
 
+    /**
+     * Method to get the alpha value from a pixel represented as an int
+     * @param value the color value as an int
+     * @return the amount of alpha
+     */
+    public static int getAlpha(int value)
+    {
+        int alpha = (value >> 24) & 0xff;
+        return alpha;
+    }
+
     /**
      * Method to get the amount of red at this pixel.  It will be
      * from 0-255 with 0 being no red and 255 being as much red as
@@ -372,6 +383,54 @@ public class Pixel
         return distance;
     }
 
+    /**
+     * Method to compute the color distance between two colors represented as ints
+     * @param value1 a color value as an int
+     * @param value2 a color value as an int
+     * @return the distance between the two colors
+     */
+    public static double colorDistance(int value1, int value2)
+    {
+        return Math.sqrt(colorDistanceSquared(value1, value2));
+    }
+
+    /**
+     * Method to compute the squared color distance between two colors represented
+     * as ints.  This is the same as colorDistance(value1, value2) squared, but does
+     * not need a square root, so it is faster to compare against a threshold
+     * @param value1 a color value as an int
+     * @param value2 a color value as an int
+     * @return the squared distance between the two colors
+     */
+    public static int colorDistanceSquared(int value1, int value2)
+    {
+        int redDistance = getRed(value1) - getRed(value2);
+        int greenDistance = getGreen(value1) - getGreen(value2);
+        int blueDistance = getBlue(value1) - getBlue(value2);
+        return redDistance * redDistance + 
+            greenDistance * greenDistance +
+            blueDistance * blueDistance;
+    }
+
+    /**
+     * Method to compute the same distance as colorDistanceAdvanced(Color), between
+     * two colors represented as ints
+     * @param value1 a color value as an int
+     * @param value2 a color value as an int
+     * @return the distance between the two colors
+     */
+    public static double colorDistanceAdvanced(int value1, int value2)
+    {
+        int red1 = getRed(value1);
+        int red2 = getRed(value2);
+        int rmean = (red1 + red2) >> 1;
+        int r = red1 - red2;
+        int g = getGreen(value1) - getGreen(value2);
+        int b = getBlue(value1) - getBlue(value2);
+        
+        return Math.sqrt((((512+rmean)*r*r)>>8) + 4*g*g + (((767-rmean)*b*b)>>8));
+    }
+
     /**
      * Method to get the average of the colors of this pixel
      * @return the average of the red, green, and blue values
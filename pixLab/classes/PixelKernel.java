@@ -0,0 +1,31 @@
+/**
+ * Interface to describe an operation that changes each pixel of a picture on its own,
+ * only looking at the old color of that pixel (a point operation). Because no pixel
+ * depends on another, the pixels can be changed in any order, and by many threads at
+ * once. See TileScheduler
+ *
+ *     TileScheduler.apply( pixels, argb -> argb & 0xFF00FFFF ); //zero the green
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+@FunctionalInterface
+public interface PixelKernel
+{
+    /**
+     * Method that finds the new color of a pixel
+     * @param argb The old color of the pixel, as a packed ARGB int
+     * @return int The new color of the pixel, as a packed ARGB int
+     */
+    public int apply( int argb );
+
+    /**
+     * Method to make one kernel that does this kernel and then another, so that both
+     * are done in one pass over the picture
+     * @param next The kernel to do second
+     * @return PixelKernel The kernel that does both
+     */
+    public default PixelKernel andThen( PixelKernel next )
+    {
+        return argb -> next.apply( apply( argb ) );
+    }
+}
@@ -0,0 +1,184 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * A class that gives direct access to the packed pixel ints of a picture.
+ *
+ * Unlike getPixels2D(), which creates a Pixel object for every pixel and reads
+ * each color through BufferedImage.getRGB(..), a PixelRaster wraps the int[]
+ * that backs a TYPE_INT_ARGB (or TYPE_INT_RGB) BufferedImage. Pixels are stored
+ * in row-major order, so the pixel at (x, y) is at index( x, y ), which is
+ *
+ *     offset + y * stride + x
+ *
+ * The values returned by get(..) are always packed ARGB ints (alpha in the top
+ * 8 bits, then red, green, and blue), the same as Pixel.getRGBValue(). Images
+ * without an alpha channel report every pixel as fully opaque.
+ *
+ * Writes go straight into the image, so no copy back is needed. A full scan of
+ * the picture through this class does not allocate any objects.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class PixelRaster
+{
+    private final BufferedImage image;
+    private final int[] data;
+    private final int width;
+    private final int height;
+    private final int offset;
+    private final int stride;
+
+    /* OR'd into every value read, so that TYPE_INT_RGB pixels read as opaque */
+    private final int alphaFill;
+
+    /**
+     * Wraps the int[] of the given image. The image must be TYPE_INT_ARGB or
+     * TYPE_INT_RGB; use toIntImage(..) to convert any other image first
+     * @param image The image to wrap
+     * @throws IllegalArgumentException if the image is not backed by packed ints
+     */
+    public PixelRaster( BufferedImage image )
+    {
+        if( !isIntPacked( image ) )
+            throw new IllegalArgumentException( "Image type " + image.getType() +
+                                                " is not TYPE_INT_ARGB or TYPE_INT_RGB" );
+
+        WritableRaster raster = image.getRaster();
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+
+        this.image     = image;
+        this.data      = buffer.getData();
+        this.width     = image.getWidth();
+        this.height    = image.getHeight();
+        this.stride    = model.getScanlineStride();
+        this.offset    = buffer.getOffset()
+                         - raster.getSampleModelTranslateY() * stride
+                         - raster.getSampleModelTranslateX();
+        this.alphaFill = image.getType() == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+    }
+
+    /**
+     * Method that determines whether an image can be wrapped by a PixelRaster
+     * @param image The image to check
+     * @return boolean True if the image is TYPE_INT_ARGB or TYPE_INT_RGB, false otherwise
+     */
+    public static boolean isIntPacked( BufferedImage image )
+    {
+        int type = image.getType();
+        return type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB;
+    }
+
+    /**
+     * Method that returns an image that can be wrapped by a PixelRaster. If the image
+     * is already packed ints, it is returned as is. Otherwise, it is drawn into a new
+     * TYPE_INT_ARGB image (or TYPE_INT_RGB if it has no alpha channel)
+     * @param image The image to convert
+     * @return BufferedImage The int packed image
+     */
+    public static BufferedImage toIntImage( BufferedImage image )
+    {
+        if( isIntPacked( image ) ) return image;
+
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+                                                    : BufferedImage.TYPE_INT_RGB;
+        BufferedImage intImage = new BufferedImage( image.getWidth(), image.getHeight(), type );
+        intImage.getRaster().setDataElements( 0, 0, image.getWidth(), image.getHeight(),
+                                              image.getRGB( 0, 0, image.getWidth(), image.getHeight(),
+                                                            null, 0, image.getWidth() ) );
+        return intImage;
+    }
+
+    /** @return BufferedImage The image that this raster writes into */
+    public BufferedImage getImage() { return image;  }
+    /** @return int[] The backing array. Use index(x, y) to find a pixel in it */
+    public int[] getData()          { return data;   }
+    /** @return int The width of the picture in pixels */
+    public int getWidth()           { return width;  }
+    /** @return int The height of the picture in pixels */
+    public int getHeight()          { return height; }
+    /** @return int The index of pixel (0, 0) in the backing array */
+    public int getOffset()          { return offset; }
+    /** @return int The distance between the start of one row and the next in the backing array */
+    public int getStride()          { return stride; }
+    /** @return boolean True if the image stores an alpha channel, false if every pixel is opaque */
+    public boolean hasAlpha()       { return alphaFill == 0; }
+
+    /**
+     * Method to get the index of a pixel in the backing array
+     * @param x The column of the pixel
+     * @param y The row of the pixel
+     * @return int The index of the pixel
+     */
+    public int index( int x, int y ) { return offset + y * stride + x; }
+
+    /**
+     * Method to get the packed ARGB value of a pixel
+     * @param x The column of the pixel
+     * @param y The row of the pixel
+     * @return int The ARGB value of the pixel
+     */
+    public int get( int x, int y ) { return data[ offset + y * stride + x ] | alphaFill; }
+
+    /**
+     * Method to set the packed ARGB value of a pixel
+     * @param x The column of the pixel
+     * @param y The row of the pixel
+     * @param argb The new ARGB value of the pixel
+     */
+    public void set( int x, int y, int argb ) { data[ offset + y * stride + x ] = argb; }
+
+    /**
+     * Method to get the packed ARGB value at an index of the backing array
+     * @param index The index, as found by index(x, y)
+     * @return int The ARGB value of the pixel
+     */
+    public int getAt( int index ) { return data[ index ] | alphaFill; }
+
+    /**
+     * Method to set the packed ARGB value at an index of the backing array
+     * @param index The index, as found by index(x, y)
+     * @param argb The new ARGB value of the pixel
+     */
+    public void setAt( int index, int argb ) { data[ index ] = argb; }
+
+    /**
+     * Method to copy one row of pixels into an array as packed ARGB values
+     * @param y The row to copy
+     * @param row The array to copy into, which must hold at least getWidth() values
+     */
+    public void getRow( int y, int[] row )
+    {
+        int start = offset + y * stride;
+        System.arraycopy( data, start, row, 0, width );
+        if( alphaFill != 0 )
+            for( int col = 0; col < width; col++ )
+                row[col] |= alphaFill;
+    }
+
+    /**
+     * Method to copy an array of packed ARGB values into one row of pixels
+     * @param y The row to write to
+     * @param row The values to write, which must hold at least getWidth() values
+     */
+    public void setRow( int y, int[] row )
+    {
+        System.arraycopy( row, 0, data, offset + y * stride, width );
+    }
+
+    /**
+     * Method to build a packed ARGB value from its parts. Parts are not range checked
+     * @param alpha The alpha, 0-255
+     * @param red The red, 0-255
+     * @param green The green, 0-255
+     * @param blue The blue, 0-255
+     * @return int The packed ARGB value
+     */
+    public static int pack( int alpha, int red, int green, int blue )
+    {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+}
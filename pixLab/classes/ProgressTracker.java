@@ -0,0 +1,218 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A class that keeps track of how many guesses the detector has gotten right,
+ * and logs each guess to the progress file. Each line of the file looks like
+ *
+ *     1. Incorrect. 0/1 0%
+ *     2. Correct! 1/2 50%
+ *
+ * The counts are kept in memory, so adding a line does not read the file. When a
+ * tracker is made, the counts are restored from the last line of the file, which
+ * is found by reading backwards from the end of the file instead of reading every
+ * line. Lines are written through a buffer that is flushed every getFlushInterval()
+ * lines, and when the tracker is closed.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class ProgressTracker
+{
+    /* The number of bytes first read from the end of the file when looking for the last line */
+    private static final int TAIL_BLOCK = 256;
+
+    private final Path path;
+    private final BufferedWriter writer;
+    private int correct;
+    private int total;
+
+    private int flushInterval = 1;
+    private int unflushedLines = 0;
+    private Thread shutdownHook = null;
+
+    /**
+     * Opens a progress file to add lines to, creating it if it does not exist.
+     * The counts continue from the last line of the file
+     * @param path The progress file
+     * @throws IOException if the file cannot be read or opened, or the last line is not in the right format
+     */
+    public ProgressTracker( Path path ) throws IOException
+    {
+        int[] counts = readLastCounts( path );
+        this.path    = path;
+        this.correct = counts[0];
+        this.total   = counts[1];
+        this.writer  = Files.newBufferedWriter( path, StandardCharsets.UTF_8,
+                                                StandardOpenOption.CREATE, StandardOpenOption.APPEND );
+    }
+
+    /**
+     * Method to read the correct and total counts from the last line of a progress file
+     * @param path The progress file
+     * @return int[] The number correct at index 0 and the total at index 1. Both are
+     *               0 if the file does not exist or has no lines
+     * @throws IOException if the file cannot be read or the last line is not in the right format
+     */
+    public static int[] readLastCounts( Path path ) throws IOException
+    {
+        if( !Files.exists( path ) ) return new int[]{ 0, 0 };
+
+        String line = readLastLine( path );
+        if( line.isEmpty() ) return new int[]{ 0, 0 };
+
+        //Format of line: 1. Correct! 13/20 65%    ... or ...    2. Incorrect. 17/25 68%
+        try
+        {
+            String[] parts = line.split(" ");
+            String[] ratio = parts[2].split("/");
+            return new int[]{ Integer.parseInt( ratio[0] ), Integer.parseInt( ratio[1] ) };
+        }
+        catch( RuntimeException e )
+        {
+            throw new IOException( "Last line \"" + line + "\" of " + path + " is not a progress line", e );
+        }
+    }
+
+    /**
+     * Method to read the last line of a file that is not blank. Blocks are read from the
+     * end of the file, doubling in size until a whole line is found
+     * @param path The file
+     * @return String The last line, or "" if every line is blank
+     * @throws IOException if the file cannot be read
+     */
+    private static String readLastLine( Path path ) throws IOException
+    {
+        try( RandomAccessFile file = new RandomAccessFile( path.toFile(), "r" ) )
+        {
+            long length = file.length();
+            for( long block = TAIL_BLOCK; ; block *= 2 )
+            {
+                int size = (int)Math.min( block, length );
+                byte[] bytes = new byte[ size ];
+                file.seek( length - size );
+                file.readFully( bytes );
+
+                String tail = new String( bytes, StandardCharsets.UTF_8 ).stripTrailing();
+                int newline = tail.lastIndexOf('\n');
+                if( newline != -1 || size == length )
+                    return tail.substring( newline + 1 ).trim();
+            }
+        }
+    }
+
+    /** @return Path The progress file */
+    public Path getPath()          { return path;          }
+    /** @return int The number of correct guesses */
+    public int getCorrect()        { return correct;       }
+    /** @return int The total number of guesses */
+    public int getTotal()          { return total;         }
+    /** @return int The number of lines added between flushes */
+    public int getFlushInterval()  { return flushInterval; }
+
+    /** @return int The percent of guesses that are correct, rounded down */
+    public int getPercent()
+    {
+        return total == 0 ? 0 : (int)((((double)correct)/((double)total)) * 100.0);
+    }
+
+    /**
+     * Method to set how often lines are written to the file
+     * @param lines The number of lines added between flushes, which must be at least 1
+     * @throws IllegalArgumentException if lines is less than 1
+     */
+    public void setFlushInterval( int lines )
+    {
+        if( lines < 1 )
+            throw new IllegalArgumentException( "Flush interval must be at least 1, not " + lines );
+
+        flushInterval = lines;
+    }
+
+    /**
+     * Method to add the result of one guess
+     * @param success True if the guess was correct, false otherwise
+     * @return String The line added to the progress file
+     * @throws IOException if the line cannot be written
+     */
+    public synchronized String record( boolean success ) throws IOException
+    {
+        ++total;
+        if( success ) ++correct;
+
+        String response = success ? "Correct!" : "Incorrect.";
+        String line = total + ". " + response + " " + correct + "/" + total + " " + getPercent() + "%\n";
+        writer.write( line );
+
+        if( ++unflushedLines >= flushInterval )
+            flush();
+
+        return line;
+    }
+
+    /**
+     * Method to write any buffered lines to the file
+     * @throws IOException if the lines cannot be written
+     */
+    public synchronized void flush() throws IOException
+    {
+        writer.flush();
+        unflushedLines = 0;
+    }
+
+    /**
+     * Method that flushes the buffered lines when the program exits, in case the program
+     * is stopped before close() is called. Calling this more than once does nothing
+     */
+    public synchronized void flushOnShutdown()
+    {
+        if( shutdownHook != null ) return;
+
+        shutdownHook = new Thread( () -> {
+            try
+            {
+                flush();
+            }
+            catch( IOException e )
+            {
+                e.printStackTrace();
+            }
+        } );
+        Runtime.getRuntime().addShutdownHook( shutdownHook );
+    }
+
+    /**
+     * Method that writes any buffered lines and closes the file
+     * @throws IOException if the lines cannot be written
+     */
+    public synchronized void close() throws IOException
+    {
+        if( shutdownHook != null )
+        {
+            try
+            {
+                Runtime.getRuntime().removeShutdownHook( shutdownHook );
+            }
+            catch( IllegalStateException e )
+            {
+                //The program is already exiting, so the hook will flush the file
+            }
+            shutdownHook = null;
+        }
+
+        writer.close();
+    }
+
+    /**
+     * Method to return the counts of this tracker
+     * @return String The correct and total counts, and the percent correct
+     */
+    public String toString()
+    {
+        return correct + "/" + total + " " + getPercent() + "%";
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * A class that runs the slow part of handling each sample (reading the image file,
+ * converting it to black and white, and finding its features) on a pool of worker
+ * threads, ahead of the code that uses the results.
+ *
+ * The results are handed back by next() in the same order as the inputs, so the
+ * training code still sees the samples in the order it chose. At most getWindow()
+ * samples are being worked on or waiting at a time, so the workers can only get so
+ * far ahead, and memory use stays bounded no matter how many samples there are.
+ *
+ *     SamplePipeline<File, Sample> pipeline = new SamplePipeline<File, Sample>( files, this::loadSample );
+ *     while( pipeline.hasNext() )
+ *         train( pipeline.next() );
+ *     pipeline.close();
+ *
+ * The stage function is called from several threads at once, so it should not
+ * change anything that is shared between samples.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class SamplePipeline<T, R> implements Iterator<R>
+{
+    private final Iterator<T> inputs;
+    private final Function<T, R> stage;
+    private final ExecutorService workers;
+    private final ArrayDeque<Future<R>> inFlight = new ArrayDeque<Future<R>>();
+    private final int window;
+
+    /**
+     * Creates a pipeline that uses one worker for each processor, and lets the workers
+     * get up to two samples per worker ahead
+     * @param inputs The samples, in the order their results should be returned
+     * @param stage The work to do for each sample
+     */
+    public SamplePipeline( List<T> inputs, Function<T, R> stage )
+    {
+        this( inputs, stage, Runtime.getRuntime().availableProcessors(),
+              2 * Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Creates a pipeline
+     * @param inputs The samples, in the order their results should be returned
+     * @param stage The work to do for each sample
+     * @param threads The number of worker threads, which must be at least 1
+     * @param window The most samples that can be worked on or waiting at once, which must be at least 1
+     * @throws IllegalArgumentException if threads or window is less than 1
+     */
+    public SamplePipeline( List<T> inputs, Function<T, R> stage, int threads, int window )
+    {
+        if( threads < 1 ) throw new IllegalArgumentException( "Threads must be at least 1, not " + threads );
+        if( window  < 1 ) throw new IllegalArgumentException( "Window must be at least 1, not " + window );
+
+        this.inputs  = inputs.iterator();
+        this.stage   = stage;
+        this.window  = window;
+        this.workers = Executors.newFixedThreadPool( threads, runnable -> {
+            Thread thread = new Thread( runnable, "SamplePipeline worker" );
+            thread.setDaemon( true ); //do not keep the program running if close() is not called
+            return thread;
+        } );
+
+        fill();
+    }
+
+    /** @return int The most samples that can be worked on or waiting at once */
+    public int getWindow() { return window; }
+
+    /**
+     * Method that starts work on more samples until the window is full or there
+     * are no samples left
+     */
+    private void fill()
+    {
+        while( inFlight.size() < window && inputs.hasNext() )
+        {
+            T input = inputs.next();
+            inFlight.add( workers.submit( () -> stage.apply( input ) ) );
+        }
+    }
+
+    /**
+     * Method that determines whether there are more results
+     * @return boolean True if next() will return a result, false otherwise
+     */
+    public boolean hasNext() { return !inFlight.isEmpty(); }
+
+    /**
+     * Method that waits for the result of the next sample, in input order
+     * @return R The result of the stage for the next sample
+     * @throws NoSuchElementException if there are no more samples
+     * @throws RuntimeException if the stage threw an exception for this sample
+     */
+    public R next()
+    {
+        if( inFlight.isEmpty() ) throw new NoSuchElementException();
+
+        Future<R> future = inFlight.poll();
+        fill();
+
+        try
+        {
+            return future.get();
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while waiting for a sample", e );
+        }
+        catch( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+            if( cause instanceof Error )            throw (Error) cause;
+            throw new RuntimeException( cause );
+        }
+    }
+
+    /**
+     * Method that stops the workers. Samples that have not been returned yet are dropped
+     */
+    public void close()
+    {
+        for( Future<R> future : inFlight )
+            future.cancel( true );
+        inFlight.clear();
+        workers.shutdownNow();
+    }
+}
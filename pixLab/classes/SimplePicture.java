@@ -1,10 +1,16 @@
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import java.awt.*;
 import java.io.*;
 import java.awt.geom.*;
+import java.util.Arrays;
+import java.util.Iterator;
 
 /**
  * A class that represents a simple picture.  A simple picture may have
@@ -45,6 +51,18 @@ public class SimplePicture implements DigitalPicture
      */
     private String extension;
 
+    /**
+     * packed int view of the buffered image (made the first time it is asked for)
+     */
+    private PixelRaster pixelRaster;
+
+    /**
+     * true if the buffered image is shared with the PictureCache or an 
+     * image that is waiting to be written (see writeLater(String)), so it 
+     * must be copied before it is changed or handed out (see unshare())
+     */
+    private boolean shared;
+
     /////////////////////// Constructors /////////////////////////
     /**
      * A Constructor that takes no arguments.  It creates a picture with
@@ -71,6 +89,18 @@ public class SimplePicture implements DigitalPicture
 
     }
 
+    /**
+     * A Constructor that takes a file name and uses part of the file, or a
+     * smaller version of it, to create a picture (see loadOrFail(String,int,Rectangle))
+     * @param fileName the file name to use in creating the picture
+     * @param subsampling only every subsampling-th pixel across and down is read
+     * @param region the part of the image to read, or null for all of it
+     */
+    public SimplePicture(String fileName, int subsampling, Rectangle region)
+    {
+        load(fileName,subsampling,region);
+    }
+
     /**
      * A constructor that takes the width and height desired for a picture and
      * creates a buffered image of that size.  This constructor doesn't 
@@ -84,7 +114,7 @@ public class SimplePicture implements DigitalPicture
         title = "None";
         fileName = "None";
         extension = "jpg";
-        setAllPixelsToAColor(Color.white);
+        Arrays.fill(getPixelRaster().getData(), Color.white.getRGB());
     }
 
     /**
@@ -149,26 +179,17 @@ public class SimplePicture implements DigitalPicture
      */
     public void copyPicture(SimplePicture sourcePicture)
     {
-        Pixel sourcePixel = null;
-        Pixel targetPixel = null;
+        PixelRaster source = sourcePicture.readRaster();
+        PixelRaster target = this.getPixelRaster();
+        int width = Math.min(source.getWidth(), target.getWidth());
+        int height = Math.min(source.getHeight(), target.getHeight());
+        int[] sourceData = source.getData();
+        int[] targetData = target.getData();
 
-        // loop through the columns
-        for (int sourceX = 0, targetX = 0; 
-        sourceX < sourcePicture.getWidth() &&
-        targetX < this.getWidth();
-        sourceX++, targetX++)
-        {
-            // loop through the rows
-            for (int sourceY = 0, targetY = 0; 
-            sourceY < sourcePicture.getHeight() && 
-            targetY < this.getHeight();
-            sourceY++, targetY++)
-            {
-                sourcePixel = sourcePicture.getPixel(sourceX,sourceY);
-                targetPixel = this.getPixel(targetX,targetY);
-                targetPixel.setColor(sourcePixel.getColor());
-            }
-        }
+        // copy each row of the overlapping area at once
+        for (int row = 0; row < height; row++)
+            System.arraycopy(sourceData, source.index(0,row),
+                targetData, target.index(0,row), width);
 
     }
 
@@ -178,14 +199,15 @@ public class SimplePicture implements DigitalPicture
      */
     public void setAllPixelsToAColor(Color color)
     {
-        // loop through all x
-        for (int x = 0; x < this.getWidth(); x++)
+        PixelRaster raster = getPixelRaster();
+        int rgb = color.getRGB() & 0xFFFFFF;
+
+        // loop through all rows, keeping the alpha of each pixel
+        for (int y = 0; y < raster.getHeight(); y++)
         {
-            // loop through all y
-            for (int y = 0; y < this.getHeight(); y++)
-            {
-                getPixel(x,y).setColor(color);
-            }
+            int index = raster.index(0,y);
+            for (int x = 0; x < raster.getWidth(); x++, index++)
+                raster.setAt(index, (raster.getAt(index) & 0xFF000000) | rgb);
         }
     }
 
@@ -195,6 +217,7 @@ public class SimplePicture implements DigitalPicture
      */
     public BufferedImage getBufferedImage() 
     {
+        unshare();
         return bufferedImage;
     }
 
@@ -204,6 +227,7 @@ public class SimplePicture implements DigitalPicture
      */
     public Graphics getGraphics()
     {
+        unshare();
         return bufferedImage.getGraphics();
     }
 
@@ -213,6 +237,7 @@ public class SimplePicture implements DigitalPicture
      */
     public Graphics2D createGraphics()
     {
+        unshare();
         return bufferedImage.createGraphics();
     }
 
@@ -306,6 +331,7 @@ public class SimplePicture implements DigitalPicture
      */     
     public void setBasicPixel(int x, int y, int rgb)
     {
+        unshare();
         bufferedImage.setRGB(x,y,rgb);
     }
 
@@ -359,6 +385,53 @@ public class SimplePicture implements DigitalPicture
         return pixelArray;
     }
 
+    /**
+     * Method to get a packed int view of the pixels of this simple picture.
+     * This is much faster than getPixels2D() for looking at every pixel,
+     * since no Pixel objects are made.  If the buffered image is not stored
+     * as packed ints, it is converted the first time this is called.
+     * @return the pixel raster for this picture
+     */
+    public PixelRaster getPixelRaster()
+    {
+        unshare();
+        if (pixelRaster == null || pixelRaster.getImage() != bufferedImage)
+        {
+            bufferedImage = PixelRaster.toIntImage(bufferedImage);
+            pixelRaster = new PixelRaster(bufferedImage);
+        }
+        return pixelRaster;
+    }
+
+    /**
+     * Method to get a packed int view of the pixels of this simple picture 
+     * that will only be read, so a buffered image shared with the 
+     * PictureCache is not copied
+     * @return the pixel raster for this picture, which must not be changed
+     */
+    private PixelRaster readRaster()
+    {
+        if (shared)
+            return new PixelRaster(bufferedImage);
+        return getPixelRaster();
+    }
+
+    /**
+     * Method to copy the buffered image if it is shared with the 
+     * PictureCache or the ImageWriteService, so that this picture can change it
+     */
+    private void unshare()
+    {
+        if (!shared)
+            return;
+
+        ColorModel colorModel = bufferedImage.getColorModel();
+        bufferedImage = new BufferedImage(colorModel, bufferedImage.copyData(null),
+            colorModel.isAlphaPremultiplied(), null);
+        pixelRaster = null;
+        shared = false;
+    }
+
     /**
      * Method to load the buffered image with the passed image
      * @param image  the image to use
@@ -366,7 +439,7 @@ public class SimplePicture implements DigitalPicture
     public void load(Image image)
     {
         // get a graphics context to use to draw on the buffered image
-        Graphics2D graphics2d = bufferedImage.createGraphics();
+        Graphics2D graphics2d = createGraphics();
 
         // draw the image on the buffered image starting at 0,0
         graphics2d.drawImage(image,0,0,null);
@@ -445,6 +518,30 @@ public class SimplePicture implements DigitalPicture
      */
     public void loadOrFail(String fileName) throws IOException
     {
+        loadOrFail(fileName,1,null);
+    }
+
+    /**
+     * Method to load part of a picture, or a smaller version of it, from the 
+     * passed file name.  Only the pixels that are kept are decoded, so a 
+     * thumbnail or one tile of a large photo takes about as much time and 
+     * memory as its own size, not the size of the whole photo.  The picture 
+     * is (region width + subsampling - 1) / subsampling pixels wide, and the 
+     * same for the height
+     * @param fileName the file name to use to load the picture from
+     * @param subsampling only every subsampling-th pixel across and down is 
+     * read, starting with the top left pixel of the region.  1 reads every pixel
+     * @param region the part of the image to read, which is cut down to fit 
+     * inside of the image, or null to read all of it
+     * @throws IOException if the picture isn't found or can't be read
+     * @throws IllegalArgumentException if subsampling is less than 1, or the 
+     * region is not inside of the image
+     */
+    public void loadOrFail(String fileName, int subsampling, Rectangle region) throws IOException
+    {
+        if (subsampling < 1)
+            throw new IllegalArgumentException("The subsampling must be at least 1, not " + subsampling);
+
         // set the current picture's file name
         this.fileName = fileName;
 
@@ -470,7 +567,94 @@ public class SimplePicture implements DigitalPicture
             }
         }
 
-        bufferedImage = ImageIO.read(file);
+        // whole images are shared with the PictureCache until they are changed
+        boolean whole = subsampling == 1 && region == null;
+        BufferedImage image;
+        if (whole)
+            image = PictureCache.load(file);
+        else
+            image = readPart(file,subsampling,region);
+        if (image == null)
+            throw new IOException(this.fileName +
+                " is not an image type that can be read");
+
+        // store the pixels as packed ints so that getPixelRaster() is free
+        bufferedImage = PixelRaster.toIntImage(image);
+        pixelRaster = null;
+        shared = whole;
+    }
+
+    /**
+     * Method to read part of an image file, or a smaller version of it, 
+     * with an ImageReader, which skips the pixels that are not kept
+     * @param file the image file
+     * @param subsampling only every subsampling-th pixel across and down is read
+     * @param region the part of the image to read, or null for all of it
+     * @return the image, or null if there is no ImageReader for the file
+     * @throws IOException if the file can't be read
+     */
+    private static BufferedImage readPart(File file, int subsampling, Rectangle region) throws IOException
+    {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file))
+        {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext())
+                return null;
+
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput(input,true,true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (region != null)
+                {
+                    Rectangle bounds = new Rectangle(reader.getWidth(0),reader.getHeight(0));
+                    Rectangle inside = region.intersection(bounds);
+                    if (inside.isEmpty())
+                        throw new IllegalArgumentException("The region " + region + 
+                            " is not inside of the image, which is " + bounds.width + " x " + bounds.height);
+                    param.setSourceRegion(inside);
+                }
+                param.setSourceSubsampling(subsampling,subsampling,0,0);
+                return reader.read(0,param);
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Method to find the size of the image in a file without reading its 
+     * pixels, for example to choose the subsampling or regions to load it with
+     * @param fileName the file name of the image
+     * @return the width and height of the image
+     * @throws IOException if the file isn't found or isn't an image type that can be read
+     */
+    public static Dimension getImageSize(String fileName) throws IOException
+    {
+        File file = new File(fileName);
+        if (!file.canRead())
+            file = new File(FileChooser.getMediaPath(fileName));
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(file))
+        {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext())
+                throw new IOException(fileName + " is not an image type that can be read");
+
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput(input,true,true);
+                return new Dimension(reader.getWidth(0),reader.getHeight(0));
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
     }
 
     /**
@@ -489,6 +673,33 @@ public class SimplePicture implements DigitalPicture
             System.out.println("There was an error trying to open " + fileName);
             bufferedImage = new BufferedImage(600,200,
                 BufferedImage.TYPE_INT_RGB);
+            shared = false;
+            addMessage("Couldn't load " + fileName,5,100);
+            return false;
+        }
+
+    }
+
+    /**
+     * Method to read part of a picture, or a smaller version of it, from a 
+     * filename without throwing errors (see loadOrFail(String,int,Rectangle))
+     * @param fileName the file name to use to load the picture from
+     * @param subsampling only every subsampling-th pixel across and down is read
+     * @param region the part of the image to read, or null for all of it
+     * @return true if success else false
+     */
+    public boolean load(String fileName, int subsampling, Rectangle region)
+    {
+        try {
+            this.loadOrFail(fileName,subsampling,region);
+            return true;
+
+        } catch (Exception ex) {
+            System.out.println("There was an error trying to open " + fileName);
+            bufferedImage = new BufferedImage(600,200,
+                BufferedImage.TYPE_INT_RGB);
+            shared = false;
+            pixelRaster = null;
             addMessage("Couldn't load " + fileName,5,100);
             return false;
         }
@@ -515,7 +726,7 @@ public class SimplePicture implements DigitalPicture
     public void addMessage(String message, int xPos, int yPos)
     {
         // get a graphics context to use to draw on the buffered image
-        Graphics2D graphics2d = bufferedImage.createGraphics();
+        Graphics2D graphics2d = createGraphics();
 
         // set the color to white
         graphics2d.setPaint(Color.white);
@@ -621,8 +832,22 @@ public class SimplePicture implements DigitalPicture
      */
     public void writeOrFail(String fileName) throws IOException
     {
-        String extension = this.extension; // the default is current
+        File file = getWriteFile(fileName);
 
+        // write the contents of the buffered image to the file
+        ImageIO.write(bufferedImage, getWriteExtension(file), file);
+
+    }
+
+    /**
+     * Method to find the file to write the picture to
+     * @param fileName the name of the file to write the picture to
+     * @return the file, which is in the media directory if the name has
+     * no parent directory
+     * @throws IOException if the directory can't be written to
+     */
+    private File getWriteFile(String fileName) throws IOException
+    {
         // create the file object
         File file = new File(fileName);
         File fileLoc = file.getParentFile(); // directory name
@@ -641,14 +866,53 @@ public class SimplePicture implements DigitalPicture
                 " could not be opened. Check to see if you can write to the directory.");
         }
 
+        return file;
+    }
+
+    /**
+     * Method to get the format to write a file in from its extension
+     * @param file the file to write the picture to
+     * @return the extension of the file, or the extension of this 
+     * picture if the file has none
+     */
+    private String getWriteExtension(File file)
+    {
+        String extension = this.extension; // the default is current
+
         // get the extension
-        int posDot = fileName.indexOf('.');
+        int posDot = file.getPath().indexOf('.');
         if (posDot >= 0)
-            extension = fileName.substring(posDot + 1);
+            extension = file.getPath().substring(posDot + 1);
 
-        // write the contents of the buffered image to the file
-        ImageIO.write(bufferedImage, extension, file);
+        return extension;
+    }
 
+    /**
+     * Method to write the contents of the picture to a file with the 
+     * passed name on a background thread (see ImageWriteService), so that 
+     * this method returns before the picture is encoded.  The picture can 
+     * still be changed right away, since it is copied first if it is 
+     * changed before it has been written.  Call 
+     * ImageWriteService.getShared().flush() to wait for the writes to finish
+     * @param fileName the name of the file to write the picture to
+     * @return true if the write was started, false if the directory can't 
+     * be written to
+     */
+    public boolean writeLater(String fileName)
+    {
+        try {
+            File file = getWriteFile(fileName);
+
+            // share the pixels with the writer until this picture changes them
+            bufferedImage = PixelRaster.toIntImage(bufferedImage);
+            shared = true;
+            ImageWriteService.getShared().submit(bufferedImage, file, getWriteExtension(file));
+            return true;
+        } catch (Exception ex) {
+            System.out.println("There was an error trying to write " + fileName);
+            ex.printStackTrace();
+            return false;
+        }
     }
 
     /**
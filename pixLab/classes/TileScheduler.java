@@ -0,0 +1,146 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class that splits a picture into tiles and works on the tiles on several threads.
+ *
+ * Tiles are rectangles of about TILE_PIXELS pixels, which is small enough for the pixels
+ * of a tile to stay in the processor's cache while the tile is worked on. The tiles are
+ * run on the common ForkJoinPool, which gives each processor its own share of the tiles
+ * and lets idle threads take tiles from busy ones. Pictures with fewer than
+ * MIN_PARALLEL_PIXELS pixels are done on the calling thread, since starting the threads
+ * would take longer than the work.
+ *
+ *     TileScheduler.apply( pixels, argb -> argb | 0xFF000000 ); //make every pixel opaque
+ *
+ * Tasks given to the scheduler run at the same time on different tiles, so a task should
+ * only write the pixels of its own tile. A task that must read pixels to the left or right
+ * of the ones it writes can use forEachRowBand(...), whose tiles are whole rows.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class TileScheduler
+{
+    /* The most columns in one tile */
+    public static final int TILE_WIDTH = 256;
+
+    /* The number of pixels in a tile (64 KB of packed ints) */
+    public static final int TILE_PIXELS = 1 << 14;
+
+    /* Pictures with fewer pixels than this are done on one thread */
+    public static final int MIN_PARALLEL_PIXELS = 1 << 16;
+
+    /** Work done on one tile. The tile is the columns fromCol to toCol - 1 of the rows fromRow to toRow - 1 */
+    @FunctionalInterface
+    public interface TileTask
+    {
+        void run( int fromCol, int fromRow, int toCol, int toRow );
+    }
+
+    /**
+     * Method that changes every pixel of a picture with a point operation
+     * @param pixels The pixels of the picture, which are changed
+     * @param kernel The new color of each pixel, given its old color
+     */
+    public static void apply( PixelRaster pixels, PixelKernel kernel )
+    {
+        forEachTile( pixels.getWidth(), pixels.getHeight(), (fromCol, fromRow, toCol, toRow) -> {
+            for( int row = fromRow; row < toRow; row++ )
+            {
+                int index = pixels.index( fromCol, row );
+                for( int col = fromCol; col < toCol; col++, index++ )
+                    pixels.setAt( index, kernel.apply( pixels.getAt( index ) ) );
+            }
+        } );
+    }
+
+    /**
+     * Method that runs a task on every tile of a picture
+     * @param width The width of the picture
+     * @param height The height of the picture
+     * @param task The work to do on each tile
+     */
+    public static void forEachTile( int width, int height, TileTask task )
+    {
+        int tileWidth = Math.min( width, TILE_WIDTH );
+        forEachTile( width, height, tileWidth, TILE_PIXELS / Math.max( 1, tileWidth ), task );
+    }
+
+    /**
+     * Method that runs a task on every band of whole rows of a picture
+     * @param width The width of the picture
+     * @param height The height of the picture
+     * @param task The work to do on each band. fromCol is always 0 and toCol is always width
+     */
+    public static void forEachRowBand( int width, int height, TileTask task )
+    {
+        forEachTile( width, height, width, TILE_PIXELS / Math.max( 1, width ), task );
+    }
+
+    /**
+     * Method that runs a task on every tile of a picture, with tiles of a given size
+     * @param width The width of the picture
+     * @param height The height of the picture
+     * @param tileWidth The most columns in a tile
+     * @param tileHeight The most rows in a tile
+     * @param task The work to do on each tile
+     */
+    public static void forEachTile( int width, int height, int tileWidth, int tileHeight, TileTask task )
+    {
+        if( width <= 0 || height <= 0 ) return;
+
+        tileWidth  = Math.max( 1, Math.min( tileWidth, width ) );
+        tileHeight = Math.max( 1, Math.min( tileHeight, height ) );
+        if( (long)width * height < MIN_PARALLEL_PIXELS )
+        {
+            task.run( 0, 0, width, height );
+            return;
+        }
+
+        int tilesAcross = (width  + tileWidth  - 1) / tileWidth;
+        int tilesDown   = (height + tileHeight - 1) / tileHeight;
+        ForkJoinPool.commonPool().invoke(
+            new TileAction( task, width, height, tileWidth, tileHeight, tilesAcross, 0, tilesAcross * tilesDown ) );
+    }
+
+    /** A fork/join task that splits a range of tiles in half until there is one tile left */
+    private static class TileAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final TileTask task;
+        private final int width, height;
+        private final int tileWidth, tileHeight;
+        private final int tilesAcross;
+        private final int fromTile, toTile;
+
+        public TileAction( TileTask task, int width, int height, int tileWidth, int tileHeight,
+                           int tilesAcross, int fromTile, int toTile )
+        {
+            this.task        = task;
+            this.width       = width;
+            this.height      = height;
+            this.tileWidth   = tileWidth;
+            this.tileHeight  = tileHeight;
+            this.tilesAcross = tilesAcross;
+            this.fromTile    = fromTile;
+            this.toTile      = toTile;
+        }
+
+        protected void compute()
+        {
+            if( toTile - fromTile == 1 )
+            {
+                int fromCol = (fromTile % tilesAcross) * tileWidth;
+                int fromRow = (fromTile / tilesAcross) * tileHeight;
+                task.run( fromCol, fromRow, Math.min( width, fromCol + tileWidth ),
+                          Math.min( height, fromRow + tileHeight ) );
+                return;
+            }
+
+            int middle = (fromTile + toTile) >>> 1;
+            invokeAll( new TileAction( task, width, height, tileWidth, tileHeight, tilesAcross, fromTile, middle ),
+                       new TileAction( task, width, height, tileWidth, tileHeight, tilesAcross, middle, toTile ) );
+        }
+    }
+}
@@ -0,0 +1,322 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A class that holds the weights of a binary classifier in memory.
+ *
+ * Each feature has one weight for the first classification (A) and one weight
+ * for the second classification (B), stored in two double[] arrays indexed by
+ * the feature id. There is also one iteration counter, which is the number of
+ * training images that the weights have been averaged over (plus one).
+ *
+ * The weights are kept in the same text format as before, one line per feature:
+ *
+ *     featureName weightA weightB iterations
+ *
+ * The weights are only changed by update(...), which holds the model's lock, so a save
+ * (which holds the same lock) never sees the weights of an image half averaged in.
+ *
+ * The file is not read or written for every image. Instead, it is saved
+ * every getCheckpointInterval() iterations, when close() is called, and, if
+ * saveOnShutdown() was called, when the program exits. Saving writes to a
+ * temporary file in the same folder and then renames it over the old file, so
+ * the weights file is never left half written.
+ *
+ * @author Peter Olson mrpeterfolson@gmail.com
+ */
+public class WeightModel
+{
+    private final Path path;
+    private final List<String> names;
+    private final double[] weightsA;
+    private final double[] weightsB;
+    private double iterations;
+
+    private int checkpointInterval = 1;
+    private int unsavedIterations  = 0;
+    private boolean dirty          = false;
+    private Thread shutdownHook    = null;
+
+    /**
+     * Creates a model with random weights between 0 and 1 for each feature
+     * @param names The names of the features, in order of their ids
+     * @param path The weights file that this model is saved to
+     * @param random The random number generator used for the starting weights
+     */
+    public WeightModel( List<String> names, Path path, Random random )
+    {
+        this( names, path );
+        for( int id = 0; id < weightsA.length; id++ )
+        {
+            weightsA[id] = random.nextDouble();
+            weightsB[id] = random.nextDouble();
+        }
+        iterations = 1.0;
+        dirty      = true;
+    }
+
+    /**
+     * Creates a model where every weight is 0
+     * @param names The names of the features, in order of their ids
+     * @param path The weights file that this model is saved to
+     */
+    private WeightModel( List<String> names, Path path )
+    {
+        this.path     = path;
+        this.names    = Collections.unmodifiableList( new ArrayList<String>( names ) );
+        this.weightsA = new double[ names.size() ];
+        this.weightsB = new double[ names.size() ];
+    }
+
+    /**
+     * Method to read a model from a weights file. Reading stops at the first empty line.
+     * The iteration count is read from the last line
+     * @param path The weights file
+     * @return WeightModel The weights in the file
+     * @throws IOException if the file cannot be read or a line is not in the right format
+     */
+    public static WeightModel load( Path path ) throws IOException
+    {
+        List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+        ArrayList<String> names = new ArrayList<String>();
+        ArrayList<double[]> values = new ArrayList<double[]>();
+        for( String line : lines )
+        {
+            if( line.isEmpty() ) break;
+
+            String[] parts = line.split(" ");
+            if( parts.length < 4 )
+                throw new IOException( "Line \"" + line + "\" of " + path + " should be: name weightA weightB iterations" );
+
+            try
+            {
+                values.add( new double[]{ Double.parseDouble( parts[1] ), Double.parseDouble( parts[2] ),
+                                          Double.parseDouble( parts[3] ) } );
+            }
+            catch( NumberFormatException e )
+            {
+                throw new IOException( "Line \"" + line + "\" of " + path + " has a weight that is not a number", e );
+            }
+            names.add( parts[0] );
+        }
+
+        WeightModel model = new WeightModel( names, path );
+        for( int id = 0; id < names.size(); id++ )
+        {
+            model.weightsA[id] = values.get(id)[0];
+            model.weightsB[id] = values.get(id)[1];
+        }
+        if( !values.isEmpty() )
+            model.iterations = values.get( values.size() - 1 )[2];
+
+        return model;
+    }
+
+    /** @return Path The weights file that this model is saved to */
+    public Path getPath()             { return path;             }
+    /** @return List<String> The names of the features, in order of their ids */
+    public List<String> getNames()    { return names;            }
+    /** @return int The number of features */
+    public int size()                 { return weightsA.length;  }
+    /** @return double[] A copy of the weights of the first classification, indexed by feature id */
+    public synchronized double[] getWeightsA()     { return weightsA.clone(); }
+    /** @return double[] A copy of the weights of the second classification, indexed by feature id */
+    public synchronized double[] getWeightsB()     { return weightsB.clone(); }
+    /** @return double The number of iterations that the weights have been averaged over */
+    public synchronized double getIterations()     { return iterations;       }
+    /** @return int The number of iterations between saves */
+    public synchronized int getCheckpointInterval() { return checkpointInterval; }
+
+    /**
+     * Method to set how often the model is saved by checkpoint()
+     * @param iterations The number of iterations between saves, which must be at least 1
+     * @throws IllegalArgumentException if iterations is less than 1
+     */
+    public synchronized void setCheckpointInterval( int iterations )
+    {
+        if( iterations < 1 )
+            throw new IllegalArgumentException( "Checkpoint interval must be at least 1, not " + iterations );
+
+        checkpointInterval = iterations;
+    }
+
+    /**
+     * Method that averages the feature values of one training image into the weights of its
+     * classification, using the running mean over the iterations so far, and adds one to the
+     * iteration count
+     * @param isA True to change the weights of the first classification, false for the second
+     * @param featureData The value of each feature for the image, indexed by feature id
+     * @return double The number of iterations before this image was averaged in
+     */
+    public synchronized double update( boolean isA, double[] featureData )
+    {
+        double[] weights = isA ? weightsA : weightsB;
+        for( int id = 0; id < weights.length; id++ )
+            weights[id] = ((weights[id] * iterations) / (iterations + 1.0)) + (featureData[id] / (iterations + 1.0));
+
+        double before = iterations;
+        finishIteration();
+        return before;
+    }
+
+    /**
+     * Method that is called after the weights have been changed for one training image.
+     * This adds one to the iteration count
+     */
+    private void finishIteration()
+    {
+        iterations += 1.0;
+        unsavedIterations++;
+        dirty = true;
+    }
+
+    /**
+     * Method that saves the model if checkpoint interval iterations have finished
+     * since the last save
+     * @return boolean True if the model was saved, false otherwise
+     * @throws IOException if the weights file cannot be written
+     */
+    public synchronized boolean checkpoint() throws IOException
+    {
+        if( unsavedIterations < checkpointInterval ) return false;
+
+        save();
+        return true;
+    }
+
+    /**
+     * Method to write the model to its weights file. The text is written to a temporary
+     * file first, which is then moved over the weights file
+     * @throws IOException if the weights file cannot be written
+     */
+    public synchronized void save() throws IOException
+    {
+        writeAtomically( path, toString() );
+
+        unsavedIterations = 0;
+        dirty = false;
+    }
+
+    /**
+     * Method to write the model to its weights file if it has changed since the last save
+     * @return boolean True if the model was saved, false if it had not changed
+     * @throws IOException if the weights file cannot be written
+     */
+    public synchronized boolean saveIfDirty() throws IOException
+    {
+        if( !dirty ) return false;
+
+        save();
+        return true;
+    }
+
+    /**
+     * Method to replace the text of a file so that the file is never left half written.
+     * The text is written to a temporary file in the same folder, which is then renamed
+     * over the file. If the file system cannot rename atomically, the file is replaced
+     * with a normal move
+     * @param path The file to write
+     * @param text The new text of the file
+     * @throws IOException if the file cannot be written
+     */
+    static void writeAtomically( Path path, String text ) throws IOException
+    {
+        Path dir = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile( dir, path.getFileName().toString(), ".tmp" );
+        try
+        {
+            try( BufferedWriter writer = Files.newBufferedWriter( temp, StandardCharsets.UTF_8 ) )
+            {
+                writer.write( text );
+            }
+
+            try
+            {
+                Files.move( temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+    }
+
+    /**
+     * Method that saves the model when the program exits, in case the program is stopped
+     * before close() is called. Calling this more than once does nothing
+     */
+    public synchronized void saveOnShutdown()
+    {
+        if( shutdownHook != null ) return;
+
+        shutdownHook = new Thread( () -> {
+            try
+            {
+                saveIfDirty();
+            }
+            catch( IOException e )
+            {
+                e.printStackTrace();
+            }
+        } );
+        Runtime.getRuntime().addShutdownHook( shutdownHook );
+    }
+
+    /**
+     * Method that saves the model if it has changed since the last save, and stops it
+     * from being saved when the program exits
+     * @throws IOException if the weights file cannot be written
+     */
+    public synchronized void close() throws IOException
+    {
+        if( shutdownHook != null )
+        {
+            try
+            {
+                Runtime.getRuntime().removeShutdownHook( shutdownHook );
+            }
+            catch( IllegalStateException e )
+            {
+                //The program is already exiting, so the hook will save the model
+            }
+            shutdownHook = null;
+        }
+
+        saveIfDirty();
+    }
+
+    /**
+     * Method to return the model in the format of the weights file
+     * @return String One line per feature: name weightA weightB iterations
+     */
+    public synchronized String toString()
+    {
+        DecimalFormat df = new DecimalFormat("0.##");
+        StringBuilder text = new StringBuilder();
+        for( int id = 0; id < weightsA.length; id++ )
+        {
+            text.append( names.get(id) ).append(' ')
+                .append( df.format( weightsA[id] ) ).append(' ')
+                .append( df.format( weightsB[id] ) ).append(' ')
+                .append( iterations );
+            if( id < weightsA.length - 1 )
+                text.append('\n');
+        }
+
+        return text.toString();
+    }
+}